@@ -9,8 +9,14 @@ import core.AlgorithmSelector.AlgorithmType;
 import core.ResultsFormatter;
 import evaluation.ConfusionMatrix;
 import evaluation.Evaluator;
+import io.BinaryDatasetReader;
+import io.BinaryDatasetWriter;
 import io.CSVLoader;
+import io.ColumnarTable;
+import io.ParallelCSVReader;
 import ui.SummaryPrinter;
+import java.io.File;
+import java.io.IOException;
 import java.util.*;
 
 /**
@@ -21,15 +27,22 @@ import java.util.*;
  * choose different algorithms and compare their performance
  * 
  * New Features:
- * - Multiple algorithm support (KNN, Decision Tree, Naive Bayes, Logistic Regression)
+ * - Multiple algorithm support (KNN, Decision Tree, Naive Bayes, Logistic Regression, Linear SVM)
  * - Algorithm comparison and selection
  * - Professional result formatting
  * - Detailed performance analysis
+ * - "convert <input.csv> <output.yotab>" saves a CSV as a binary dataset
+ *   that later loads without parsing
  */
 
 public class Main {
 
     public static void main(String[] args) {
+        if (args.length > 0 && args[0].equals("convert")) {
+            convertToBinary(args);
+            return;
+        }
+        
         System.out.println("🚀 YOTA ML Engine - Enhanced Multi-Algorithm Version");
         System.out.println("═".repeat(65));
         
@@ -182,6 +195,43 @@ public class Main {
         System.out.println("═".repeat(65));
     }
     
+    /**
+     * Command: parse a CSV once and save it as a binary dataset
+     */
+    private static void convertToBinary(String[] args) {
+        if (args.length != 3) {
+            System.out.println("Usage: java Main convert <input.csv> <output.yotab>");
+            return;
+        }
+        String input = args[1];
+        String output = args[2];
+        
+        try {
+            System.out.println("📂 Parsing " + input + "...");
+            long startTime = System.currentTimeMillis();
+            ColumnarTable table = new ParallelCSVReader().read(input);
+            long parseTime = System.currentTimeMillis() - startTime;
+            System.out.println("   Schema: " + table.getSchema());
+            
+            startTime = System.currentTimeMillis();
+            BinaryDatasetWriter.write(table, output);
+            long writeTime = System.currentTimeMillis() - startTime;
+            
+            // Re-open to confirm the file is complete
+            startTime = System.currentTimeMillis();
+            try (BinaryDatasetReader reader = new BinaryDatasetReader(output)) {
+                long openTime = System.currentTimeMillis() - startTime;
+                System.out.printf("✅ %d rows x %d columns: parsed in %d ms, written in %d ms, opens in %d ms%n",
+                    reader.getNumRows(), reader.getNumColumns(), parseTime, writeTime, openTime);
+            }
+            System.out.printf("   %s: %,d bytes -> %s: %,d bytes%n", input, new File(input).length(),
+                output, new File(output).length());
+        
+        } catch (IOException e) {
+            System.out.println("❌ Conversion failed: " + e.getMessage());
+        }
+    }
+    
     // Method: Create a sample dataset if CSV file is not found
     private static Dataset createSampleDataset() {
         System.out.println("Creating synthetic employee dataset...");
@@ -252,6 +302,9 @@ public class Main {
                 parameters.put("learningRate", 0.01);
                 parameters.put("maxIterations", 1000);
                 break;
+            case LINEAR_SVM:
+                parameters.put("C", 1.0);
+                break;
         }
         
         return parameters;
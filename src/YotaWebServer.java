@@ -6,6 +6,8 @@ import core.Instance;
 import core.Attribute;
 import core.DataAnalyzer;
 import core.KNNClassifier;
+import io.ColumnarTable;
+import io.MultipartStream;
 import java.io.*;
 import java.net.InetSocketAddress;
 import java.util.*;
@@ -190,15 +192,16 @@ public class YotaWebServer {
                 try {
                     // Parse multipart form data
                     String contentType = exchange.getRequestHeaders().getFirst("Content-Type");
-                    if (contentType != null && contentType.startsWith("multipart/form-data")) {
+                    String boundary = MultipartStream.boundaryOf(contentType);
+                    if (contentType != null && contentType.startsWith("multipart/form-data") && boundary != null) {
                         
-                        // Read the request body
-                        InputStream inputStream = exchange.getRequestBody();
-                        String csvContent = parseMultipartFile(inputStream, contentType);
+                        // Find the file part; its bytes are parsed as they arrive
+                        MultipartStream multipart = new MultipartStream(exchange.getRequestBody(), boundary);
+                        InputStream csvStream = findCSVFilePart(multipart);
                         
-                        if (csvContent != null && !csvContent.trim().isEmpty()) {
+                        if (csvStream != null) {
                             // Process the CSV content
-                            processCSVContent(csvContent);
+                            processCSVStream(csvStream);
                             
                             // Redirect with success message
                             String response = "<script>alert('CSV file uploaded and processed successfully!'); window.location='/preprocess';</script>";
@@ -476,7 +479,7 @@ public class YotaWebServer {
             "<form action='/upload' method='post' enctype='multipart/form-data'>" +
             "<div class='mb-3'>" +
             "<label class='form-label'>Upload CSV File:</label>" +
-            "<input type='file' class='form-control' name='file' accept='.csv' required>" +
+            "<input type='file' class='form-control' name='file' accept='.csv,.gz,.zip,.zz,.deflate' required>" +
             "<div class='form-text'>Supported format: CSV files with comma-separated values</div>" +
             "</div>" +
             "<button type='submit' class='btn btn-primary'>📤 Upload & Analyze</button>" +
@@ -607,143 +610,42 @@ public class YotaWebServer {
     // ===== HELPER METHODS =====
     
     /**
-     * Parse multipart form data to extract CSV file content
+     * Skip to the first uploaded .csv file part (compressed ones included:
+     * .csv.gz, .zip, .gz, .zz, .deflate); its content stream, or null if the
+     * form has none
      */
-    private String parseMultipartFile(InputStream inputStream, String contentType) throws IOException {
-        try {
-            // Extract boundary from content type
-            String boundary = extractBoundary(contentType);
-            if (boundary == null) {
-                return null;
+    private InputStream findCSVFilePart(MultipartStream multipart) throws IOException {
+        while (multipart.nextPart()) {
+            String filename = multipart.getFilename();
+            if (filename == null) {
+                continue;
             }
-            
-            // Read the entire request body
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            byte[] data = new byte[1024];
-            int bytesRead;
-            while ((bytesRead = inputStream.read(data, 0, data.length)) != -1) {
-                buffer.write(data, 0, bytesRead);
-            }
-            
-            String requestBody = buffer.toString("UTF-8");
-            
-            // Find the file content between boundaries
-            String boundaryMarker = "--" + boundary;
-            String[] parts = requestBody.split(boundaryMarker);
-            
-            for (String part : parts) {
-                if (part.contains("filename=") && part.contains(".csv")) {
-                    // This part contains the CSV file
-                    int contentStart = part.indexOf("\r\n\r\n");
-                    if (contentStart != -1) {
-                        String fileContent = part.substring(contentStart + 4);
-                        // Remove any trailing boundary markers
-                        int endMarker = fileContent.indexOf("\r\n--");
-                        if (endMarker != -1) {
-                            fileContent = fileContent.substring(0, endMarker);
-                        }
-                        return fileContent.trim();
-                    }
-                }
-            }
-            
-            return null;
-        } catch (Exception e) {
-            System.err.println("Error parsing multipart file: " + e.getMessage());
-            return null;
-        }
-    }
-    
-    /**
-     * Extract boundary from Content-Type header
-     */
-    private String extractBoundary(String contentType) {
-        String[] parts = contentType.split(";");
-        for (String part : parts) {
-            part = part.trim();
-            if (part.startsWith("boundary=")) {
-                return part.substring(9);
+            String name = filename.toLowerCase();
+            if (name.contains(".csv") || name.endsWith(".gz") || name.endsWith(".zip")
+                    || name.endsWith(".zz") || name.endsWith(".deflate")) {
+                return multipart.getBody();
             }
         }
         return null;
     }
     
     /**
-     * Process CSV content and create dataset
+     * Parse CSV content straight from a stream and create the dataset.
+     * Only the parsed columns are kept in memory, never the raw text, so a
+     * large upload costs about as much as the data it holds.
      */
-    private void processCSVContent(String csvContent) throws Exception {
-        String[] lines = csvContent.split("\\r?\\n");
-        if (lines.length < 2) {
+    private void processCSVStream(InputStream csvStream) throws Exception {
+        ColumnarTable table = ColumnarTable.readCSV(csvStream);
+        if (table.getNumRows() == 0) {
             throw new Exception("CSV file must have at least 2 lines (header + data)");
         }
         
-        // Create new dataset
-        currentDataset = new Dataset("Uploaded CSV Data");
-        
-        boolean firstLine = true;
-        for (String line : lines) {
-            line = line.trim();
-            if (line.isEmpty()) continue;
-            
-            String[] values = line.split(",");
-            
-            if (firstLine) {
-                firstLine = false;
-                // Create attributes from header
-                for (int i = 0; i < values.length; i++) {
-                    String header = values[i].trim().replace("\"", "");
-                    // Last column is categorical (class), others are numeric by default
-                    String type = (i == values.length - 1) ? "categorical" : "numeric";
-                    currentDataset.addAttribute(new Attribute(header, type));
-                }
-            } else {
-                // Create instance from data row
-                Instance instance = new Instance();
-                for (int i = 0; i < values.length; i++) {
-                    String value = values[i].trim().replace("\"", "");
-                    Object objectValue = tryParseNumber(value);
-                    instance.addValue(objectValue);
-                }
-                
-                // Set class value (last column)
-                if (values.length > 0) {
-                    String lastValue = values[values.length - 1].trim().replace("\"", "");
-                    Object classValue = tryParseNumber(lastValue);
-                    instance.setClassValue(classValue);
-                }
-                
-                currentDataset.addInstance(instance);
-            }
-        }
+        // Create new dataset (column types are inferred from the data)
+        currentDataset = table.toDataset("Uploaded CSV Data");
         
         // Analyze the new dataset
-        if (currentDataset.getNumInstances() > 0) {
-            currentAnalyzer = new DataAnalyzer(currentDataset);
-            analysisResults = generateAnalysisText();
-        } else {
-            throw new Exception("No valid data rows found in CSV file");
-        }
-    }
-    
-    /**
-     * Try to parse a string as a number, return string if not numeric
-     */
-    private Object tryParseNumber(String value) {
-        if (value == null || value.trim().isEmpty()) {
-            return value;
-        }
-        
-        try {
-            // Try integer first
-            if (!value.contains(".")) {
-                return Double.valueOf(Integer.parseInt(value.trim()));
-            }
-            // Try double
-            return Double.parseDouble(value.trim());
-        } catch (NumberFormatException e) {
-            // Return as string if not numeric
-            return value.trim();
-        }
+        currentAnalyzer = new DataAnalyzer(currentDataset);
+        analysisResults = generateAnalysisText();
     }
     
     private String generateBasePage(String title, String content, String activeTab) {
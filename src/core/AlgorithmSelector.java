@@ -17,7 +17,8 @@ public class AlgorithmSelector {
         KNN("K-Nearest Neighbors", "Simple, instance-based learning. Good for non-linear data."),
         DECISION_TREE("Decision Tree", "Rule-based learning with interpretable decisions."),
         NAIVE_BAYES("Naive Bayes", "Probabilistic classifier assuming feature independence."),
-        LOGISTIC_REGRESSION("Logistic Regression", "Linear classifier using statistical regression.");
+        LOGISTIC_REGRESSION("Logistic Regression", "Linear classifier using statistical regression."),
+        LINEAR_SVM("Linear SVM", "Maximum-margin linear classifier. Fast on large, sparse data.");
         
         private final String displayName;
         private final String description;
@@ -53,12 +54,30 @@ public class AlgorithmSelector {
                 return new DecisionTreeClassifierWrapper(maxDepth, minSamplesLeaf);
                 
             case NAIVE_BAYES:
-                return new NaiveBayesClassifierWrapper();
+                double alpha = (Double) parameters.getOrDefault("alpha", 1.0);
+                NaiveBayesClassifier.NumericLikelihood likelihood = (NaiveBayesClassifier.NumericLikelihood)
+                    parameters.getOrDefault("numericLikelihood", NaiveBayesClassifier.NumericLikelihood.GAUSSIAN);
+                return new NaiveBayesClassifierWrapper(likelihood, alpha);
                 
             case LOGISTIC_REGRESSION:
                 double learningRate = (Double) parameters.getOrDefault("learningRate", 0.01);
                 int maxIterations = (Integer) parameters.getOrDefault("maxIterations", 1000);
-                return new LogisticRegressionClassifierWrapper(learningRate, maxIterations);
+                LogisticRegressionClassifier.Solver solver = (LogisticRegressionClassifier.Solver)
+                    parameters.getOrDefault("solver", LogisticRegressionClassifier.Solver.LBFGS);
+                LogisticRegressionClassifierWrapper wrapper =
+                    new LogisticRegressionClassifierWrapper(learningRate, maxIterations, solver);
+                if (solver == LogisticRegressionClassifier.Solver.COORDINATE_DESCENT) {
+                    double penalty = (Double) parameters.getOrDefault("penalty", 0.001);
+                    double l1Ratio = (Double) parameters.getOrDefault("l1Ratio", 1.0);
+                    wrapper.classifier.setElasticNet(penalty, l1Ratio);
+                }
+                return wrapper;
+                
+            case LINEAR_SVM:
+                double c = (Double) parameters.getOrDefault("C", 1.0);
+                LinearSVMClassifier.Loss loss = (LinearSVMClassifier.Loss)
+                    parameters.getOrDefault("loss", LinearSVMClassifier.Loss.HINGE);
+                return new LinearSVMClassifierWrapper(c, loss);
                 
             default:
                 throw new IllegalArgumentException("Unknown algorithm type: " + algorithmType);
@@ -97,18 +116,30 @@ public class AlgorithmSelector {
                 break;
                 
             case NAIVE_BAYES:
-                info.append("Parameters: None (uses automatic parameter estimation)\n");
+                info.append("Parameters:\n");
+                info.append("  - alpha: Laplace smoothing for categorical counts (default: 1.0)\n");
+                info.append("  - numericLikelihood: GAUSSIAN or MULTINOMIAL for numeric columns (default: GAUSSIAN)\n");
                 info.append("Pros: Fast training and prediction, works well with small datasets\n");
                 info.append("Cons: Assumes feature independence, may not work well with correlated features\n");
                 break;
                 
             case LOGISTIC_REGRESSION:
                 info.append("Parameters:\n");
+                info.append("  - solver: LBFGS, GRADIENT_DESCENT, MINI_BATCH_SGD, HOGWILD or COORDINATE_DESCENT (default: LBFGS)\n");
                 info.append("  - learningRate: Step size for gradient descent (default: 0.01)\n");
                 info.append("  - maxIterations: Maximum training iterations (default: 1000)\n");
+                info.append("  - penalty, l1Ratio: Elastic-net penalty for COORDINATE_DESCENT (default: 0.001, 1.0 = L1)\n");
                 info.append("Pros: Provides probability estimates, less prone to overfitting\n");
                 info.append("Cons: Assumes linear relationship, may need feature engineering\n");
                 break;
+                
+            case LINEAR_SVM:
+                info.append("Parameters:\n");
+                info.append("  - C: Penalty for margin violations (default: 1.0)\n");
+                info.append("  - loss: HINGE or SQUARED_HINGE (default: HINGE)\n");
+                info.append("Pros: Trains in a few passes over the data, scales to many sparse features\n");
+                info.append("Cons: No probability estimates, linear boundaries only\n");
+                break;
         }
         
         return info.toString();
@@ -192,8 +223,8 @@ public class AlgorithmSelector {
     private static class NaiveBayesClassifierWrapper implements Classifier {
         private NaiveBayesClassifier classifier;
         
-        public NaiveBayesClassifierWrapper() {
-            this.classifier = new NaiveBayesClassifier();
+        public NaiveBayesClassifierWrapper(NaiveBayesClassifier.NumericLikelihood likelihood, double alpha) {
+            this.classifier = new NaiveBayesClassifier(likelihood, alpha);
         }
         
         @Override
@@ -222,10 +253,12 @@ public class AlgorithmSelector {
         private double learningRate;
         private int maxIterations;
         
-        public LogisticRegressionClassifierWrapper(double learningRate, int maxIterations) {
+        public LogisticRegressionClassifierWrapper(double learningRate, int maxIterations,
+                                                   LogisticRegressionClassifier.Solver solver) {
             this.learningRate = learningRate;
             this.maxIterations = maxIterations;
             this.classifier = new LogisticRegressionClassifier(learningRate, maxIterations);
+            this.classifier.setSolver(solver);
         }
         
         @Override
@@ -248,4 +281,32 @@ public class AlgorithmSelector {
             return classifier.getModelSummary();
         }
     }
-}
\ No newline at end of file
+    
+    private static class LinearSVMClassifierWrapper implements Classifier {
+        private LinearSVMClassifier classifier;
+        
+        public LinearSVMClassifierWrapper(double c, LinearSVMClassifier.Loss loss) {
+            this.classifier = new LinearSVMClassifier(c, loss);
+        }
+        
+        @Override
+        public void train(Dataset dataset) {
+            classifier.train(dataset);
+        }
+        
+        @Override
+        public Object predict(Instance instance) {
+            return classifier.predict(instance);
+        }
+        
+        @Override
+        public String getAlgorithmName() {
+            return "Linear SVM";
+        }
+        
+        @Override
+        public String getModelSummary() {
+            return classifier.getModelSummary();
+        }
+    }
+}
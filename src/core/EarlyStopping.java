@@ -0,0 +1,87 @@
+package core;
+
+/**
+ * EARLY STOPPING
+ * 
+ * Purpose: Decide when an iterative trainer can stop
+ * Think of it like: Stop studying once extra hours no longer raise your
+ * practice-test score
+ * 
+ * Stops when any of these holds:
+ * - the gradient norm is below the tolerance
+ * - the training loss changed by less than tolerance (relative)
+ * - the validation loss has not improved for `patience` checks
+ *   (the best coefficients are then restored)
+ */
+public class EarlyStopping {
+    
+    private final double tolerance;
+    private final int patience;
+    private final LogisticLoss validation;
+    
+    private double previousLoss = Double.NaN;
+    private double bestValidationLoss = Double.POSITIVE_INFINITY;
+    private double[] bestCoefficients;
+    private int checksWithoutImprovement;
+    private String reason = "iteration limit";
+    
+    /**
+     * validation may be null to disable the held-out check
+     */
+    public EarlyStopping(double tolerance, int patience, LogisticLoss validation) {
+        this.tolerance = tolerance;
+        this.patience = patience;
+        this.validation = validation;
+    }
+    
+    /**
+     * Record one iteration/epoch. gradientNorm may be NaN when the caller
+     * only has a noisy (mini-batch) gradient. Returns true to stop.
+     */
+    public boolean update(double trainingLoss, double gradientNorm, double[] coefficients) {
+        if (gradientNorm <= tolerance) {
+            reason = "gradient norm below tolerance";
+            return true;
+        }
+        
+        double change = Math.abs(previousLoss - trainingLoss);
+        previousLoss = trainingLoss;
+        if (change <= tolerance * Math.max(1.0, Math.abs(trainingLoss))) {
+            reason = "loss change below tolerance";
+            return true;
+        }
+        
+        if (validation != null) {
+            double validationLoss = validation.meanLoss(coefficients);
+            if (validationLoss < bestValidationLoss - tolerance) {
+                bestValidationLoss = validationLoss;
+                bestCoefficients = coefficients.clone();
+                checksWithoutImprovement = 0;
+            } else if (++checksWithoutImprovement >= patience) {
+                reason = "validation loss stopped improving";
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Put back the coefficients with the lowest validation loss (if any)
+     */
+    public void restoreBest(double[] coefficients) {
+        if (bestCoefficients != null) {
+            System.arraycopy(bestCoefficients, 0, coefficients, 0, coefficients.length);
+        }
+    }
+    
+    /**
+     * Why training stopped
+     */
+    public String getReason() {
+        return reason;
+    }
+    
+    public double getBestValidationLoss() {
+        return bestValidationLoss;
+    }
+}
@@ -0,0 +1,191 @@
+package core;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * HOGWILD TRAINER
+ * 
+ * Purpose: Lock-free asynchronous SGD for sparse logistic regression
+ * Think of it like: Several people editing the same spreadsheet at once
+ * without taking turns - because each only touches a few cells, they
+ * rarely get in each other's way
+ * 
+ * How it works:
+ * - Rows are stored sparsely (only non-zero features, CSR layout)
+ * - Each worker thread takes its own slice of the shuffled rows and, for
+ *   every row, updates the shared coefficient array in place
+ * - No locks and no gradient reduction: coefficients are read and written
+ *   with VarHandle opaque access (atomic per double, no ordering fences),
+ *   so a concurrent update can occasionally be lost - which SGD tolerates
+ * - Each update touches only the row's non-zero features (plus the bias);
+ *   the L2 penalty is applied to those coordinates only
+ * 
+ * Throughput scaling with thread count:
+ * rows/second (see getRowsPerSecond) grows close to linearly with threads
+ * as long as rows are sparse and mostly touch different features, because
+ * workers share nothing but the coefficient array. It flattens once threads
+ * exceed physical cores, and on dense data or a few very hot features
+ * (including the bias) cache-line contention becomes the limit. Measure
+ * with your own data by training with setThreads(1, 2, 4, ...) and
+ * comparing getRowsPerSecond().
+ */
+public class HogwildTrainer {
+    
+    private static final VarHandle COEFFICIENTS = MethodHandles.arrayElementVarHandle(double[].class);
+    
+    private double learningRate = 0.1;
+    private int epochs = 10;
+    private int threads = Runtime.getRuntime().availableProcessors();
+    private double l2Penalty = 0.0;
+    private long seed = 42;
+    
+    private int epochsRun;
+    private double rowsPerSecond;
+    
+    public HogwildTrainer() {}
+    
+    public HogwildTrainer(double learningRate, int epochs, int threads) {
+        this.learningRate = learningRate;
+        this.epochs = epochs;
+        this.threads = Math.max(1, threads);
+    }
+    
+    public void setThreads(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    public void setL2Penalty(double l2Penalty) {
+        this.l2Penalty = l2Penalty;
+    }
+    
+    /**
+     * Train on sparse rows: row i has features indices[rowStart[i] .. rowStart[i+1])
+     * with the matching values. coefficients use the LogisticLoss layout and
+     * are updated in place. stopping (may be null) is checked after each epoch.
+     */
+    public void train(int[] rowStart, int[] indices, double[] values, int[] y,
+                      int numFeatures, int numOutputs, double[] coefficients,
+                      EarlyStopping stopping) {
+        int n = y.length;
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        Random random = new Random(seed);
+        epochsRun = 0;
+        long rowsProcessed = 0;
+        long nanos = 0;
+        
+        try {
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                // Reshuffle every epoch so workers see different rows
+                for (int i = n - 1; i > 0; i--) {
+                    int j = random.nextInt(i + 1);
+                    int tmp = order[i];
+                    order[i] = order[j];
+                    order[j] = tmp;
+                }
+                double rate = learningRate / Math.sqrt(1.0 + epoch);
+                
+                List<Callable<Double>> workers = new ArrayList<>(threads);
+                for (int t = 0; t < threads; t++) {
+                    int from = (int) ((long) n * t / threads);
+                    int to = (int) ((long) n * (t + 1) / threads);
+                    workers.add(() -> runWorker(order, from, to, rowStart, indices, values, y,
+                                                numFeatures, numOutputs, coefficients, rate));
+                }
+                
+                long start = System.nanoTime();
+                double epochLoss = 0.0;
+                for (Future<Double> result : pool.invokeAll(workers)) {
+                    epochLoss += result.get();
+                }
+                nanos += System.nanoTime() - start;
+                rowsProcessed += n;
+                epochsRun++;
+                
+                if (stopping != null && stopping.update(epochLoss / n, Double.NaN, coefficients)) {
+                    break;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Hogwild worker failed", e.getCause());
+        } finally {
+            pool.shutdown();
+        }
+        
+        rowsPerSecond = nanos > 0 ? rowsProcessed * 1e9 / nanos : 0.0;
+    }
+    
+    /**
+     * SGD over rows order[from, to) against the shared coefficients;
+     * returns the summed loss seen before each update
+     */
+    private double runWorker(int[] order, int from, int to, int[] rowStart, int[] indices,
+                             double[] values, int[] y, int numFeatures, int numOutputs,
+                             double[] coefficients, double rate) {
+        int stride = numFeatures + 1;
+        double[] scores = new double[numOutputs];
+        double loss = 0.0;
+        
+        for (int r = from; r < to; r++) {
+            int i = order[r];
+            int begin = rowStart[i];
+            int end = rowStart[i + 1];
+            
+            // Scores from the non-zero features only
+            for (int k = 0; k < numOutputs; k++) {
+                int base = k * stride;
+                double z = (double) COEFFICIENTS.getOpaque(coefficients, base + numFeatures);
+                for (int p = begin; p < end; p++) {
+                    z += (double) COEFFICIENTS.getOpaque(coefficients, base + indices[p]) * values[p];
+                }
+                scores[k] = z;
+            }
+            loss += LogisticLoss.toErrors(scores, y[i], numOutputs);
+            
+            // Lock-free update of the touched coordinates
+            for (int k = 0; k < numOutputs; k++) {
+                double error = scores[k];
+                int base = k * stride;
+                for (int p = begin; p < end; p++) {
+                    int index = base + indices[p];
+                    double w = (double) COEFFICIENTS.getOpaque(coefficients, index);
+                    COEFFICIENTS.setOpaque(coefficients, index, w - rate * (error * values[p] + l2Penalty * w));
+                }
+                int biasIndex = base + numFeatures;
+                double b = (double) COEFFICIENTS.getOpaque(coefficients, biasIndex);
+                COEFFICIENTS.setOpaque(coefficients, biasIndex, b - rate * error);
+            }
+        }
+        return loss;
+    }
+    
+    public int getEpochsRun() {
+        return epochsRun;
+    }
+    
+    /**
+     * Training throughput of the last run, in rows per second across all threads
+     */
+    public double getRowsPerSecond() {
+        return rowsPerSecond;
+    }
+    
+    public String getDescription() {
+        return threads + " threads, learning rate " + learningRate + ", " + epochs + " epochs";
+    }
+}
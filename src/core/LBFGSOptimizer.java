@@ -0,0 +1,186 @@
+package core;
+
+/**
+ * L-BFGS OPTIMIZER
+ * 
+ * Purpose: Minimize a smooth function using limited-memory BFGS
+ * Think of it like: Gradient descent that remembers the last few steps
+ * and uses them to guess the curvature, so it takes far fewer, better steps
+ * 
+ * Each iteration:
+ * 1. Build a search direction from the gradient and the stored
+ *    (step, gradient change) pairs (two-loop recursion)
+ * 2. Backtracking line search until the Armijo sufficient-decrease test passes
+ * 3. Stop once the gradient norm falls below the tolerance
+ */
+public class LBFGSOptimizer {
+    
+    /**
+     * Function to minimize: returns f(x) and writes the gradient
+     */
+    public interface Objective {
+        double evaluate(double[] x, double[] gradient);
+    }
+    
+    private static final double ARMIJO = 1e-4;
+    private static final int MAX_LINE_SEARCH_STEPS = 40;
+    
+    private int memory = 10;
+    private int maxIterations = 100;
+    private double tolerance = 1e-6;
+    
+    private int iterations;
+    private boolean converged;
+    
+    public LBFGSOptimizer() {}
+    
+    public LBFGSOptimizer(int memory, int maxIterations, double tolerance) {
+        this.memory = memory;
+        this.maxIterations = maxIterations;
+        this.tolerance = tolerance;
+    }
+    
+    /**
+     * Minimize f starting from x; x is updated in place.
+     * Returns the final function value.
+     */
+    public double minimize(Objective f, double[] x) {
+        int n = x.length;
+        double[][] s = new double[memory][n];
+        double[][] yDiff = new double[memory][n];
+        double[] rho = new double[memory];
+        double[] alpha = new double[memory];
+        
+        double[] gradient = new double[n];
+        double[] newGradient = new double[n];
+        double[] direction = new double[n];
+        double[] candidate = new double[n];
+        double[] sNew = new double[n];       // pair under test, kept only if accepted
+        double[] yNew = new double[n];
+        
+        double value = f.evaluate(x, gradient);
+        int stored = 0;
+        int newest = -1;
+        iterations = 0;
+        converged = false;
+        
+        while (iterations < maxIterations) {
+            if (norm(gradient) <= tolerance * Math.max(1.0, norm(x))) {
+                converged = true;
+                break;
+            }
+            
+            // Two-loop recursion: direction = -H * gradient
+            for (int i = 0; i < n; i++) {
+                direction[i] = -gradient[i];
+            }
+            for (int m = 0; m < stored; m++) {
+                int k = Math.floorMod(newest - m, memory);
+                alpha[k] = rho[k] * dot(s[k], direction);
+                axpy(-alpha[k], yDiff[k], direction);
+            }
+            if (stored > 0) {
+                double gamma = dot(s[newest], yDiff[newest]) / dot(yDiff[newest], yDiff[newest]);
+                for (int i = 0; i < n; i++) {
+                    direction[i] *= gamma;
+                }
+            } else {
+                // First step: unit length along the negative gradient
+                double scale = 1.0 / Math.max(norm(direction), 1e-12);
+                for (int i = 0; i < n; i++) {
+                    direction[i] *= scale;
+                }
+            }
+            for (int m = stored - 1; m >= 0; m--) {
+                int k = Math.floorMod(newest - m, memory);
+                double beta = rho[k] * dot(yDiff[k], direction);
+                axpy(alpha[k] - beta, s[k], direction);
+            }
+            
+            double slope = dot(gradient, direction);
+            if (slope >= 0) {
+                // Not a descent direction (bad curvature pairs): restart from steepest descent
+                stored = 0;
+                for (int i = 0; i < n; i++) {
+                    direction[i] = -gradient[i];
+                }
+                slope = dot(gradient, direction);
+            }
+            
+            // Backtracking line search (Armijo condition)
+            double step = 1.0;
+            double newValue = Double.NaN;
+            boolean accepted = false;
+            for (int attempt = 0; attempt < MAX_LINE_SEARCH_STEPS; attempt++) {
+                for (int i = 0; i < n; i++) {
+                    candidate[i] = x[i] + step * direction[i];
+                }
+                newValue = f.evaluate(candidate, newGradient);
+                if (newValue <= value + ARMIJO * step * slope) {
+                    accepted = true;
+                    break;
+                }
+                step *= 0.5;
+            }
+            iterations++;
+            if (!accepted) {
+                break; // No further progress possible at this precision
+            }
+            
+            // Store the new curvature pair; a rejected pair must not
+            // overwrite the oldest one still in use
+            double sy = 0.0;
+            for (int i = 0; i < n; i++) {
+                sNew[i] = candidate[i] - x[i];
+                yNew[i] = newGradient[i] - gradient[i];
+                sy += sNew[i] * yNew[i];
+            }
+            if (sy > 1e-12) {
+                int next = (newest + 1) % memory;
+                System.arraycopy(sNew, 0, s[next], 0, n);
+                System.arraycopy(yNew, 0, yDiff[next], 0, n);
+                rho[next] = 1.0 / sy;
+                newest = next;
+                stored = Math.min(stored + 1, memory);
+            }
+            
+            System.arraycopy(candidate, 0, x, 0, n);
+            System.arraycopy(newGradient, 0, gradient, 0, n);
+            value = newValue;
+        }
+        
+        return value;
+    }
+    
+    /**
+     * Iterations used by the last minimize call
+     */
+    public int getIterations() {
+        return iterations;
+    }
+    
+    /**
+     * Whether the last minimize call reached the gradient tolerance
+     */
+    public boolean hasConverged() {
+        return converged;
+    }
+    
+    private static double dot(double[] a, double[] b) {
+        double sum = 0.0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+    
+    private static double norm(double[] a) {
+        return Math.sqrt(dot(a, a));
+    }
+    
+    private static void axpy(double a, double[] x, double[] y) {
+        for (int i = 0; i < x.length; i++) {
+            y[i] += a * x[i];
+        }
+    }
+}
@@ -0,0 +1,181 @@
+package core;
+
+import java.util.Arrays;
+
+/**
+ * LOGISTIC LOSS
+ * 
+ * Purpose: Compute the log-loss of a (multinomial) logistic regression model
+ * and its gradient in a single pass over the data
+ * Think of it like: The "how wrong are we, and which way should we move"
+ * measurement that every optimizer needs
+ * 
+ * Coefficient layout: one block of (numFeatures + 1) values per output,
+ * feature weights first and the bias last.
+ * - 2 classes: a single sigmoid output (label 1 = positive class)
+ * - K > 2 classes: K softmax outputs
+ * 
+ * An optional L2 penalty (on the weights, not the biases) keeps the optimum
+ * finite on separable data.
+ */
+public class LogisticLoss {
+    
+    private final double[][] X;
+    private final int[] y;
+    private final int numFeatures;
+    private final int numOutputs;
+    private final double l2Penalty;
+    
+    public LogisticLoss(double[][] X, int[] y, int numOutputs, double l2Penalty) {
+        this.X = X;
+        this.y = y;
+        this.numFeatures = X.length > 0 ? X[0].length : 0;
+        this.numOutputs = numOutputs;
+        this.l2Penalty = l2Penalty;
+    }
+    
+    /**
+     * Number of coefficients the model needs
+     */
+    public int getNumCoefficients() {
+        return numOutputs * (numFeatures + 1);
+    }
+    
+    public int getNumSamples() {
+        return X.length;
+    }
+    
+    /**
+     * Mean loss over all rows plus the penalty; the gradient is written
+     * (not added) into gradient
+     */
+    public double evaluate(double[] coefficients, double[] gradient) {
+        Arrays.fill(gradient, 0.0);
+        double loss = accumulate(coefficients, null, 0, X.length, gradient, new double[numOutputs]);
+        return finish(coefficients, loss, X.length, gradient);
+    }
+    
+    /**
+     * Mean loss over all rows (no penalty, no gradient), e.g. for a
+     * held-out validation set
+     */
+    public double meanLoss(double[] coefficients) {
+        if (X.length == 0) {
+            return 0.0;
+        }
+        return accumulate(coefficients, null, 0, X.length, null, new double[numOutputs]) / X.length;
+    }
+    
+    /**
+     * Add the summed loss gradient of rows [from, to) to gradient and
+     * return the summed loss. If rows is non-null, positions are looked up
+     * through it (e.g. a shuffled order); scores is scratch of length numOutputs.
+     * A null gradient computes the loss only.
+     */
+    public double accumulate(double[] coefficients, int[] rows, int from, int to,
+                             double[] gradient, double[] scores) {
+        int stride = numFeatures + 1;
+        double loss = 0.0;
+        
+        for (int r = from; r < to; r++) {
+            int i = rows == null ? r : rows[r];
+            double[] x = X[i];
+            
+            // Linear scores for every output
+            for (int k = 0; k < numOutputs; k++) {
+                int base = k * stride;
+                double z = coefficients[base + numFeatures];
+                for (int j = 0; j < numFeatures; j++) {
+                    z += coefficients[base + j] * x[j];
+                }
+                scores[k] = z;
+            }
+            
+            loss += toErrors(scores, y[i], numOutputs);
+            if (gradient == null) {
+                continue;
+            }
+            
+            // gradient += error * [x, 1]
+            for (int k = 0; k < numOutputs; k++) {
+                double error = scores[k];
+                if (error == 0.0) {
+                    continue;
+                }
+                int base = k * stride;
+                for (int j = 0; j < numFeatures; j++) {
+                    gradient[base + j] += error * x[j];
+                }
+                gradient[base + numFeatures] += error;
+            }
+        }
+        return loss;
+    }
+    
+    /**
+     * Turn summed loss/gradient over n rows into the mean plus L2 penalty
+     */
+    public double finish(double[] coefficients, double summedLoss, int n, double[] gradient) {
+        int stride = numFeatures + 1;
+        double loss = summedLoss / n;
+        double penalty = 0.0;
+        
+        for (int k = 0; k < numOutputs; k++) {
+            int base = k * stride;
+            for (int j = 0; j < numFeatures; j++) {
+                double w = coefficients[base + j];
+                gradient[base + j] = gradient[base + j] / n + l2Penalty * w;
+                penalty += w * w;
+            }
+            gradient[base + numFeatures] /= n;
+        }
+        return loss + 0.5 * l2Penalty * penalty;
+    }
+    
+    /**
+     * Replace the linear scores of one row with the errors (p - target)
+     * and return the row's log-loss
+     */
+    static double toErrors(double[] scores, int label, int numOutputs) {
+        if (numOutputs == 1) {
+            double z = scores[0];
+            double p = sigmoid(z);
+            scores[0] = p - label;
+            // log(1 + e^-z) or log(1 + e^z), computed stably
+            return label == 1 ? log1pExp(-z) : log1pExp(z);
+        }
+        
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k < numOutputs; k++) {
+            max = Math.max(max, scores[k]);
+        }
+        double sum = 0.0;
+        for (int k = 0; k < numOutputs; k++) {
+            scores[k] = Math.exp(scores[k] - max);
+            sum += scores[k];
+        }
+        double loss = -Math.log(Math.max(scores[label] / sum, 1e-300));
+        for (int k = 0; k < numOutputs; k++) {
+            scores[k] = scores[k] / sum - (k == label ? 1.0 : 0.0);
+        }
+        return loss;
+    }
+    
+    /**
+     * Sigmoid activation function
+     */
+    static double sigmoid(double z) {
+        // Prevent overflow
+        if (z > 500) return 1.0;
+        if (z < -500) return 0.0;
+        
+        return 1.0 / (1.0 + Math.exp(-z));
+    }
+    
+    /**
+     * log(1 + e^z) without overflow
+     */
+    static double log1pExp(double z) {
+        return z > 0 ? z + Math.log1p(Math.exp(-z)) : Math.log1p(Math.exp(z));
+    }
+}
@@ -11,14 +11,62 @@ import java.util.*;
  * Real-life analogy: Like finding a formula that calculates the probability
  * of hiring someone based on their age, salary, and experience
  * 
- * Uses gradient descent to learn the optimal coefficients
+ * Two classes use a single sigmoid output; more classes use a true
+ * multinomial (softmax) model with one weight vector per class.
+ * Coefficients are learned with L-BFGS (default), plain gradient descent,
+ * parallel mini-batch SGD/Adam for very large datasets, lock-free
+ * Hogwild SGD for high-dimensional sparse data, or coordinate descent
+ * with an L1 / elastic-net penalty for sparse models (feature selection).
+ * 
+ * Warm start: retrain() (or setWarmStart with another model) starts from
+ * the previous weights and normalization instead of random weights, so a
+ * periodic refresh on slightly changed data needs far fewer iterations.
  */
 public class LogisticRegressionClassifier {
     
-    private double[] weights;
-    private double bias;
+    /**
+     * Optimization method used by train()
+     */
+    public enum Solver {
+        GRADIENT_DESCENT,  // fixed learning rate, full batch
+        LBFGS,             // quasi-Newton with line search
+        MINI_BATCH_SGD,    // shuffled mini-batches, SGD or Adam (see MiniBatchTrainer)
+        HOGWILD,           // lock-free asynchronous SGD on sparse rows (see HogwildTrainer)
+        COORDINATE_DESCENT // L1 / elastic-net penalty (see CoordinateDescentSolver)
+    }
+    
+    // One block of (numFeatures + 1) coefficients per output: weights, then bias
+    // (see LogisticLoss for the layout)
+    private double[] coefficients;
+    private int numFeatures;
+    private int numOutputs;
+    
+    // Compact copy of the non-zero weights per output (coordinate descent only),
+    // so scoring touches just the selected features
+    private int[][] selectedFeatures;
+    private double[][] selectedWeights;
+    
+    // Min-max normalization learned at training time, reused for prediction
+    private double[] featureMin;
+    private double[] featureScale;
+    
     private double learningRate = 0.01;
     private int maxIterations = 1000;
+    private Solver solver = Solver.LBFGS;
+    private double tolerance = 1e-6;
+    private double l2Penalty = 1e-4;
+    private double elasticNetPenalty = 0.001;
+    private double l1Ratio = 1.0;
+    private MiniBatchTrainer miniBatchTrainer;
+    private HogwildTrainer hogwildTrainer;
+    private double validationFraction = 0.0;
+    private int patience = 5;
+    private int iterationsRun;
+    private boolean converged;
+    private String stopReason = "";
+    private WarmStart warmStart;
+    private boolean warmStarted;
+    
     private Dataset trainingData;
     private Map<Object, Integer> classMapping;
     private List<Object> classLabels;
@@ -30,55 +78,227 @@ public class LogisticRegressionClassifier {
         this.maxIterations = maxIterations;
     }
     
+    public void setSolver(Solver solver) {
+        this.solver = solver;
+    }
+    
+    /**
+     * Mini-batch settings used by Solver.MINI_BATCH_SGD
+     */
+    public void setMiniBatchTrainer(MiniBatchTrainer miniBatchTrainer) {
+        this.miniBatchTrainer = miniBatchTrainer;
+    }
+    
+    /**
+     * Gradient-norm tolerance for convergence
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+    
+    /**
+     * Hogwild settings used by Solver.HOGWILD
+     */
+    public void setHogwildTrainer(HogwildTrainer hogwildTrainer) {
+        this.hogwildTrainer = hogwildTrainer;
+    }
+    
+    /**
+     * Hold out this fraction of the training rows and stop gradient descent /
+     * mini-batch training once their loss has not improved for `patience`
+     * checks (0 disables the split; L-BFGS uses its own tolerance instead)
+     */
+    public void setValidationFraction(double validationFraction) {
+        this.validationFraction = validationFraction;
+    }
+    
+    public void setPatience(int patience) {
+        this.patience = patience;
+    }
+    
+    /**
+     * L2 penalty on the weights (0 disables it)
+     */
+    public void setL2Penalty(double l2Penalty) {
+        this.l2Penalty = l2Penalty;
+    }
+    
+    /**
+     * Penalty used by Solver.COORDINATE_DESCENT: penalty * (l1Ratio * |w|_1 +
+     * (1 - l1Ratio) / 2 * |w|^2). l1Ratio 1.0 is the lasso, 0.0 is ridge.
+     */
+    public void setElasticNet(double penalty, double l1Ratio) {
+        if (penalty < 0 || l1Ratio < 0 || l1Ratio > 1) {
+            throw new IllegalArgumentException("Elastic net needs penalty >= 0 and 0 <= l1Ratio <= 1");
+        }
+        this.elasticNetPenalty = penalty;
+        this.l1Ratio = l1Ratio;
+    }
+    
+    /**
+     * Start the next train() from this model's weights and normalization
+     * (null goes back to a cold start). Only that one train() is warm
+     * started; the snapshot is dropped once used. Ignored when the next
+     * dataset is not compatible: different feature count, new class
+     * labels, or a switch between HOGWILD and the min-max scaled solvers.
+     */
+    public void setWarmStart(LogisticRegressionClassifier previous) {
+        if (previous == null || previous.coefficients == null) {
+            warmStart = null;
+            return;
+        }
+        warmStart = new WarmStart(previous);
+    }
+    
+    /**
+     * Refresh the model on new data, starting from the current weights.
+     * Falls back to a normal train() if there is no compatible model yet.
+     */
+    public void retrain(Dataset dataset) {
+        setWarmStart(this);
+        train(dataset);
+    }
+    
     /**
      * Train the logistic regression model
      */
     public void train(Dataset dataset) {
         this.trainingData = dataset;
         
-        // Map class labels to integers (0, 1, 2, ...)
-        mapClassLabels(dataset);
+        numFeatures = dataset.getNumAttributes() - 1; // Exclude class attribute
+        WarmStart start = warmStart;
+        warmStart = null;   // applies to this train() only
+        warmStarted = start != null && start.accepts(dataset, numFeatures, solver);
         
-        // Initialize weights and bias
-        int numFeatures = dataset.getNumAttributes() - 1; // Exclude class attribute
-        weights = new double[numFeatures];
-        bias = 0.0;
+        // Map class labels to integers (0, 1, 2, ...), keeping the previous
+        // order when warm starting so the weight blocks still line up
+        if (warmStarted) {
+            classLabels = new ArrayList<>(start.classLabels);
+            classMapping = new HashMap<>();
+            for (int i = 0; i < classLabels.size(); i++) {
+                classMapping.put(classLabels.get(i), i);
+            }
+        } else {
+            mapClassLabels(dataset);
+        }
+        
+        numOutputs = classLabels.size() > 2 ? classLabels.size() : 1;
+        
+        int[] y = new int[dataset.getNumInstances()];
+        for (int i = 0; i < y.length; i++) {
+            y[i] = classMapping.get(dataset.getInstance(i).getClassValue());
+        }
+        
+        // Initialize weights randomly (small values), biases at zero.
+        // Coordinate descent starts from all-zero weights so that features
+        // only enter the model when they earn it.
+        coefficients = new double[numOutputs * (numFeatures + 1)];
+        selectedFeatures = null;
+        selectedWeights = null;
+        if (warmStarted) {
+            System.arraycopy(start.coefficients, 0, coefficients, 0, coefficients.length);
+            featureMin = start.featureMin.clone();
+            featureScale = start.featureScale.clone();
+        } else if (solver != Solver.COORDINATE_DESCENT) {
+            Random random = new Random(42); // Fixed seed for reproducibility
+            for (int k = 0; k < numOutputs; k++) {
+                for (int j = 0; j < numFeatures; j++) {
+                    coefficients[k * (numFeatures + 1) + j] = random.nextGaussian() * 0.01;
+                }
+            }
+        }
         
-        // Initialize weights randomly (small values)
-        Random random = new Random(42); // Fixed seed for reproducibility
-        for (int i = 0; i < weights.length; i++) {
-            weights[i] = random.nextGaussian() * 0.01;
+        if (solver == Solver.HOGWILD) {
+            trainHogwild(dataset, y);
+            return;
         }
         
         // Prepare training data
-        double[][] X = new double[dataset.getNumInstances()][numFeatures];
-        int[] y = new int[dataset.getNumInstances()];
+        double[][] X = extractFeatures(dataset);
         
-        for (int i = 0; i < dataset.getNumInstances(); i++) {
-            Instance instance = dataset.getInstance(i);
+        // Normalize features (parameters are kept for prediction; a warm
+        // start keeps the previous ones, which its weights are expressed in)
+        if (!warmStarted) {
+            fitNormalization(X);
+        }
+        for (double[] row : X) {
+            normalize(row);
+        }
+        
+        if (X.length == 0) {
+            return;
+        }
+        
+        // Optional held-out validation rows for the first-order solvers
+        LogisticLoss validation = null;
+        int numValidation = (int) (X.length * validationFraction);
+        if (solver != Solver.LBFGS && solver != Solver.COORDINATE_DESCENT && numValidation > 0 && numValidation < X.length) {
+            int[] order = new int[X.length];
+            for (int i = 0; i < order.length; i++) {
+                order[i] = i;
+            }
+            Random shuffle = new Random(7);
+            for (int i = order.length - 1; i > 0; i--) {
+                int j = shuffle.nextInt(i + 1);
+                int tmp = order[i];
+                order[i] = order[j];
+                order[j] = tmp;
+            }
             
-            // Extract features
-            for (int j = 0; j < numFeatures; j++) {
-                Object value = instance.getValue(j);
-                if (value instanceof Double) {
-                    X[i][j] = (Double) value;
+            double[][] validationX = new double[numValidation][];
+            int[] validationY = new int[numValidation];
+            double[][] trainX = new double[X.length - numValidation][];
+            int[] trainY = new int[X.length - numValidation];
+            for (int i = 0; i < order.length; i++) {
+                if (i < numValidation) {
+                    validationX[i] = X[order[i]];
+                    validationY[i] = y[order[i]];
                 } else {
-                    X[i][j] = 0.0; // Handle non-numeric values
+                    trainX[i - numValidation] = X[order[i]];
+                    trainY[i - numValidation] = y[order[i]];
                 }
             }
-            
-            // Extract class label
-            y[i] = classMapping.get(instance.getClassValue());
+            validation = new LogisticLoss(validationX, validationY, numOutputs, 0.0);
+            X = trainX;
+            y = trainY;
         }
         
-        // Normalize features
-        normalizeFeatures(X);
+        if (solver == Solver.COORDINATE_DESCENT) {
+            CoordinateDescentSolver cd = new CoordinateDescentSolver(elasticNetPenalty, l1Ratio, maxIterations, tolerance);
+            cd.train(X, y, numOutputs, coefficients);
+            iterationsRun = cd.getIterations();
+            converged = cd.hasConverged();
+            stopReason = converged ? "objective change below tolerance" : "iteration limit";
+            compactWeights();
+            return;
+        }
         
-        // Train using gradient descent
-        if (classLabels.size() == 2) {
-            trainBinary(X, y);
-        } else {
-            trainMulticlass(X, y);
+        LogisticLoss loss = new LogisticLoss(X, y, numOutputs, l2Penalty);
+        EarlyStopping stopping = new EarlyStopping(tolerance, patience, validation);
+        switch (solver) {
+            case GRADIENT_DESCENT:
+                trainGradientDescent(loss, stopping);
+                break;
+            case MINI_BATCH_SGD:
+                if (miniBatchTrainer == null) {
+                    // Adam at the classifier's learning rate, one epoch per iteration
+                    miniBatchTrainer = new MiniBatchTrainer(learningRate, maxIterations, MiniBatchTrainer.DEFAULT_BATCH_SIZE,
+                                                            MiniBatchTrainer.Update.ADAM, MiniBatchTrainer.Schedule.CONSTANT);
+                }
+                miniBatchTrainer.train(loss, coefficients, stopping);
+                stopping.restoreBest(coefficients);
+                iterationsRun = miniBatchTrainer.getEpochsRun();
+                stopReason = stopping.getReason();
+                converged = !"iteration limit".equals(stopReason);
+                break;
+            case LBFGS:
+            default:
+                LBFGSOptimizer optimizer = new LBFGSOptimizer(10, maxIterations, tolerance);
+                optimizer.minimize(loss::evaluate, coefficients);
+                iterationsRun = optimizer.getIterations();
+                converged = optimizer.hasConverged();
+                stopReason = converged ? "gradient norm below tolerance" : "iteration limit";
+                break;
         }
     }
     
@@ -86,7 +306,7 @@ public class LogisticRegressionClassifier {
      * Make prediction for new instance
      */
     public Object predict(Instance instance) {
-        if (weights == null) {
+        if (coefficients == null) {
             return null;
         }
         
@@ -110,177 +330,247 @@ public class LogisticRegressionClassifier {
      * Get prediction probabilities for all classes
      */
     public double[] getPredictionProbabilities(Instance instance) {
-        if (weights == null) {
+        if (coefficients == null) {
             return new double[0];
         }
         
-        // Extract and normalize features
-        double[] features = new double[weights.length];
-        for (int i = 0; i < weights.length; i++) {
-            Object value = instance.getValue(i);
-            if (value instanceof Double) {
-                features[i] = (Double) value;
-            } else {
-                features[i] = 0.0;
-            }
+        double[] scores = selectedFeatures != null ? sparseScores(instance) : denseScores(instance);
+        
+        if (numOutputs == 1) {
+            // Binary classification
+            double prob1 = LogisticLoss.sigmoid(scores[0]);
+            return classLabels.size() == 2 ? new double[]{1.0 - prob1, prob1} : new double[]{1.0};
         }
         
-        // Apply same normalization as training
-        // (In a full implementation, we'd store normalization parameters)
+        // Multiclass - softmax over one score per class
+        double max = Double.NEGATIVE_INFINITY;
+        for (int c = 0; c < numOutputs; c++) {
+            max = Math.max(max, scores[c]);
+        }
         
-        if (classLabels.size() == 2) {
-            // Binary classification
-            double z = bias;
-            for (int i = 0; i < weights.length; i++) {
-                z += weights[i] * features[i];
+        double sum = 0.0;
+        for (int c = 0; c < numOutputs; c++) {
+            scores[c] = Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+        for (int c = 0; c < numOutputs; c++) {
+            scores[c] /= sum;
+        }
+        return scores;
+    }
+    
+    /**
+     * One linear score per output, using every feature
+     */
+    private double[] denseScores(Instance instance) {
+        // Extract and normalize features the same way as in training
+        double[] features = new double[numFeatures];
+        for (int i = 0; i < numFeatures; i++) {
+            Object value = instance.getValue(i);
+            features[i] = value instanceof Double ? (Double) value : 0.0;
+        }
+        normalize(features);
+        
+        int stride = numFeatures + 1;
+        double[] scores = new double[numOutputs];
+        for (int c = 0; c < numOutputs; c++) {
+            int base = c * stride;
+            double z = coefficients[base + numFeatures];
+            for (int i = 0; i < numFeatures; i++) {
+                z += coefficients[base + i] * features[i];
             }
-            
-            double prob1 = sigmoid(z);
-            return new double[]{1.0 - prob1, prob1};
-        } else {
-            // Multiclass - simplified one-vs-all approach
-            double[] scores = new double[classLabels.size()];
-            
-            for (int c = 0; c < classLabels.size(); c++) {
-                double z = bias;
-                for (int i = 0; i < weights.length; i++) {
-                    z += weights[i] * features[i];
+            scores[c] = z;
+        }
+        return scores;
+    }
+    
+    /**
+     * One linear score per output, reading and normalizing only the
+     * features with a non-zero weight
+     */
+    private double[] sparseScores(Instance instance) {
+        int stride = numFeatures + 1;
+        double[] scores = new double[numOutputs];
+        for (int c = 0; c < numOutputs; c++) {
+            int[] features = selectedFeatures[c];
+            double[] weights = selectedWeights[c];
+            double z = coefficients[c * stride + numFeatures];
+            for (int p = 0; p < features.length; p++) {
+                int j = features[p];
+                Object value = instance.getValue(j);
+                double x = value instanceof Double ? (Double) value : 0.0;
+                z += weights[p] * (x - featureMin[j]) * featureScale[j];
+            }
+            scores[c] = z;
+        }
+        return scores;
+    }
+    
+    /**
+     * Store the non-zero weights of each output as (feature index, weight) pairs
+     */
+    private void compactWeights() {
+        int stride = numFeatures + 1;
+        selectedFeatures = new int[numOutputs][];
+        selectedWeights = new double[numOutputs][];
+        for (int c = 0; c < numOutputs; c++) {
+            int base = c * stride;
+            int count = 0;
+            for (int j = 0; j < numFeatures; j++) {
+                if (coefficients[base + j] != 0.0) {
+                    count++;
                 }
-                scores[c] = sigmoid(z);
             }
-            
-            // Normalize to probabilities
-            double sum = 0.0;
-            for (double score : scores) {
-                sum += score;
+            int[] features = new int[count];
+            double[] weights = new double[count];
+            int p = 0;
+            for (int j = 0; j < numFeatures; j++) {
+                if (coefficients[base + j] != 0.0) {
+                    features[p] = j;
+                    weights[p] = coefficients[base + j];
+                    p++;
+                }
             }
-            
-            if (sum > 0) {
-                for (int i = 0; i < scores.length; i++) {
-                    scores[i] /= sum;
+            selectedFeatures[c] = features;
+            selectedWeights[c] = weights;
+        }
+    }
+    
+    /**
+     * Number of features with a non-zero weight in at least one output
+     */
+    public int getNumSelectedFeatures() {
+        if (coefficients == null) {
+            return 0;
+        }
+        int stride = numFeatures + 1;
+        int count = 0;
+        for (int j = 0; j < numFeatures; j++) {
+            for (int c = 0; c < numOutputs; c++) {
+                if (coefficients[c * stride + j] != 0.0) {
+                    count++;
+                    break;
                 }
             }
-            
-            return scores;
         }
+        return count;
     }
     
     /**
-     * Train binary classification model
+     * Full-batch gradient descent with a fixed learning rate, stopping early
+     * once the loss (computed in the same pass as the gradient) converges
      */
-    private void trainBinary(double[][] X, int[] y) {
-        int numSamples = X.length;
-        int numFeatures = X[0].length;
+    private void trainGradientDescent(LogisticLoss loss, EarlyStopping stopping) {
+        double[] gradient = new double[coefficients.length];
         
-        for (int iter = 0; iter < maxIterations; iter++) {
-            double[] gradientW = new double[numFeatures];
-            double gradientB = 0.0;
+        converged = false;
+        int iter = 0;
+        while (iter < maxIterations) {
+            double cost = loss.evaluate(coefficients, gradient);
             
-            // Calculate gradients
-            for (int i = 0; i < numSamples; i++) {
-                double z = bias;
-                for (int j = 0; j < numFeatures; j++) {
-                    z += weights[j] * X[i][j];
-                }
-                
-                double prediction = sigmoid(z);
-                double error = prediction - y[i];
-                
-                // Update gradients
-                gradientB += error;
-                for (int j = 0; j < numFeatures; j++) {
-                    gradientW[j] += error * X[i][j];
-                }
+            double gradientNorm = 0.0;
+            for (double g : gradient) {
+                gradientNorm += g * g;
             }
-            
-            // Update weights and bias
-            bias -= learningRate * gradientB / numSamples;
-            for (int j = 0; j < numFeatures; j++) {
-                weights[j] -= learningRate * gradientW[j] / numSamples;
+            if (stopping.update(cost, Math.sqrt(gradientNorm), coefficients)) {
+                converged = true;
+                break;
             }
             
-            // Optional: Check for convergence
-            if (iter % 100 == 0) {
-                double cost = calculateCost(X, y);
-                // System.out.println("Iteration " + iter + ", Cost: " + cost);
+            for (int j = 0; j < coefficients.length; j++) {
+                coefficients[j] -= learningRate * gradient[j];
             }
+            iter++;
         }
+        
+        stopping.restoreBest(coefficients);
+        iterationsRun = iter;
+        stopReason = stopping.getReason();
     }
     
     /**
-     * Train multiclass model (simplified one-vs-all)
+     * Hogwild training on a sparse (CSR) copy of the features. Features are
+     * scaled by 1/max|x| instead of min-max so that zeros stay zeros.
      */
-    private void trainMulticlass(double[][] X, int[] y) {
-        // For simplicity, train for most common class vs others
-        Map<Integer, Integer> classCounts = new HashMap<>();
-        for (int label : y) {
-            classCounts.put(label, classCounts.getOrDefault(label, 0) + 1);
-        }
-        
-        int targetClass = 0;
-        int maxCount = 0;
-        for (Map.Entry<Integer, Integer> entry : classCounts.entrySet()) {
-            if (entry.getValue() > maxCount) {
-                maxCount = entry.getValue();
-                targetClass = entry.getKey();
+    private void trainHogwild(Dataset dataset, int[] y) {
+        int n = dataset.getNumInstances();
+        double[] maxAbs = new double[numFeatures];
+        
+        // Pass 1: non-zeros per row and max |x| per feature
+        int[] rowStart = new int[n + 1];
+        for (int i = 0; i < n; i++) {
+            Instance instance = dataset.getInstance(i);
+            int nonZeros = 0;
+            for (int j = 0; j < numFeatures; j++) {
+                Object value = instance.getValue(j);
+                if (value instanceof Double && (Double) value != 0.0) {
+                    nonZeros++;
+                    maxAbs[j] = Math.max(maxAbs[j], Math.abs((Double) value));
+                }
+            }
+            rowStart[i + 1] = rowStart[i] + nonZeros;
+        }
+        if (!warmStarted) {
+            featureMin = new double[numFeatures];
+            featureScale = new double[numFeatures];
+            for (int j = 0; j < numFeatures; j++) {
+                featureScale[j] = maxAbs[j] > 0 ? 1.0 / maxAbs[j] : 1.0;
             }
         }
         
-        // Convert to binary problem: targetClass vs others
-        int[] binaryY = new int[y.length];
-        for (int i = 0; i < y.length; i++) {
-            binaryY[i] = (y[i] == targetClass) ? 1 : 0;
+        // Pass 2: fill indices and scaled values
+        int[] indices = new int[rowStart[n]];
+        double[] values = new double[rowStart[n]];
+        for (int i = 0; i < n; i++) {
+            Instance instance = dataset.getInstance(i);
+            int p = rowStart[i];
+            for (int j = 0; j < numFeatures; j++) {
+                Object value = instance.getValue(j);
+                if (value instanceof Double && (Double) value != 0.0) {
+                    indices[p] = j;
+                    values[p] = (Double) value * featureScale[j];
+                    p++;
+                }
+            }
         }
         
-        trainBinary(X, binaryY);
+        if (hogwildTrainer == null) {
+            hogwildTrainer = new HogwildTrainer();
+        }
+        hogwildTrainer.setL2Penalty(l2Penalty);
+        EarlyStopping stopping = new EarlyStopping(tolerance, patience, null);
+        hogwildTrainer.train(rowStart, indices, values, y, numFeatures, numOutputs, coefficients, stopping);
+        iterationsRun = hogwildTrainer.getEpochsRun();
+        stopReason = stopping.getReason();
+        converged = !"iteration limit".equals(stopReason);
     }
     
     /**
-     * Sigmoid activation function
+     * Copy features into a dense matrix (non-numeric values become 0)
      */
-    private double sigmoid(double z) {
-        // Prevent overflow
-        if (z > 500) return 1.0;
-        if (z < -500) return 0.0;
+    private double[][] extractFeatures(Dataset dataset) {
+        double[][] X = new double[dataset.getNumInstances()][numFeatures];
         
-        return 1.0 / (1.0 + Math.exp(-z));
-    }
-    
-    /**
-     * Calculate cost (log loss)
-     */
-    private double calculateCost(double[][] X, int[] y) {
-        double cost = 0.0;
-        int numSamples = X.length;
-        
-        for (int i = 0; i < numSamples; i++) {
-            double z = bias;
-            for (int j = 0; j < weights.length; j++) {
-                z += weights[j] * X[i][j];
-            }
-            
-            double prediction = sigmoid(z);
-            
-            // Log loss
-            if (y[i] == 1) {
-                cost -= Math.log(Math.max(prediction, 1e-15));
-            } else {
-                cost -= Math.log(Math.max(1 - prediction, 1e-15));
+        for (int i = 0; i < X.length; i++) {
+            Instance instance = dataset.getInstance(i);
+            for (int j = 0; j < numFeatures; j++) {
+                Object value = instance.getValue(j);
+                X[i][j] = value instanceof Double ? (Double) value : 0.0;
             }
         }
-        
-        return cost / numSamples;
+        return X;
     }
     
     /**
-     * Normalize features (simple min-max normalization)
+     * Learn simple min-max normalization parameters
      */
-    private void normalizeFeatures(double[][] X) {
-        int numFeatures = X[0].length;
+    private void fitNormalization(double[][] X) {
+        featureMin = new double[numFeatures];
+        featureScale = new double[numFeatures];
         
         for (int j = 0; j < numFeatures; j++) {
-            double min = Double.MAX_VALUE;
-            double max = Double.MIN_VALUE;
+            double min = Double.POSITIVE_INFINITY;
+            double max = Double.NEGATIVE_INFINITY;
             
             // Find min and max
             for (int i = 0; i < X.length; i++) {
@@ -288,13 +578,19 @@ public class LogisticRegressionClassifier {
                 max = Math.max(max, X[i][j]);
             }
             
-            // Normalize
+            // Constant columns are left unscaled
             double range = max - min;
-            if (range > 0) {
-                for (int i = 0; i < X.length; i++) {
-                    X[i][j] = (X[i][j] - min) / range;
-                }
-            }
+            featureMin[j] = range > 0 ? min : 0.0;
+            featureScale[j] = range > 0 ? 1.0 / range : 1.0;
+        }
+    }
+    
+    /**
+     * Apply the stored min-max normalization to one row in place
+     */
+    private void normalize(double[] features) {
+        for (int j = 0; j < numFeatures; j++) {
+            features[j] = (features[j] - featureMin[j]) * featureScale[j];
         }
     }
     
@@ -315,6 +611,20 @@ public class LogisticRegressionClassifier {
         }
     }
     
+    /**
+     * Whether the last training run started from a previous model
+     */
+    public boolean isWarmStarted() {
+        return warmStarted;
+    }
+    
+    /**
+     * Iterations used by the last training run
+     */
+    public int getIterationsRun() {
+        return iterationsRun;
+    }
+    
     /**
      * Get model summary for display
      */
@@ -322,22 +632,84 @@ public class LogisticRegressionClassifier {
         StringBuilder sb = new StringBuilder();
         sb.append("=== Logistic Regression Model Summary ===\n");
         
-        if (weights != null) {
-            sb.append("Bias: ").append(String.format("%.4f", bias)).append("\n");
-            sb.append("Feature Weights:\n");
-            
-            for (int i = 0; i < weights.length; i++) {
-                String attrName = trainingData.getAttribute(i).getName();
-                sb.append("  ").append(attrName).append(": ")
-                  .append(String.format("%.4f", weights[i])).append("\n");
+        if (coefficients != null) {
+            int stride = numFeatures + 1;
+            for (int k = 0; k < numOutputs; k++) {
+                int base = k * stride;
+                if (numOutputs > 1) {
+                    sb.append("Class: ").append(classLabels.get(k)).append("\n");
+                }
+                sb.append("Bias: ").append(String.format("%.4f", coefficients[base + numFeatures])).append("\n");
+                sb.append("Feature Weights:\n");
+                
+                for (int i = 0; i < numFeatures; i++) {
+                    String attrName = trainingData.getAttribute(i).getName();
+                    sb.append("  ").append(attrName).append(": ")
+                      .append(String.format("%.4f", coefficients[base + i])).append("\n");
+                }
             }
             
-            sb.append("Learning Rate: ").append(learningRate).append("\n");
+            sb.append("Model: ").append(numOutputs > 1 ? "Multinomial (softmax)" : "Binary (sigmoid)").append("\n");
+            sb.append("Solver: ").append(solver).append("\n");
+            if (solver == Solver.GRADIENT_DESCENT) {
+                sb.append("Learning Rate: ").append(learningRate).append("\n");
+            } else if (solver == Solver.MINI_BATCH_SGD && miniBatchTrainer != null) {
+                sb.append("Mini-batch: ").append(miniBatchTrainer.getDescription()).append("\n");
+            } else if (solver == Solver.HOGWILD && hogwildTrainer != null) {
+                sb.append("Hogwild: ").append(hogwildTrainer.getDescription())
+                  .append(String.format(", %.0f rows/s", hogwildTrainer.getRowsPerSecond())).append("\n");
+            } else if (solver == Solver.COORDINATE_DESCENT) {
+                sb.append("Elastic Net: penalty ").append(elasticNetPenalty)
+                  .append(", L1 ratio ").append(l1Ratio).append("\n");
+            }
+            sb.append("Selected Features: ").append(getNumSelectedFeatures())
+              .append(" of ").append(numFeatures).append("\n");
             sb.append("Max Iterations: ").append(maxIterations).append("\n");
+            sb.append("Iterations Run: ").append(iterationsRun)
+              .append(converged ? " (converged)" : "").append("\n");
+            sb.append("Stopped By: ").append(stopReason).append("\n");
+            sb.append("Warm Start: ").append(warmStarted ? "yes" : "no").append("\n");
         } else {
             sb.append("Model not trained yet.\n");
         }
         
         return sb.toString();
     }
-}
\ No newline at end of file
+    
+    /**
+     * Snapshot of a trained model used to initialize the next training run
+     */
+    private static class WarmStart {
+        private final double[] coefficients;
+        private final double[] featureMin;
+        private final double[] featureScale;
+        private final List<Object> classLabels;
+        private final int numFeatures;
+        private final boolean sparseScaling;
+        
+        WarmStart(LogisticRegressionClassifier model) {
+            this.coefficients = model.coefficients.clone();
+            this.featureMin = model.featureMin.clone();
+            this.featureScale = model.featureScale.clone();
+            this.classLabels = new ArrayList<>(model.classLabels);
+            this.numFeatures = model.numFeatures;
+            this.sparseScaling = model.solver == Solver.HOGWILD;
+        }
+        
+        /**
+         * Same features, no unseen class labels and the same kind of scaling
+         */
+        boolean accepts(Dataset dataset, int numFeatures, Solver solver) {
+            if (numFeatures != this.numFeatures || sparseScaling != (solver == Solver.HOGWILD)) {
+                return false;
+            }
+            Set<Object> known = new HashSet<>(classLabels);
+            for (int i = 0; i < dataset.getNumInstances(); i++) {
+                if (!known.contains(dataset.getInstance(i).getClassValue())) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+package core;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * MINI-BATCH TRAINER
+ * 
+ * Purpose: Train logistic regression with mini-batch SGD or Adam
+ * Think of it like: Instead of reading the whole book before every
+ * correction, read one page at a time and correct as you go
+ * 
+ * How it works:
+ * 1. Shuffle the row order once
+ * 2. Walk through it in batches; each batch gradient is split across a
+ *    fork-join pool, every worker adding into its own accumulator
+ * 3. Reduce the accumulators and take one SGD or Adam step
+ * 4. Adjust the learning rate per epoch according to the schedule
+ */
+public class MiniBatchTrainer {
+    
+    /**
+     * Step rule
+     */
+    public enum Update {
+        SGD,   // plain step along the negative gradient
+        ADAM   // per-coefficient adaptive step sizes with momentum
+    }
+    
+    /**
+     * Learning rate as a function of the epoch number e (of E)
+     */
+    public enum Schedule {
+        CONSTANT,         // lr
+        INVERSE_SCALING,  // lr / sqrt(1 + e)
+        STEP_DECAY,       // lr halved every 10 epochs
+        COSINE            // lr * (1 + cos(pi * e / E)) / 2
+    }
+    
+    public static final int DEFAULT_BATCH_SIZE = 256;
+    
+    // Rows per worker below which a batch is not split further (small
+    // enough that a default batch spreads over 4 cores)
+    private static final int MIN_ROWS_PER_TASK = 64;
+    
+    private static final double BETA1 = 0.9;
+    private static final double BETA2 = 0.999;
+    private static final double EPSILON = 1e-8;
+    
+    private double learningRate = 0.01;
+    private int epochs = 20;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private Update update = Update.ADAM;
+    private Schedule schedule = Schedule.CONSTANT;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long seed = 42;
+    
+    private int epochsRun;
+    private double lastEpochLoss = Double.NaN;
+    
+    public MiniBatchTrainer() {}
+    
+    public MiniBatchTrainer(double learningRate, int epochs, int batchSize,
+                            Update update, Schedule schedule) {
+        this.learningRate = learningRate;
+        this.epochs = epochs;
+        this.batchSize = batchSize;
+        this.update = update;
+        this.schedule = schedule;
+    }
+    
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Optimize the coefficients in place for the configured number of epochs
+     */
+    public void train(LogisticLoss loss, double[] coefficients) {
+        train(loss, coefficients, null);
+    }
+    
+    /**
+     * Optimize the coefficients in place, checking the stopping rule
+     * (if not null) after every epoch
+     */
+    public void train(LogisticLoss loss, double[] coefficients, EarlyStopping stopping) {
+        int n = loss.getNumSamples();
+        int numCoefficients = coefficients.length;
+        
+        // Shuffle once
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        Random random = new Random(seed);
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = order[i];
+            order[i] = order[j];
+            order[j] = tmp;
+        }
+        
+        // One accumulator and one task per worker, reused for every batch
+        int workers = Math.max(1, Math.min(parallelism, batchSize / MIN_ROWS_PER_TASK));
+        BatchTask[] workerTasks = new BatchTask[workers];
+        for (int t = 0; t < workers; t++) {
+            workerTasks[t] = new BatchTask(loss, coefficients, order, numCoefficients);
+        }
+        BatchSplit split = new BatchSplit(workerTasks);
+        double[] gradient = new double[numCoefficients];
+        double[] moment1 = update == Update.ADAM ? new double[numCoefficients] : null;
+        double[] moment2 = update == Update.ADAM ? new double[numCoefficients] : null;
+        
+        ForkJoinPool pool = workers > 1 ? new ForkJoinPool(workers) : null;
+        long step = 0;
+        epochsRun = 0;
+        
+        try {
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                double rate = learningRateAt(epoch);
+                double epochLoss = 0.0;
+                
+                for (int from = 0; from < n; from += batchSize) {
+                    int to = Math.min(from + batchSize, n);
+                    int batchRows = to - from;
+                    
+                    // Batch gradient: split rows over the workers
+                    int tasks = Math.max(1, Math.min(workers, batchRows / MIN_ROWS_PER_TASK));
+                    for (int t = 0; t < tasks; t++) {
+                        workerTasks[t].setRows(from + (int) ((long) batchRows * t / tasks),
+                                               from + (int) ((long) batchRows * (t + 1) / tasks));
+                    }
+                    if (tasks == 1 || pool == null) {
+                        workerTasks[0].compute();
+                    } else {
+                        split.reinitialize();
+                        split.tasks = tasks;
+                        pool.invoke(split);
+                    }
+                    
+                    // Reduce the per-worker accumulators
+                    double summedLoss = 0.0;
+                    System.arraycopy(workerTasks[0].gradient, 0, gradient, 0, numCoefficients);
+                    summedLoss += workerTasks[0].batchLoss;
+                    for (int t = 1; t < tasks; t++) {
+                        double[] partial = workerTasks[t].gradient;
+                        for (int j = 0; j < numCoefficients; j++) {
+                            gradient[j] += partial[j];
+                        }
+                        summedLoss += workerTasks[t].batchLoss;
+                    }
+                    epochLoss += loss.finish(coefficients, summedLoss, batchRows, gradient) * batchRows;
+                    
+                    step++;
+                    applyStep(coefficients, gradient, moment1, moment2, rate, step);
+                }
+                
+                epochsRun++;
+                lastEpochLoss = epochLoss / n;
+                if (stopping != null && stopping.update(lastEpochLoss, Double.NaN, coefficients)) {
+                    break;
+                }
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+    
+    /**
+     * One worker's share of a batch: adds the gradient of rows
+     * [start, end) into its own accumulator. Reused for every batch.
+     */
+    private static class BatchTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final LogisticLoss loss;
+        private final double[] coefficients;
+        private final int[] order;
+        private final double[] gradient;
+        private final double[] scratch;
+        private int start;
+        private int end;
+        private double batchLoss;
+        
+        BatchTask(LogisticLoss loss, double[] coefficients, int[] order, int numCoefficients) {
+            this.loss = loss;
+            this.coefficients = coefficients;
+            this.order = order;
+            this.gradient = new double[numCoefficients];
+            this.scratch = new double[numCoefficients];
+        }
+        
+        void setRows(int start, int end) {
+            this.start = start;
+            this.end = end;
+        }
+        
+        @Override
+        protected void compute() {
+            Arrays.fill(gradient, 0.0);
+            batchLoss = loss.accumulate(coefficients, order, start, end, gradient, scratch);
+        }
+    }
+    
+    /**
+     * Runs the first tasks worker tasks of a batch: forks all but one,
+     * computes that one itself, then joins the rest
+     */
+    private static class BatchSplit extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+        
+        private final BatchTask[] workerTasks;
+        private int tasks;
+        
+        BatchSplit(BatchTask[] workerTasks) {
+            this.workerTasks = workerTasks;
+        }
+        
+        @Override
+        protected void compute() {
+            for (int t = 1; t < tasks; t++) {
+                workerTasks[t].reinitialize();
+                workerTasks[t].fork();
+            }
+            workerTasks[0].compute();
+            for (int t = 1; t < tasks; t++) {
+                workerTasks[t].join();
+            }
+        }
+    }
+    
+    /**
+     * One SGD or Adam update
+     */
+    private void applyStep(double[] coefficients, double[] gradient,
+                           double[] moment1, double[] moment2, double rate, long step) {
+        if (update == Update.SGD) {
+            for (int j = 0; j < coefficients.length; j++) {
+                coefficients[j] -= rate * gradient[j];
+            }
+            return;
+        }
+        
+        double correction1 = 1.0 - Math.pow(BETA1, step);
+        double correction2 = 1.0 - Math.pow(BETA2, step);
+        for (int j = 0; j < coefficients.length; j++) {
+            double g = gradient[j];
+            moment1[j] = BETA1 * moment1[j] + (1 - BETA1) * g;
+            moment2[j] = BETA2 * moment2[j] + (1 - BETA2) * g * g;
+            double mHat = moment1[j] / correction1;
+            double vHat = moment2[j] / correction2;
+            coefficients[j] -= rate * mHat / (Math.sqrt(vHat) + EPSILON);
+        }
+    }
+    
+    /**
+     * Learning rate for the given epoch
+     */
+    private double learningRateAt(int epoch) {
+        switch (schedule) {
+            case INVERSE_SCALING:
+                return learningRate / Math.sqrt(1.0 + epoch);
+            case STEP_DECAY:
+                return learningRate * Math.pow(0.5, epoch / 10);
+            case COSINE:
+                return learningRate * 0.5 * (1.0 + Math.cos(Math.PI * epoch / epochs));
+            case CONSTANT:
+            default:
+                return learningRate;
+        }
+    }
+    
+    public int getEpochsRun() {
+        return epochsRun;
+    }
+    
+    /**
+     * Mean training loss seen during the last epoch (computed from the
+     * batch gradients, so it costs no extra pass)
+     */
+    public double getLastEpochLoss() {
+        return lastEpochLoss;
+    }
+    
+    public String getDescription() {
+        return update + ", batch size " + batchSize + ", " + schedule +
+               " schedule, learning rate " + learningRate;
+    }
+}
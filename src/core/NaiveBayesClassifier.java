@@ -1,6 +1,8 @@
 package core;
 
 import java.util.*;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 /**
  * NAIVE BAYES CLASSIFIER
@@ -13,215 +15,635 @@ import java.util.*;
  * 
  * "Naive" because it assumes features are independent
  * (e.g., assumes age and salary don't affect each other)
+ * 
+ * Likelihoods per column:
+ * - numeric columns: Gaussian (default) or multinomial (for count data)
+ * - categorical columns: per-class count table over the column's values,
+ *   with Laplace (add-alpha) smoothing
  */
 public class NaiveBayesClassifier {
     
-    private Map<Object, Double> classProbabilities;
-    private Map<Object, Map<Integer, GaussianStats>> featureStats;
+    /**
+     * How numeric columns are modelled
+     */
+    public enum NumericLikelihood {
+        GAUSSIAN,     // continuous values: per-class mean and variance
+        MULTINOMIAL   // non-negative counts: per-class share of the total count
+    }
+    
+    private static final double SQRT_TWO_PI = Math.sqrt(2 * Math.PI);
+    private static final double LOG_MIN_DENSITY = Math.log(1e-10);
+    // Below this a density computed as exp() would underflow to 0
+    private static final double LOG_UNDERFLOW = Math.log(Double.MIN_VALUE);
+    
+    private final NumericLikelihood numericLikelihood;
+    private final double alpha;
     private Dataset trainingData;
     
+    // Sufficient statistics, filled in one pass over the data.
+    // Per-(class, attribute) cells live at [classIndex * numFeatures + attrIndex].
+    private List<Object> classLabels;
+    private Map<Object, Integer> classIndex;
+    private long[] classCounts;
+    private double[] featureCounts;
+    private double[] featureMeans;
+    private double[] featureM2;
+    private boolean[] categoricalFeatures;
+    private int numFeatures;
+    private long totalInstances;
+    
+    // Categorical columns: value dictionary per attribute (null for numeric
+    // attributes) and per-cell counts indexed by dictionary code
+    private List<Map<Object, Integer>> categoryCodes;
+    private List<List<Object>> categoryValues;
+    private double[][] categoryCounts;
+    
+    // Scoring tables, rebuilt from the statistics at the end of every
+    // train, partialFit and merge and swapped in whole, so prediction only
+    // reads and concurrent predict calls never see a half-built table
+    private volatile Model model = new Model(Collections.emptyList(), 0, new int[0], new int[0], 0);
+    
+    /**
+     * Immutable scoring tables built from the statistics, same cell layout
+     */
+    private static final class Model {
+        final List<Object> classLabels;
+        final double[] logPriors;
+        final double[] gaussMeans;
+        final double[] gaussInvTwoVar;
+        final double[] gaussLogNorm;
+        final double[] multinomialLogTheta;
+        
+        // Categorical log probabilities: one row of width categoryWidth per class,
+        // attribute a occupies [categoryOffsets[a], categoryOffsets[a] + cardinality],
+        // the last slot being the probability of a value never seen in training
+        final double[] categoryLogProbs;
+        final int[] categoryOffsets;
+        final int[] categoryCardinality;
+        final int categoryWidth;
+        
+        Model(List<Object> classLabels, int numFeatures, int[] categoryOffsets, int[] categoryCardinality,
+              int categoryWidth) {
+            int numClasses = classLabels.size();
+            this.classLabels = Collections.unmodifiableList(new ArrayList<>(classLabels));
+            this.logPriors = new double[numClasses];
+            this.gaussMeans = new double[numClasses * numFeatures];
+            this.gaussInvTwoVar = new double[numClasses * numFeatures];
+            this.gaussLogNorm = new double[numClasses * numFeatures];
+            this.multinomialLogTheta = new double[numClasses * numFeatures];
+            this.categoryLogProbs = new double[numClasses * categoryWidth];
+            this.categoryOffsets = categoryOffsets;
+            this.categoryCardinality = categoryCardinality;
+            this.categoryWidth = categoryWidth;
+        }
+    }
+    
     public NaiveBayesClassifier() {
-        this.classProbabilities = new HashMap<>();
-        this.featureStats = new HashMap<>();
+        this(NumericLikelihood.GAUSSIAN, 1.0);
+    }
+    
+    public NaiveBayesClassifier(NumericLikelihood numericLikelihood, double alpha) {
+        this.numericLikelihood = numericLikelihood;
+        this.alpha = alpha;
+        this.classLabels = new ArrayList<>();
+        this.classIndex = new HashMap<>();
     }
     
     /**
      * Train the Naive Bayes classifier
+     * 
+     * Single pass over the data: each row updates the running count/mean/M2
+     * (or category counts) of its own class with Welford's algorithm, so
+     * training is linear in the number of rows no matter how many classes
+     * there are.
      */
     public void train(Dataset dataset) {
-        this.trainingData = dataset;
+        initialize(dataset);
+        partialFit(dataset);
+    }
+    
+    /**
+     * Train on a large dataset by fitting row ranges on several threads
+     * and merging the partial models at the end
+     */
+    public void trainParallel(Dataset dataset, int numThreads) {
+        int totalRows = dataset.getNumInstances();
+        int shards = Math.max(1, Math.min(numThreads, totalRows));
+        int shardSize = (totalRows + shards - 1) / shards;
         
-        // Count class frequencies
-        Map<Object, Integer> classCounts = new HashMap<>();
-        int totalInstances = dataset.getNumInstances();
+        initialize(dataset);
+        List<NaiveBayesClassifier> partials = IntStream.range(0, shards)
+            .parallel()
+            .mapToObj(shard -> {
+                NaiveBayesClassifier partial = new NaiveBayesClassifier(numericLikelihood, alpha);
+                partial.initialize(dataset);
+                int from = shard * shardSize;
+                partial.partialFit(dataset, from, Math.min(from + shardSize, totalRows));
+                return partial;
+            })
+            .collect(Collectors.toList());
         
-        for (int i = 0; i < totalInstances; i++) {
-            Instance instance = dataset.getInstance(i);
-            Object classValue = instance.getClassValue();
-            classCounts.put(classValue, classCounts.getOrDefault(classValue, 0) + 1);
+        for (NaiveBayesClassifier partial : partials) {
+            mergeStatistics(partial);
+        }
+        model = buildModel();
+    }
+    
+    /**
+     * Update the model with every row of the dataset
+     * (the first call on an untrained model also picks up the schema)
+     */
+    public void partialFit(Dataset dataset) {
+        if (classCounts == null) {
+            initialize(dataset);
+        } else if (dataset.getNumAttributes() - 1 != numFeatures) {
+            throw new IllegalArgumentException("Dataset has " + (dataset.getNumAttributes() - 1) +
+                                               " features, model expects " + numFeatures);
+        }
+        partialFit(dataset, 0, dataset.getNumInstances());
+        model = buildModel();
+    }
+    
+    /**
+     * Update the model with one new row (the scoring tables are rebuilt,
+     * so feed large batches through partialFit(Dataset))
+     */
+    public void partialFit(Instance instance) {
+        if (classCounts == null) {
+            throw new IllegalStateException("Call train or partialFit(Dataset) before partialFit(Instance)");
+        }
+        checkCounts(instance, -1);
+        accumulate(instance);
+        totalInstances++;
+        model = buildModel();
+    }
+    
+    /**
+     * Fold another classifier's statistics into this one, as if this model
+     * had also seen the other model's rows. Uses the pairwise update of
+     * Chan et al. for combining means and sums of squared deviations.
+     */
+    public void merge(NaiveBayesClassifier other) {
+        if (other.classCounts == null) {
+            return;
+        }
+        mergeStatistics(other);
+        model = buildModel();
+    }
+    
+    /**
+     * The statistics part of merge, without rebuilding the scoring tables
+     */
+    private void mergeStatistics(NaiveBayesClassifier other) {
+        if (other.classCounts == null) {
+            return;
+        }
+        if (classCounts == null) {
+            initialize(other.trainingData);
+        } else if (other.numFeatures != numFeatures ||
+                   !Arrays.equals(other.categoricalFeatures, categoricalFeatures)) {
+            throw new IllegalArgumentException("Cannot merge models with different attribute layouts");
         }
         
-        // Calculate class probabilities
-        for (Map.Entry<Object, Integer> entry : classCounts.entrySet()) {
-            Object classValue = entry.getKey();
-            double probability = (double) entry.getValue() / totalInstances;
-            classProbabilities.put(classValue, probability);
+        // Translate the other model's category codes into ours
+        int[][] codeRemap = new int[numFeatures][];
+        for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+            if (categoricalFeatures[attrIndex]) {
+                List<Object> otherValues = other.categoryValues.get(attrIndex);
+                codeRemap[attrIndex] = new int[otherValues.size()];
+                for (int code = 0; code < otherValues.size(); code++) {
+                    codeRemap[attrIndex][code] = categoryCodeFor(attrIndex, otherValues.get(code));
+                }
+            }
         }
         
-        // Calculate feature statistics for each class
-        for (Object classValue : classCounts.keySet()) {
-            Map<Integer, GaussianStats> classFeatureStats = new HashMap<>();
+        for (int otherClass = 0; otherClass < other.classLabels.size(); otherClass++) {
+            int c = classIndexFor(other.classLabels.get(otherClass));
+            classCounts[c] += other.classCounts[otherClass];
             
-            // For each numeric feature
-            for (int attrIndex = 0; attrIndex < dataset.getNumAttributes() - 1; attrIndex++) {
-                Attribute attr = dataset.getAttribute(attrIndex);
+            int base = c * numFeatures;
+            int otherBase = otherClass * numFeatures;
+            for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+                int cell = base + attrIndex;
+                int otherCell = otherBase + attrIndex;
+                double nA = featureCounts[cell];
+                double nB = other.featureCounts[otherCell];
+                if (nB == 0) {
+                    continue;
+                }
                 
-                if ("numeric".equals(attr.getType())) {
-                    List<Double> values = new ArrayList<>();
-                    
-                    // Collect values for this feature and class
-                    for (int i = 0; i < totalInstances; i++) {
-                        Instance instance = dataset.getInstance(i);
-                        if (instance.getClassValue().equals(classValue)) {
-                            Object value = instance.getValue(attrIndex);
-                            if (value instanceof Double) {
-                                values.add((Double) value);
-                            }
+                if (categoricalFeatures[attrIndex]) {
+                    double[] otherCounts = other.categoryCounts[otherCell];
+                    for (int code = 0; code < otherCounts.length; code++) {
+                        if (otherCounts[code] > 0) {
+                            addCategoryCount(cell, codeRemap[attrIndex][code], otherCounts[code]);
                         }
                     }
-                    
-                    // Calculate mean and standard deviation
-                    if (!values.isEmpty()) {
-                        GaussianStats stats = calculateGaussianStats(values);
-                        classFeatureStats.put(attrIndex, stats);
-                    }
+                    featureCounts[cell] = nA + nB;
+                    continue;
                 }
+                
+                double n = nA + nB;
+                double delta = other.featureMeans[otherCell] - featureMeans[cell];
+                featureMeans[cell] += delta * nB / n;
+                featureM2[cell] += other.featureM2[otherCell] + delta * delta * nA * nB / n;
+                featureCounts[cell] = n;
             }
-            
-            featureStats.put(classValue, classFeatureStats);
         }
+        
+        totalInstances += other.totalInstances;
     }
     
     /**
-     * Make prediction for new instance
+     * Reset all statistics and take the attribute layout from the dataset
      */
-    public Object predict(Instance instance) {
-        if (classProbabilities.isEmpty()) {
-            return null;
+    private void initialize(Dataset dataset) {
+        this.trainingData = dataset;
+        this.numFeatures = Math.max(dataset.getNumAttributes() - 1, 0);
+        this.classLabels = new ArrayList<>();
+        this.classIndex = new HashMap<>();
+        this.classCounts = new long[4];
+        this.featureCounts = new double[4 * numFeatures];
+        this.featureMeans = new double[4 * numFeatures];
+        this.featureM2 = new double[4 * numFeatures];
+        this.categoryCounts = new double[4 * numFeatures][];
+        this.totalInstances = 0;
+        
+        // Numeric attributes get a Gaussian/multinomial model, everything
+        // else is treated as categorical
+        this.categoricalFeatures = new boolean[numFeatures];
+        this.categoryCodes = new ArrayList<>();
+        this.categoryValues = new ArrayList<>();
+        for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+            boolean categorical = !"numeric".equals(dataset.getAttribute(attrIndex).getType());
+            categoricalFeatures[attrIndex] = categorical;
+            categoryCodes.add(categorical ? new HashMap<>() : null);
+            categoryValues.add(categorical ? new ArrayList<>() : null);
+        }
+    }
+    
+    /**
+     * Accumulate the rows [from, to) of the dataset (the caller rebuilds
+     * the scoring tables)
+     */
+    private void partialFit(Dataset dataset, int from, int to) {
+        // Check every row first, so a bad row leaves the model untouched
+        for (int i = from; i < to; i++) {
+            checkCounts(dataset.getInstance(i), i);
+        }
+        for (int i = from; i < to; i++) {
+            accumulate(dataset.getInstance(i));
+        }
+        totalInstances += to - from;
+    }
+    
+    /**
+     * Multinomial mode models counts: a negative numeric value would make
+     * a class total negative and its log θ NaN
+     */
+    private void checkCounts(Instance instance, int row) {
+        if (numericLikelihood != NumericLikelihood.MULTINOMIAL) {
+            return;
+        }
+        for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+            Object value = instance.getValue(attrIndex);
+            if (!categoricalFeatures[attrIndex] && value instanceof Double && (Double) value < 0) {
+                throw new IllegalArgumentException("Multinomial Naive Bayes needs non-negative counts, got " + value +
+                    " for attribute " + attrIndex + (row >= 0 ? " in row " + row : ""));
+            }
+        }
+    }
+    
+    /**
+     * Update the class count and per-feature statistics for one row
+     * (Welford for numeric values, a count increment for categories)
+     */
+    private void accumulate(Instance instance) {
+        int c = classIndexFor(instance.getClassValue());
+        classCounts[c]++;
+        
+        int base = c * numFeatures;
+        for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+            Object value = instance.getValue(attrIndex);
+            if (categoricalFeatures[attrIndex]) {
+                if (value != null) {
+                    int cell = base + attrIndex;
+                    addCategoryCount(cell, categoryCodeFor(attrIndex, value), 1);
+                    featureCounts[cell]++;
+                }
+            } else if (value instanceof Double) {
+                int cell = base + attrIndex;
+                double x = (Double) value;
+                double n = featureCounts[cell] + 1;
+                double delta = x - featureMeans[cell];
+                featureCounts[cell] = n;
+                featureMeans[cell] += delta / n;
+                featureM2[cell] += delta * (x - featureMeans[cell]);
+            }
         }
+    }
+    
+    /**
+     * Look up (or assign) the dense index of a class label, growing the
+     * statistics arrays when a new class shows up
+     */
+    private int classIndexFor(Object classValue) {
+        Integer index = classIndex.get(classValue);
+        if (index != null) {
+            return index;
+        }
+        
+        int c = classLabels.size();
+        classLabels.add(classValue);
+        classIndex.put(classValue, c);
         
-        Object bestClass = null;
-        double bestProbability = Double.NEGATIVE_INFINITY;
+        if (c == classCounts.length) {
+            int capacity = classCounts.length * 2;
+            classCounts = Arrays.copyOf(classCounts, capacity);
+            featureCounts = Arrays.copyOf(featureCounts, capacity * numFeatures);
+            featureMeans = Arrays.copyOf(featureMeans, capacity * numFeatures);
+            featureM2 = Arrays.copyOf(featureM2, capacity * numFeatures);
+            categoryCounts = Arrays.copyOf(categoryCounts, capacity * numFeatures);
+        }
+        return c;
+    }
+    
+    /**
+     * Look up (or assign) the dictionary code of a categorical value
+     */
+    private int categoryCodeFor(int attrIndex, Object value) {
+        Map<Object, Integer> codes = categoryCodes.get(attrIndex);
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = codes.size();
+            codes.put(value, code);
+            categoryValues.get(attrIndex).add(value);
+        }
+        return code;
+    }
+    
+    /**
+     * Add to the count of one category in one (class, attribute) cell,
+     * growing the cell's table as new codes appear
+     */
+    private void addCategoryCount(int cell, int code, double count) {
+        double[] counts = categoryCounts[cell];
+        if (counts == null) {
+            counts = new double[Math.max(4, code + 1)];
+            categoryCounts[cell] = counts;
+        } else if (code >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(counts.length * 2, code + 1));
+            categoryCounts[cell] = counts;
+        }
+        counts[code] += count;
+    }
+    
+    /**
+     * Turn the accumulated sufficient statistics into the flat scoring tables:
+     * - log prior per class
+     * - Gaussian: per (class, attribute) the mean, 1/(2σ²) and log(1/(√(2π)·σ))
+     * - multinomial: per (class, attribute) log θ = log((sum + α) / (classTotal + α·M))
+     * - categorical: log((count + α) / (n + α·(K + 1))) per value, plus one
+     *   slot for unseen values
+     * Cells without data keep zeros so they add nothing.
+     */
+    private Model buildModel() {
+        int numClasses = classLabels.size();
+        int[] categoryOffsets = new int[numFeatures];
+        int[] categoryCardinality = new int[numFeatures];
+        int categoryWidth = 0;
+        int numNumeric = 0;
+        for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+            if (categoricalFeatures[attrIndex]) {
+                categoryOffsets[attrIndex] = categoryWidth;
+                categoryCardinality[attrIndex] = categoryValues.get(attrIndex).size();
+                categoryWidth += categoryCardinality[attrIndex] + 1;
+            } else {
+                numNumeric++;
+            }
+        }
+        Model built = new Model(classLabels, numFeatures, categoryOffsets, categoryCardinality, categoryWidth);
+        double[] logPriors = built.logPriors;
+        double[] categoryLogProbs = built.categoryLogProbs;
         
-        // For each possible class
-        for (Object classValue : classProbabilities.keySet()) {
-            double logProbability = Math.log(classProbabilities.get(classValue));
+        for (int c = 0; c < numClasses; c++) {
+            logPriors[c] = Math.log((double) classCounts[c] / totalInstances);
+            int base = c * numFeatures;
             
-            // Multiply by feature probabilities (add in log space)
-            Map<Integer, GaussianStats> classStats = featureStats.get(classValue);
+            // Total count over numeric columns, for the multinomial model
+            double classTotal = 0.0;
+            for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+                if (!categoricalFeatures[attrIndex]) {
+                    classTotal += featureCounts[base + attrIndex] * featureMeans[base + attrIndex];
+                }
+            }
             
-            for (int attrIndex = 0; attrIndex < trainingData.getNumAttributes() - 1; attrIndex++) {
-                Object value = instance.getValue(attrIndex);
+            for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+                int cell = base + attrIndex;
+                double n = featureCounts[cell];
                 
-                if (value instanceof Double && classStats.containsKey(attrIndex)) {
-                    double featureValue = (Double) value;
-                    GaussianStats stats = classStats.get(attrIndex);
-                    double probability = gaussianProbability(featureValue, stats.mean, stats.stdDev);
-                    
-                    // Add log probability (avoid underflow)
-                    if (probability > 0) {
-                        logProbability += Math.log(probability);
-                    } else {
-                        logProbability += Math.log(1e-10); // Small smoothing value
+                if (categoricalFeatures[attrIndex]) {
+                    int cardinality = categoryCardinality[attrIndex];
+                    int row = c * categoryWidth + categoryOffsets[attrIndex];
+                    double[] counts = categoryCounts[cell];
+                    double logDenominator = Math.log(n + alpha * (cardinality + 1));
+                    for (int code = 0; code <= cardinality; code++) {
+                        double count = (counts != null && code < counts.length) ? counts[code] : 0.0;
+                        categoryLogProbs[row + code] = Math.log(count + alpha) - logDenominator;
                     }
+                } else if (numericLikelihood == NumericLikelihood.MULTINOMIAL) {
+                    double sum = n * featureMeans[cell];
+                    built.multinomialLogTheta[cell] = Math.log((sum + alpha) / (classTotal + alpha * numNumeric));
+                } else if (n > 0) {
+                    double stdDev = gaussianStdDev(cell);
+                    built.gaussMeans[cell] = featureMeans[cell];
+                    built.gaussInvTwoVar[cell] = 1.0 / (2 * stdDev * stdDev);
+                    built.gaussLogNorm[cell] = -Math.log(SQRT_TWO_PI * stdDev);
                 }
             }
-            
-            if (logProbability > bestProbability) {
-                bestProbability = logProbability;
-                bestClass = classValue;
-            }
+        }
+        return built;
+    }
+    
+    /**
+     * Population standard deviation of one (class, attribute) cell
+     */
+    private double gaussianStdDev(int cell) {
+        double stdDev = Math.sqrt(featureM2[cell] / featureCounts[cell]);
+        if (stdDev == 0) {
+            stdDev = 1e-10; // Avoid division by zero
+        }
+        return stdDev;
+    }
+    
+    /**
+     * Make prediction for new instance
+     */
+    public Object predict(Instance instance) {
+        Model m = model;
+        if (m.logPriors.length == 0) {
+            return null;
         }
         
-        return bestClass;
+        double[] features = new double[numFeatures];
+        double[] scores = new double[m.logPriors.length];
+        extractFeatures(instance, features);
+        scoreClasses(m, features, scores);
+        
+        int bestClass = 0;
+        for (int c = 1; c < scores.length; c++) {
+            if (scores[c] > scores[bestClass]) {
+                bestClass = c;
+            }
+        }
+        return m.classLabels.get(bestClass);
     }
     
     /**
      * Get prediction probabilities for all classes
      */
     public Map<Object, Double> getPredictionProbabilities(Instance instance) {
+        Model m = model;
         Map<Object, Double> probabilities = new HashMap<>();
         
-        if (classProbabilities.isEmpty()) {
+        if (m.logPriors.length == 0) {
             return probabilities;
         }
         
-        double totalLogProb = Double.NEGATIVE_INFINITY;
-        Map<Object, Double> logProbs = new HashMap<>();
+        double[] features = new double[numFeatures];
+        double[] scores = new double[m.logPriors.length];
+        extractFeatures(instance, features);
+        scoreClasses(m, features, scores);
+        normalize(scores);
         
-        // Calculate log probabilities for each class
-        for (Object classValue : classProbabilities.keySet()) {
-            double logProbability = Math.log(classProbabilities.get(classValue));
-            
-            Map<Integer, GaussianStats> classStats = featureStats.get(classValue);
-            
-            for (int attrIndex = 0; attrIndex < trainingData.getNumAttributes() - 1; attrIndex++) {
-                Object value = instance.getValue(attrIndex);
-                
-                if (value instanceof Double && classStats.containsKey(attrIndex)) {
-                    double featureValue = (Double) value;
-                    GaussianStats stats = classStats.get(attrIndex);
-                    double probability = gaussianProbability(featureValue, stats.mean, stats.stdDev);
-                    
-                    if (probability > 0) {
-                        logProbability += Math.log(probability);
-                    } else {
-                        logProbability += Math.log(1e-10);
-                    }
-                }
-            }
-            
-            logProbs.put(classValue, logProbability);
-            totalLogProb = logSumExp(totalLogProb, logProbability);
+        for (int c = 0; c < scores.length; c++) {
+            probabilities.put(m.classLabels.get(c), scores[c]);
         }
+        return probabilities;
+    }
+    
+    /**
+     * Batch prediction: probabilities for every row of the dataset as a
+     * [rows][classes] matrix, columns ordered like getClassLabels()
+     */
+    public double[][] getPredictionProbabilities(Dataset dataset) {
+        Model m = model;
+        int rows = dataset.getNumInstances();
+        double[][] probabilities = new double[rows][m.logPriors.length];
+        double[] features = new double[numFeatures];
         
-        // Convert back to probabilities and normalize
-        for (Map.Entry<Object, Double> entry : logProbs.entrySet()) {
-            double normalizedProb = Math.exp(entry.getValue() - totalLogProb);
-            probabilities.put(entry.getKey(), normalizedProb);
+        for (int i = 0; i < rows; i++) {
+            extractFeatures(dataset.getInstance(i), features);
+            scoreClasses(m, features, probabilities[i]);
+            normalize(probabilities[i]);
         }
-        
         return probabilities;
     }
     
     /**
-     * Calculate Gaussian probability density
+     * Batch prediction on raw feature rows. NaN marks a missing value;
+     * categorical columns hold the code from getCategoryCode().
      */
-    private double gaussianProbability(double x, double mean, double stdDev) {
-        if (stdDev == 0) {
-            return x == mean ? 1.0 : 1e-10;
-        }
+    public double[][] getPredictionProbabilities(double[][] featureRows) {
+        Model m = model;
+        double[][] probabilities = new double[featureRows.length][m.logPriors.length];
         
-        double exponent = -Math.pow(x - mean, 2) / (2 * Math.pow(stdDev, 2));
-        double coefficient = 1.0 / (Math.sqrt(2 * Math.PI) * stdDev);
-        return coefficient * Math.exp(exponent);
+        for (int i = 0; i < featureRows.length; i++) {
+            scoreClasses(m, featureRows[i], probabilities[i]);
+            normalize(probabilities[i]);
+        }
+        return probabilities;
     }
     
     /**
-     * Calculate mean and standard deviation for Gaussian distribution
+     * Class labels in the column order used by the batch methods
      */
-    private GaussianStats calculateGaussianStats(List<Double> values) {
-        double sum = 0.0;
-        for (Double value : values) {
-            sum += value;
+    public List<Object> getClassLabels() {
+        return model.classLabels;
+    }
+    
+    /**
+     * Dictionary code of a categorical value (-1 if it was never seen in training)
+     */
+    public int getCategoryCode(int attrIndex, Object value) {
+        if (categoryCodes == null || categoryCodes.get(attrIndex) == null) {
+            return -1;
         }
-        double mean = sum / values.size();
-        
-        double variance = 0.0;
-        for (Double value : values) {
-            variance += Math.pow(value - mean, 2);
+        return categoryCodes.get(attrIndex).getOrDefault(value, -1);
+    }
+    
+    /**
+     * Copy the features of an instance into a primitive buffer: numeric
+     * values as-is, categories as dictionary codes, NaN where missing
+     */
+    private void extractFeatures(Instance instance, double[] features) {
+        for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+            Object value = instance.getValue(attrIndex);
+            if (categoricalFeatures[attrIndex]) {
+                features[attrIndex] = value == null ? Double.NaN : getCategoryCode(attrIndex, value);
+            } else {
+                features[attrIndex] = value instanceof Double ? (Double) value : Double.NaN;
+            }
         }
-        variance /= values.size();
+    }
+    
+    /**
+     * Unnormalized log posterior of every class, written into scores.
+     * Gaussian features add logNorm - (x-μ)²/(2σ²), or the 1e-10 density
+     * the original scorer used where its density underflowed to 0; multinomial
+     * features add x·log θ; categorical features add a table lookup.
+     */
+    private void scoreClasses(Model m, double[] features, double[] scores) {
+        boolean multinomial = numericLikelihood == NumericLikelihood.MULTINOMIAL;
+        int[] categoryCardinality = m.categoryCardinality;
         
-        double stdDev = Math.sqrt(variance);
-        if (stdDev == 0) {
-            stdDev = 1e-10; // Avoid division by zero
+        for (int c = 0; c < m.logPriors.length; c++) {
+            double logProbability = m.logPriors[c];
+            int base = c * numFeatures;
+            int categoryRow = c * m.categoryWidth;
+            
+            for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+                double x = features[attrIndex];
+                if (x != x) {
+                    continue; // NaN: missing or non-numeric
+                }
+                int cell = base + attrIndex;
+                
+                if (categoricalFeatures[attrIndex]) {
+                    int code = (int) x;
+                    if (code < 0 || code > categoryCardinality[attrIndex]) {
+                        code = categoryCardinality[attrIndex]; // unseen value
+                    }
+                    logProbability += m.categoryLogProbs[categoryRow + m.categoryOffsets[attrIndex] + code];
+                } else if (multinomial) {
+                    logProbability = Math.fma(x, m.multinomialLogTheta[cell], logProbability);
+                } else {
+                    double diff = x - m.gaussMeans[cell];
+                    double logDensity = Math.fma(-diff * diff, m.gaussInvTwoVar[cell], m.gaussLogNorm[cell]);
+                    logProbability += logDensity < LOG_UNDERFLOW ? LOG_MIN_DENSITY : logDensity;
+                }
+            }
+            scores[c] = logProbability;
         }
-        
-        return new GaussianStats(mean, stdDev);
     }
     
     /**
-     * Log-sum-exp trick to avoid numerical underflow
+     * Turn log scores into probabilities in place (log-sum-exp trick to
+     * avoid numerical underflow)
      */
-    private double logSumExp(double a, double b) {
-        if (a == Double.NEGATIVE_INFINITY) return b;
-        if (b == Double.NEGATIVE_INFINITY) return a;
+    private static void normalize(double[] scores) {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double score : scores) {
+            max = Math.max(max, score);
+        }
         
-        if (a > b) {
-            return a + Math.log(1 + Math.exp(b - a));
-        } else {
-            return b + Math.log(1 + Math.exp(a - b));
+        double sum = 0.0;
+        for (int c = 0; c < scores.length; c++) {
+            scores[c] = Math.exp(scores[c] - max);
+            sum += scores[c];
+        }
+        for (int c = 0; c < scores.length; c++) {
+            scores[c] /= sum;
         }
     }
     
@@ -229,45 +651,53 @@ public class NaiveBayesClassifier {
      * Get model summary for display
      */
     public String getModelSummary() {
+        Model m = model;
         StringBuilder sb = new StringBuilder();
         sb.append("=== Naive Bayes Model Summary ===\n");
+        sb.append("Numeric Likelihood: ").append(numericLikelihood).append("\n");
+        sb.append("Smoothing (alpha): ").append(alpha).append("\n\n");
         
         sb.append("Class Probabilities:\n");
-        for (Map.Entry<Object, Double> entry : classProbabilities.entrySet()) {
-            sb.append("  ").append(entry.getKey()).append(": ")
-              .append(String.format("%.3f", entry.getValue())).append("\n");
+        for (int c = 0; c < m.classLabels.size(); c++) {
+            sb.append("  ").append(m.classLabels.get(c)).append(": ")
+              .append(String.format("%.3f", Math.exp(m.logPriors[c]))).append("\n");
         }
         
         sb.append("\nFeature Statistics by Class:\n");
-        for (Object classValue : featureStats.keySet()) {
-            sb.append("Class: ").append(classValue).append("\n");
-            Map<Integer, GaussianStats> classStats = featureStats.get(classValue);
+        for (int c = 0; c < m.classLabels.size(); c++) {
+            sb.append("Class: ").append(m.classLabels.get(c)).append("\n");
             
-            for (Map.Entry<Integer, GaussianStats> entry : classStats.entrySet()) {
-                int attrIndex = entry.getKey();
-                GaussianStats stats = entry.getValue();
+            for (int attrIndex = 0; attrIndex < numFeatures; attrIndex++) {
+                int cell = c * numFeatures + attrIndex;
+                if (featureCounts[cell] == 0) {
+                    continue;
+                }
                 String attrName = trainingData.getAttribute(attrIndex).getName();
+                sb.append("  ").append(attrName).append(": ");
                 
-                sb.append("  ").append(attrName)
-                  .append(": μ=").append(String.format("%.2f", stats.mean))
-                  .append(", σ=").append(String.format("%.2f", stats.stdDev)).append("\n");
+                if (categoricalFeatures[attrIndex]) {
+                    // Most likely value of this category for the class
+                    int row = c * m.categoryWidth + m.categoryOffsets[attrIndex];
+                    int bestCode = 0;
+                    for (int code = 1; code < m.categoryCardinality[attrIndex]; code++) {
+                        if (m.categoryLogProbs[row + code] > m.categoryLogProbs[row + bestCode]) {
+                            bestCode = code;
+                        }
+                    }
+                    sb.append(m.categoryCardinality[attrIndex]).append(" values, most likely=")
+                      .append(categoryValues.get(attrIndex).get(bestCode))
+                      .append(String.format(" (p=%.3f)", Math.exp(m.categoryLogProbs[row + bestCode])));
+                } else if (numericLikelihood == NumericLikelihood.MULTINOMIAL) {
+                    sb.append("θ=").append(String.format("%.4f", Math.exp(m.multinomialLogTheta[cell])));
+                } else {
+                    sb.append("μ=").append(String.format("%.2f", featureMeans[cell]))
+                      .append(", σ=").append(String.format("%.2f", gaussianStdDev(cell)));
+                }
+                sb.append("\n");
             }
             sb.append("\n");
         }
         
         return sb.toString();
     }
-    
-    /**
-     * Helper class to store Gaussian statistics
-     */
-    private static class GaussianStats {
-        double mean;
-        double stdDev;
-        
-        public GaussianStats(double mean, double stdDev) {
-            this.mean = mean;
-            this.stdDev = stdDev;
-        }
-    }
-}
\ No newline at end of file
+}
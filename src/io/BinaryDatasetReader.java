@@ -0,0 +1,369 @@
+package io;
+
+import core.Dataset;
+import io.CSVSchema.ColumnType;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * BINARY DATASET READER
+ * 
+ * Purpose: Open a file written by BinaryDatasetWriter without parsing it
+ * Think of it like: Opening a book at its table of contents and only
+ * turning to the chapters you actually read
+ * 
+ * Real-life analogy: Like a library catalogue - you learn what is on every
+ * shelf straight away, and a book is only fetched when you ask for it
+ * 
+ * How it works:
+ * - Opening reads only the header and the column directory, so it takes
+ *   about the same time for a 10 MB file as for a 10 GB one
+ * - The file is memory-mapped; a column's pages are only read from disk
+ *   when that column is first requested with getColumn()
+ * - A loaded column's blocks are copied straight into the typed arrays
+ *   ColumnarTable uses, and every block's checksum is verified on the way
+ * - readTable() / toDataset() load every column and give the same result
+ *   as parsing the original CSV
+ * 
+ * A damaged or truncated file is reported as an IOException.
+ */
+public class BinaryDatasetReader implements Closeable {
+    
+    private static final long WINDOW_SIZE = 1L << 30;   // one mapping must stay below 2GB
+    
+    private final String filename;
+    private final FileChannel channel;
+    private final long fileSize;
+    private final int numRows;
+    private final int headerColumns;
+    private final boolean ragged;
+    private final long rowWidthsStart;
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<ColumnType> types = new ArrayList<>();
+    private final List<long[]> sections = new ArrayList<>();   // start, length
+    private final ColumnarTable.Column[] loaded;
+    private final CRC32C checksum = new CRC32C();
+    
+    // Mapped part of the file currently being read
+    private ByteBuffer window;
+    private long windowStart;
+    
+    public BinaryDatasetReader(String filename) throws IOException {
+        this.filename = filename;
+        this.channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ);
+        try {
+            fileSize = channel.size();
+            if (fileSize < BinaryDatasetWriter.HEADER_SIZE) {
+                throw corrupt("file too short");
+            }
+            ByteBuffer header = map(0, BinaryDatasetWriter.HEADER_SIZE);
+            if (header.getInt(0) != BinaryDatasetWriter.MAGIC) {
+                throw new IOException("Not a binary dataset: " + filename);
+            }
+            if (header.getInt(4) != BinaryDatasetWriter.VERSION) {
+                throw new IOException("Unsupported binary dataset version " + header.getInt(4) + ": " + filename);
+            }
+            verify(header, 0, 48, header.getInt(48), "header");
+            
+            numRows = header.getInt(8);
+            int numColumns = header.getInt(12);
+            headerColumns = header.getInt(16);
+            ragged = (header.getInt(20) & BinaryDatasetWriter.FLAG_RAGGED) != 0;
+            rowWidthsStart = header.getLong(24);
+            long directoryStart = header.getLong(32);
+            long directoryLength = header.getLong(40);
+            if (numRows < 0 || numColumns < 0 || headerColumns < 0 || headerColumns > numColumns
+                    || directoryStart < 0 || directoryLength < 4 || directoryLength > Integer.MAX_VALUE
+                    || directoryStart + directoryLength > fileSize) {
+                throw corrupt("bad header");
+            }
+            
+            // Directory: name, type and section of every column
+            ByteBuffer directory = map(directoryStart, (int) directoryLength);
+            verify(directory, 0, (int) directoryLength - 4, directory.getInt((int) directoryLength - 4), "directory");
+            ColumnType[] allTypes = ColumnType.values();
+            for (int c = 0; c < numColumns; c++) {
+                byte[] name = new byte[directory.getInt()];
+                directory.get(name);
+                columnNames.add(new String(name, StandardCharsets.UTF_8));
+                int type = directory.getInt();
+                if (type < 0 || type >= allTypes.length) {
+                    throw corrupt("unknown column type " + type);
+                }
+                types.add(allTypes[type]);
+                sections.add(new long[] {directory.getLong(), directory.getLong()});
+            }
+            loaded = new ColumnarTable.Column[numColumns];
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+    
+    /**
+     * True if a file starts like a binary dataset (cheap check by magic)
+     */
+    public static boolean isBinaryDataset(String filename) {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            ByteBuffer magic = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && channel.read(magic) > 0) {
+                // keep reading
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == BinaryDatasetWriter.MAGIC;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+    
+    public int getNumRows() {
+        return numRows;
+    }
+    
+    public int getNumColumns() {
+        return columnNames.size();
+    }
+    
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+    
+    public ColumnType getType(int column) {
+        return types.get(column);
+    }
+    
+    /**
+     * Types of the header columns
+     */
+    public CSVSchema getSchema() {
+        return new CSVSchema(columnNames.subList(0, headerColumns),
+                             types.subList(0, headerColumns).toArray(new ColumnType[0]));
+    }
+    
+    /**
+     * One column, read from the file the first time it is asked for
+     */
+    public synchronized ColumnarTable.Column getColumn(int column) throws IOException {
+        if (loaded[column] == null) {
+            loaded[column] = readColumn(column);
+        }
+        return loaded[column];
+    }
+    
+    /**
+     * Load every column into a table
+     */
+    public synchronized ColumnarTable readTable() throws IOException {
+        List<ColumnarTable.Column> columns = new ArrayList<>();
+        for (int c = 0; c < getNumColumns(); c++) {
+            columns.add(getColumn(c));
+        }
+        return ColumnarTable.fromColumns(columnNames, columns, numRows, headerColumns, ragged ? readRowWidths() : null);
+    }
+    
+    /**
+     * Load the whole file as a row-based Dataset
+     */
+    public Dataset toDataset(String name) throws IOException {
+        return readTable().toDataset(name);
+    }
+    
+    private ColumnarTable.Column readColumn(int column) throws IOException {
+        long position = sections.get(column)[0];
+        long end = position + sections.get(column)[1];
+        if (position < BinaryDatasetWriter.HEADER_SIZE || end > fileSize || end < position) {
+            throw corrupt("bad section for column " + columnNames.get(column));
+        }
+        ColumnType type = types.get(column);
+        ColumnarTable.Column result = new ColumnarTable.Column(type);
+        
+        // Dictionary
+        ByteBuffer counts = at(position, 8);
+        int entries = counts.getInt(0);
+        int blocks = counts.getInt(4);
+        if (entries < 0 || blocks < 0 || position + 12L + 4L * entries > end) {
+            throw corrupt("bad dictionary in column " + columnNames.get(column));
+        }
+        ByteBuffer offsets = at(position, 12 + 4 * entries);
+        int totalBytes = offsets.getInt(8 + 4 * entries);
+        long dictionaryLength = 12L + 4L * entries + totalBytes;
+        if (totalBytes < 0 || position + dictionaryLength + 4 > end) {
+            throw corrupt("bad dictionary in column " + columnNames.get(column));
+        }
+        ByteBuffer dictionary = at(position, (int) dictionaryLength + 4);
+        verify(dictionary, 0, (int) dictionaryLength, dictionary.getInt((int) dictionaryLength),
+               "dictionary of column " + columnNames.get(column));
+        byte[] text = new byte[totalBytes];
+        dictionary.position(12 + 4 * entries);
+        dictionary.get(text);
+        for (int i = 0; i < entries; i++) {
+            int from = dictionary.getInt(8 + 4 * i);
+            int to = i + 1 < entries ? dictionary.getInt(12 + 4 * i) : totalBytes;
+            if (from < 0 || to < from || to > totalBytes) {
+                throw corrupt("bad dictionary in column " + columnNames.get(column));
+            }
+            result.addText(text, from, to);
+        }
+        position = align(position + dictionaryLength + 4);
+        
+        // Blocks
+        int rows = 0;
+        for (int b = 0; b < blocks; b++) {
+            if (position + 16 > end) {
+                throw corrupt("column " + columnNames.get(column) + " is cut short");
+            }
+            ByteBuffer blockHeader = at(position, 16);
+            int length = blockHeader.getInt(0);
+            int flags = blockHeader.getInt(4);
+            int expected = blockHeader.getInt(8);
+            boolean hasValues = (flags & BinaryDatasetWriter.BLOCK_HAS_VALUES) != 0;
+            boolean hasCodes = (flags & BinaryDatasetWriter.BLOCK_HAS_CODES) != 0;
+            int width = elementSize(type);
+            if (length < 0 || (hasValues && width == 0) || (!hasValues && !hasCodes)) {
+                throw corrupt("bad block in column " + columnNames.get(column));
+            }
+            long valuesAt = position + 16;
+            long codesAt = hasValues ? align(valuesAt + (long) length * width) : valuesAt;
+            long blockEnd = hasCodes ? align(codesAt + 4L * length) : codesAt;
+            if (blockEnd > end || blockEnd - valuesAt > Integer.MAX_VALUE) {
+                throw corrupt("column " + columnNames.get(column) + " is cut short");
+            }
+            
+            checksum.reset();
+            Object values = null;
+            int[] codes = null;
+            if (hasValues) {
+                ByteBuffer bytes = at(valuesAt, length * width);
+                checksum.update(bytes.duplicate());
+                values = readValues(type, bytes, length);
+            }
+            if (hasCodes) {
+                ByteBuffer bytes = at(codesAt, 4 * length);
+                checksum.update(bytes.duplicate());
+                codes = new int[length];
+                bytes.asIntBuffer().get(codes);
+                for (int code : codes) {
+                    if (code < ColumnarTable.Column.MISSING || code > entries || (code == 0 && !hasValues)) {
+                        throw corrupt("bad text code in column " + columnNames.get(column));
+                    }
+                }
+            }
+            if ((int) checksum.getValue() != expected) {
+                throw corrupt("checksum mismatch in column " + columnNames.get(column) + ", block " + b);
+            }
+            result.appendBlock(values, codes, length);
+            rows += length;
+            position = blockEnd;
+        }
+        if (rows != numRows) {
+            throw corrupt("column " + columnNames.get(column) + " has " + rows + " rows, expected " + numRows);
+        }
+        return result;
+    }
+    
+    private int[] readRowWidths() throws IOException {
+        long length = 4L * numRows + 4;
+        if (rowWidthsStart < BinaryDatasetWriter.HEADER_SIZE || rowWidthsStart + length > fileSize
+                || length > Integer.MAX_VALUE) {
+            throw corrupt("bad row widths");
+        }
+        ByteBuffer bytes = at(rowWidthsStart, (int) length);
+        verify(bytes, 0, (int) length - 4, bytes.getInt((int) length - 4), "row widths");
+        int[] widths = new int[numRows];
+        bytes.asIntBuffer().get(widths);
+        return widths;
+    }
+    
+    private static Object readValues(ColumnType type, ByteBuffer bytes, int length) {
+        switch (type) {
+            case INT:
+            case DATE:
+                int[] ints = new int[length];
+                bytes.asIntBuffer().get(ints);
+                return ints;
+            case LONG:
+                long[] longs = new long[length];
+                bytes.asLongBuffer().get(longs);
+                return longs;
+            case DOUBLE:
+                double[] doubles = new double[length];
+                bytes.asDoubleBuffer().get(doubles);
+                return doubles;
+            default:
+                byte[] booleans = new byte[length];
+                bytes.get(booleans);
+                return booleans;
+        }
+    }
+    
+    /**
+     * Bytes per stored value (0 = the type stores no values, only codes)
+     */
+    private static int elementSize(ColumnType type) {
+        switch (type) {
+            case INT:
+            case DATE:
+                return 4;
+            case LONG:
+            case DOUBLE:
+                return 8;
+            case BOOLEAN:
+                return 1;
+            default:
+                return 0;
+        }
+    }
+    
+    /**
+     * Little-endian view of length bytes at a file position, moving the
+     * mapped window if they lie outside it
+     */
+    private ByteBuffer at(long position, int length) throws IOException {
+        if (window == null || position < windowStart || position + length > windowStart + window.capacity()) {
+            windowStart = position;
+            window = map(position, (int) Math.max(length, Math.min(WINDOW_SIZE, fileSize - position)));
+        }
+        ByteBuffer view = window.duplicate();
+        view.position((int) (position - windowStart));
+        view.limit(view.position() + length);
+        return view.slice().order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    private ByteBuffer map(long position, int length) throws IOException {
+        if (position + length > fileSize) {
+            throw corrupt("file is cut short");
+        }
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, length).order(ByteOrder.LITTLE_ENDIAN);
+    }
+    
+    private void verify(ByteBuffer buffer, int from, int to, int expected, String what) throws IOException {
+        ByteBuffer part = buffer.duplicate();
+        part.position(from);
+        part.limit(to);
+        checksum.reset();
+        checksum.update(part);
+        if ((int) checksum.getValue() != expected) {
+            throw corrupt("checksum mismatch in " + what);
+        }
+    }
+    
+    private static long align(long position) {
+        return (position + 7) & ~7L;
+    }
+    
+    private IOException corrupt(String detail) {
+        return new IOException("Damaged binary dataset " + filename + ": " + detail);
+    }
+    
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
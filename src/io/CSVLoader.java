@@ -1,11 +1,9 @@
 package io;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 import core.Dataset;
-import core.Attribute;
-import core.Instance;
 
 /**
  * CSVLOADER CLASS
@@ -19,7 +17,30 @@ import core.Instance;
  * - First row = column headers (Attribute names)
  * - Other rows = data
  * - Last column = class/label
- * - Comma-separated values
+ * - Comma-separated values; fields may be quoted ("a, b" or "say ""hi""")
+ * 
+ * Parsing is done by CSVTokenizer / ColumnarTable, which scan the raw bytes
+ * without splitting lines into Strings. loadCSVParallel() splits a large
+ * file across threads (ParallelCSVReader) with the same result.
+ * 
+ * Column types (int, long, double, boolean, date, text) are inferred from
+ * the first 1000 rows (CSVSchema); pass overrides to force a type by
+ * column name, e.g. to keep zip codes as text.
+ * 
+ * Files may be gzip, zip or deflate compressed; this is detected from the
+ * first bytes (CompressedInput) and inflated while the CSV is parsed.
+ * 
+ * loadColumns() reads just the named columns of a wide file: the other
+ * cells are passed over, not parsed (LazyCSVTable also notes where each
+ * row starts, so more columns can be parsed later without a full reload).
+ * 
+ * loadShards() loads a directory or glob of CSV files with the same header
+ * (one per partition of a data lake) as one dataset, several files at a
+ * time; shards whose min/max sidecar rules out the wanted ranges are
+ * skipped (ShardedCSVReader).
+ * 
+ * loadBinary() opens a dataset saved by BinaryDatasetWriter (see the
+ * "convert" command in Main) without parsing any text.
  * 
  * Example CSV:
  * Age,Salary,Hired
@@ -35,90 +56,102 @@ public class CSVLoader {
     //   - datasetName: What to name this dataset
     // Returns: A Dataset object containing all data from the CSV
     public static Dataset loadCSV(String filename, String datasetName) {
-        // Create an empty dataset with the given name
-        Dataset dataset = new Dataset(datasetName);
-        
+        return loadCSV(filename, datasetName, null);
+    }
+    
+    // Method: Load a CSV file, forcing the type of some columns
+    //   - overrides: column name -> type (null = infer every column)
+    public static Dataset loadCSV(String filename, String datasetName,
+                                  Map<String, CSVSchema.ColumnType> overrides) {
         try {
-            // Open the CSV file for reading
-            BufferedReader reader = new BufferedReader(new FileReader(filename));
-            String line;
-            boolean firstLine = true;
-            
-            // Read the CSV file line by line
-            while ((line = reader.readLine()) != null) {
-                // Skip empty lines
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
-                
-                // Split the line by commas to get individual values
-                String[] values = line.split(",");
-                
-                // If this is the first line, these are column headers (attributes)
-                if (firstLine) {
-                    firstLine = false;
-                    
-                    // For each header, create an Attribute
-                    for (int i = 0; i < values.length; i++) {
-                        String header = values[i].trim();
-                        
-                        // Last column is categorical (class/label), others are numeric by default
-                        String type = (i == values.length - 1) ? "categorical" : "numeric";
-                        
-                        Attribute attr = new Attribute(header, type);
-                        dataset.addAttribute(attr);
-                    }
-                } else {
-                    // This is a data row, create an Instance
-                    Instance instance = new Instance();
-                    
-                    // Add each value to the instance
-                    for (int i = 0; i < values.length; i++) {
-                        String value = values[i].trim();
-                        
-                        // Try to convert to number, otherwise keep as text
-                        Object objectValue = tryParseNumber(value);
-                        
-                        // Add the value to this instance
-                        instance.addValue(objectValue);
-                    }
-                    
-                    // Set the class value (last column)
-                    if (values.length > 0) {
-                        Object lastValue = tryParseNumber(values[values.length - 1].trim());
-                        instance.setClassValue(lastValue);
-                    }
-                    
-                    // Add this instance to the dataset
-                    dataset.addInstance(instance);
-                }
-            }
-            
-            // Close the file
-            reader.close();
-            
+            // Stream the file straight into typed columns, then build the rows
+            return ColumnarTable.readCSV(filename, overrides).toDataset(datasetName);
+        
         } catch (IOException e) {
             // If file cannot be read, print error message
             System.out.println("ERROR: Cannot read file: " + filename);
             System.out.println("Details: " + e.getMessage());
         }
         
-        return dataset;
+        // Return an empty dataset with the given name
+        return new Dataset(datasetName);
     }
     
-    // Helper Method: Try to convert a string to a number
-    // If it looks like a number (123 or 45.67), convert it
-    // If it's text, keep it as a string
-    // Parameters:
-    //   - value: The string to try to convert
-    // Returns: Double if it's a number, String otherwise
-    private static Object tryParseNumber(String value) {
+    // Method: Load a binary dataset file written by BinaryDatasetWriter
+    // Same result as loadCSV on the original CSV, without parsing it again
+    public static Dataset loadBinary(String filename, String datasetName) {
+        try (BinaryDatasetReader reader = new BinaryDatasetReader(filename)) {
+            return reader.toDataset(datasetName);
+        
+        } catch (IOException e) {
+            System.out.println("ERROR: Cannot read binary dataset: " + filename);
+            System.out.println("Details: " + e.getMessage());
+        }
+        
+        return new Dataset(datasetName);
+    }
+    
+    // Method: Load only some columns of a (wide) CSV file
+    //   - columns: header names to keep, in order; the last is the class
+    // The other columns are skipped, not parsed (LazyCSVTable)
+    public static Dataset loadColumns(String filename, String datasetName, String... columns) {
+        try {
+            return LazyCSVTable.open(filename, columns).toDataset(datasetName, columns);
+        
+        } catch (IOException e) {
+            System.out.println("ERROR: Cannot read file: " + filename);
+            System.out.println("Details: " + e.getMessage());
+        }
+        
+        return new Dataset(datasetName);
+    }
+    
+    // Method: Load a directory or glob (e.g. "sales/part-*.csv") of CSV
+    // shards with the same header as one dataset, in path order
+    public static Dataset loadShards(String location, String datasetName) {
+        return loadShards(location, datasetName, null, null);
+    }
+    
+    // Method: Sharded load, skipping shards that can't have rows in ranges
+    //   - overrides: column name -> type (null = infer from the first shard)
+    //   - ranges: wanted values per column, checked against each shard's
+    //     "<shard>.minmax" sidecar (null = read every shard)
+    public static Dataset loadShards(String location, String datasetName,
+                                     Map<String, CSVSchema.ColumnType> overrides,
+                                     List<ShardedCSVReader.Range> ranges) {
         try {
-            // Try to parse as a double
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            // If it fails, it's not a number, return as string
-            return value;
+            return new ShardedCSVReader().read(location, overrides, ranges).toDataset(datasetName);
+        
+        } catch (IOException e) {
+            System.out.println("ERROR: Cannot read shards: " + location);
+            System.out.println("Details: " + e.getMessage());
         }
+        
+        return new Dataset(datasetName);
+    }
+    
+    // Method: Load a large CSV file using all processor cores
+    // Same result as loadCSV, row order included
+    public static Dataset loadCSVParallel(String filename, String datasetName) {
+        return loadCSVParallel(filename, datasetName, Runtime.getRuntime().availableProcessors());
+    }
+    
+    // Method: Load a large CSV file using the given number of threads
+    public static Dataset loadCSVParallel(String filename, String datasetName, int threads) {
+        return loadCSVParallel(filename, datasetName, threads, null);
+    }
+    
+    // Method: Parallel load, forcing the type of some columns
+    public static Dataset loadCSVParallel(String filename, String datasetName, int threads,
+                                          Map<String, CSVSchema.ColumnType> overrides) {
+        try {
+            return new ParallelCSVReader(threads).read(filename, overrides).toDataset(datasetName);
+        
+        } catch (IOException e) {
+            System.out.println("ERROR: Cannot read file: " + filename);
+            System.out.println("Details: " + e.getMessage());
+        }
+        
+        return new Dataset(datasetName);
     }
-}
\ No newline at end of file
+}
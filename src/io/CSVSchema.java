@@ -0,0 +1,341 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * CSV SCHEMA
+ * 
+ * Purpose: Decide what kind of data each CSV column holds before loading it
+ * Think of it like: Glancing over the first page of a spreadsheet to see
+ * which columns are numbers, dates, yes/no flags or names
+ * 
+ * Real-life analogy: Like a librarian who looks at the first few boxes of
+ * a donation to decide which shelves to clear, instead of opening every
+ * single box first
+ * 
+ * How it works:
+ * - The first SAMPLE_ROWS data rows are examined cell by cell
+ * - A column whose sampled cells are all whole numbers becomes INT (or LONG
+ *   if they don't fit an int), other numbers make it DOUBLE; a column of
+ *   only true/false becomes BOOLEAN, only yyyy-MM-dd dates becomes DATE
+ * - Mostly numbers with a few placeholders (like "NA") still counts as
+ *   numeric; anything else is CATEGORICAL text
+ * - Any column's type can be overridden by name (e.g. zip codes that look
+ *   like numbers but should stay text)
+ * Cells that turn up later and don't fit the type are kept as text, and an
+ * INT column that meets a bigger or fractional number is widened.
+ */
+public class CSVSchema {
+    
+    /**
+     * Storage type of a column
+     */
+    public enum ColumnType {
+        INT("numeric"),
+        LONG("numeric"),
+        DOUBLE("numeric"),
+        BOOLEAN("categorical"),
+        DATE("numeric"),            // days since 1970-01-01 as a feature
+        CATEGORICAL("categorical");
+        
+        private final String datasetType;
+        
+        ColumnType(String datasetType) {
+            this.datasetType = datasetType;
+        }
+        
+        /**
+         * Attribute type used in a Dataset ("numeric" or "categorical")
+         */
+        public String getDatasetType() {
+            return datasetType;
+        }
+        
+        /**
+         * Narrowest numeric type holding both (INT < LONG < DOUBLE)
+         */
+        static ColumnType widerNumeric(ColumnType a, ColumnType b) {
+            return a.ordinal() >= b.ordinal() ? a : b;
+        }
+        
+        boolean isNumber() {
+            return this == INT || this == LONG || this == DOUBLE;
+        }
+    }
+    
+    static final int SAMPLE_ROWS = 1000;
+    private static final double NUMERIC_SHARE = 0.9;
+    static final int NO_DATE = Integer.MIN_VALUE;
+    
+    // Boolean spellings; word index & 1 is the value, so the spelling is kept
+    private static final String[] BOOLEAN_STRINGS = {"false", "true", "FALSE", "TRUE", "False", "True"};
+    private static final byte[][] BOOLEAN_WORDS = new byte[BOOLEAN_STRINGS.length][];
+    static {
+        for (int word = 0; word < BOOLEAN_STRINGS.length; word++) {
+            BOOLEAN_WORDS[word] = BOOLEAN_STRINGS[word].getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+    
+    private final List<String> columnNames;
+    private final ColumnType[] types;
+    
+    public CSVSchema(List<String> columnNames, ColumnType[] types) {
+        if (columnNames.size() != types.length) {
+            throw new IllegalArgumentException("One type is needed per column");
+        }
+        this.columnNames = new ArrayList<>(columnNames);
+        this.types = types.clone();
+    }
+    
+    public int getNumColumns() {
+        return types.length;
+    }
+    
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+    
+    public ColumnType getType(int column) {
+        return types[column];
+    }
+    
+    /**
+     * Copy with some column types replaced, by column name
+     */
+    public CSVSchema withOverrides(Map<String, ColumnType> overrides) {
+        if (overrides == null || overrides.isEmpty()) {
+            return this;
+        }
+        ColumnType[] changed = types.clone();
+        for (Map.Entry<String, ColumnType> override : overrides.entrySet()) {
+            int column = columnNames.indexOf(override.getKey());
+            if (column < 0) {
+                throw new IllegalArgumentException("No column named " + override.getKey());
+            }
+            changed[column] = override.getValue();
+        }
+        return new CSVSchema(columnNames, changed);
+    }
+    
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder();
+        for (int c = 0; c < types.length; c++) {
+            if (c > 0) {
+                sb.append(", ");
+            }
+            sb.append(columnNames.get(c)).append(": ").append(types[c]);
+        }
+        return sb.toString();
+    }
+    
+    /**
+     * Infer a schema from the header and first rows of a CSV stream, reading
+     * no further than needed (the caller closes the stream)
+     */
+    public static CSVSchema sample(InputStream in, Map<String, ColumnType> overrides) throws IOException {
+        CSVTokenizer tokenizer = new CSVTokenizer(in);
+        Inference inference = new Inference();
+        tokenizer.parse(new CSVTokenizer.CellHandler() {
+            private boolean header = true;
+            private int column;
+            
+            @Override
+            public void cell(byte[] buf, int start, int end, boolean quoted) {
+                if (header) {
+                    inference.addColumn(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                } else {
+                    inference.observe(column++, buf, start, end);
+                }
+            }
+            
+            @Override
+            public void endRow() {
+                if (!header) {
+                    inference.endRow();
+                }
+                header = false;
+                column = 0;
+                if (inference.getRows() >= SAMPLE_ROWS) {
+                    tokenizer.stop();
+                }
+            }
+        });
+        return inference.build().withOverrides(overrides);
+    }
+    
+    /**
+     * Counts what the sampled cells of each column look like
+     */
+    static class Inference {
+        private final NumericParser parser = new NumericParser();
+        private final List<String> names = new ArrayList<>();
+        private final List<int[]> counts = new ArrayList<>();
+        private int rows;
+        
+        // Per column: non-empty, int, long, other number, date and boolean cells
+        private static final int NON_EMPTY = 0, INTS = 1, LONGS = 2, DECIMALS = 3, DATES = 4, BOOLEANS = 5;
+        
+        void addColumn(String name) {
+            names.add(name);
+            counts.add(new int[BOOLEANS + 1]);
+        }
+        
+        void observe(int column, byte[] buf, int start, int end) {
+            int from = valueStart(buf, start, end);
+            end = valueEnd(buf, from, end);
+            start = from;
+            if (column >= names.size() || start == end) {
+                return;
+            }
+            int[] count = counts.get(column);
+            count[NON_EMPTY]++;
+            if (parser.parseInteger(buf, start, end)) {
+                long value = parser.getLongValue();
+                count[value == (int) value ? INTS : LONGS]++;
+            } else if (parser.parse(buf, start, end)) {
+                count[DECIMALS]++;
+            } else if (parseDate(buf, start, end) != NO_DATE) {
+                count[DATES]++;
+            } else if (parseBoolean(buf, start, end) >= 0) {
+                count[BOOLEANS]++;
+            }
+        }
+        
+        void endRow() {
+            rows++;
+        }
+        
+        int getRows() {
+            return rows;
+        }
+        
+        int getNumColumns() {
+            return names.size();
+        }
+        
+        CSVSchema build() {
+            ColumnType[] types = new ColumnType[names.size()];
+            for (int c = 0; c < types.length; c++) {
+                types[c] = decide(counts.get(c));
+            }
+            return new CSVSchema(names, types);
+        }
+        
+        private static ColumnType decide(int[] count) {
+            int nonEmpty = count[NON_EMPTY];
+            int numbers = count[INTS] + count[LONGS] + count[DECIMALS];
+            if (nonEmpty == 0) {
+                return ColumnType.DOUBLE;
+            }
+            if (numbers >= NUMERIC_SHARE * nonEmpty) {
+                if (count[DECIMALS] > 0) {
+                    return ColumnType.DOUBLE;
+                }
+                return count[LONGS] > 0 ? ColumnType.LONG : ColumnType.INT;
+            }
+            if (count[DATES] == nonEmpty) {
+                return ColumnType.DATE;
+            }
+            if (count[BOOLEANS] == nonEmpty) {
+                return ColumnType.BOOLEAN;
+            }
+            return ColumnType.CATEGORICAL;
+        }
+    }
+    
+    /**
+     * Index of a boolean spelling (odd = true), or -1
+     */
+    /**
+     * Start of a cell's value without leading spaces and tabs. Unquoted
+     * cells come trimmed from the tokenizer; quoted ones (" 5") don't, and
+     * are trimmed like this before reading a number, date or boolean, as
+     * the old line-splitting loader trimmed every cell.
+     */
+    static int valueStart(byte[] buf, int start, int end) {
+        while (start < end && (buf[start] == ' ' || buf[start] == '\t')) {
+            start++;
+        }
+        return start;
+    }
+    
+    /**
+     * End of a cell's value without trailing spaces and tabs
+     */
+    static int valueEnd(byte[] buf, int start, int end) {
+        while (end > start && (buf[end - 1] == ' ' || buf[end - 1] == '\t')) {
+            end--;
+        }
+        return end;
+    }
+    
+    static int parseBoolean(byte[] buf, int start, int end) {
+        int length = end - start;
+        if (length != 4 && length != 5) {
+            return -1;
+        }
+        for (int word = 0; word < BOOLEAN_WORDS.length; word++) {
+            byte[] spelling = BOOLEAN_WORDS[word];
+            if (spelling.length == length && Arrays.equals(spelling, 0, length, buf, start, end)) {
+                return word;
+            }
+        }
+        return -1;
+    }
+    
+    static String booleanWord(int word) {
+        return BOOLEAN_STRINGS[word];
+    }
+    
+    /**
+     * Days since 1970-01-01 of a yyyy-MM-dd date, or NO_DATE
+     */
+    static int parseDate(byte[] buf, int start, int end) {
+        if (end - start != 10 || buf[start + 4] != '-' || buf[start + 7] != '-') {
+            return NO_DATE;
+        }
+        int year = digits(buf, start, 4);
+        int month = digits(buf, start + 5, 2);
+        int day = digits(buf, start + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1) {
+            return NO_DATE;
+        }
+        boolean leap = (year % 4 == 0 && year % 100 != 0) || year % 400 == 0;
+        int monthLength = month == 2 ? (leap ? 29 : 28) : (month == 4 || month == 6 || month == 9 || month == 11) ? 30 : 31;
+        if (day > monthLength) {
+            return NO_DATE;
+        }
+        
+        // Days from the civil calendar (years counted from March)
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month + (month > 2 ? -3 : 9)) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097 + dayOfEra - 719468;
+    }
+    
+    static String formatDate(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+    
+    /**
+     * Value of count ASCII digits, or -1 if any isn't a digit
+     */
+    private static int digits(byte[] buf, int start, int count) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = buf[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+}
@@ -0,0 +1,269 @@
+package io;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * CSV TOKENIZER
+ * 
+ * Purpose: Split a CSV byte stream into cells without building lines or
+ * Strings
+ * Think of it like: A cashier scanning items straight off the conveyor
+ * belt instead of unpacking every bag onto the counter first
+ * 
+ * How it works:
+ * - Reads the stream in large blocks into one reusable byte buffer
+ * - A small state machine finds cell boundaries; each cell is handed to
+ *   the CellHandler as a slice (start, end) of that buffer - zero copies,
+ *   zero allocations per cell
+ * - Quoted fields may contain commas, line breaks and doubled quotes ("");
+ *   the doubled quotes are collapsed in place inside the buffer
+ * - Unquoted cells are trimmed of spaces and tabs; blank lines are skipped;
+ *   \n, \r\n and \r all end a row
+ * - Delimiters, quotes and line breaks are ASCII, so UTF-8 text passes
+ *   through untouched
+ * 
+ * A slice is only valid during the handler call (the buffer is reused).
+ */
+public class CSVTokenizer {
+    
+    /**
+     * Receives the cells of each row in order
+     */
+    public interface CellHandler {
+        /**
+         * One cell: bytes [start, end) of buf; quoted tells whether it was
+         * written in quotes
+         */
+        void cell(byte[] buf, int start, int end, boolean quoted);
+        
+        /**
+         * The current row is complete
+         */
+        void endRow();
+    }
+    
+    private static final int DEFAULT_BUFFER_SIZE = 1 << 20;
+    
+    private final InputStream in;
+    private final byte delimiter;
+    private byte[] buf;
+    private int pos;       // next byte to read
+    private int limit;     // end of valid bytes in buf
+    private int mark;      // bytes from here on must survive a refill
+    private boolean eof;
+    private long bytesRead;
+    private boolean skipByteOrderMark = true;
+    private boolean endedInsideQuotes;
+    private boolean stopped;
+    
+    public CSVTokenizer(InputStream in) {
+        this(in, (byte) ',');
+    }
+    
+    public CSVTokenizer(InputStream in, byte delimiter) {
+        this(in, delimiter, DEFAULT_BUFFER_SIZE);
+    }
+    
+    public CSVTokenizer(InputStream in, byte delimiter, int bufferSize) {
+        this.in = in;
+        this.delimiter = delimiter;
+        this.buf = new byte[Math.max(bufferSize, 64)];
+    }
+    
+    /**
+     * Whether a leading UTF-8 byte order mark is dropped (default true; off
+     * for streams that start in the middle of a file)
+     */
+    public void setSkipByteOrderMark(boolean skipByteOrderMark) {
+        this.skipByteOrderMark = skipByteOrderMark;
+    }
+    
+    /**
+     * Tokenize the whole stream (the caller closes it)
+     */
+    public void parse(CellHandler handler) throws IOException {
+        // Skip a UTF-8 byte order mark
+        mark = pos;
+        if (skipByteOrderMark && available() && buf[pos] == (byte) 0xEF) {
+            pos++;
+            if (available() && buf[pos] == (byte) 0xBB) {
+                pos++;
+                if (available() && buf[pos] == (byte) 0xBF) {
+                    pos++;
+                } else {
+                    pos = mark;
+                }
+            } else {
+                pos = mark;
+            }
+        }
+        
+        while (true) {
+            // Skip blank lines (including ones that are only spaces/tabs)
+            while (true) {
+                mark = pos;
+                if (!available()) {
+                    return;
+                }
+                byte b = buf[pos];
+                if (b != '\n' && b != '\r' && b != ' ' && b != '\t') {
+                    break;
+                }
+                pos++;
+            }
+            readRow(handler);
+            if (stopped) {
+                return;
+            }
+        }
+    }
+    
+    /**
+     * Called from a handler: finish after the current row (e.g. once a
+     * sample has been read)
+     */
+    public void stop() {
+        stopped = true;
+    }
+    
+    /**
+     * Read the cells of one (non-blank) row, including its line break
+     */
+    private void readRow(CellHandler handler) throws IOException {
+        while (true) {
+            // Leading whitespace
+            mark = pos;
+            while (available() && (buf[pos] == ' ' || buf[pos] == '\t')) {
+                pos++;
+                mark = pos;
+            }
+            
+            if (available() && buf[pos] == '"') {
+                // Content is written back to mark + 1 with "" collapsed to "
+                pos++;
+                int written = 0;
+                boolean closed = false;
+                while (available()) {
+                    byte b = buf[pos++];
+                    if (b == '"') {
+                        if (available() && buf[pos] == '"') {
+                            buf[mark + 1 + written++] = '"';
+                            pos++;
+                            continue;
+                        }
+                        closed = true;
+                        break;
+                    }
+                    buf[mark + 1 + written++] = b;
+                }
+                endedInsideQuotes |= !closed;
+                
+                // Ignore anything between the closing quote and the delimiter
+                while (available() && !isCellEnd(buf[pos])) {
+                    pos++;
+                }
+                handler.cell(buf, mark + 1, mark + 1 + written, true);
+            } else {
+                // Hot loop: scan the buffered bytes, refilling only at the end
+                while (true) {
+                    int p = pos;
+                    int l = limit;
+                    while (p < l && !isCellEnd(buf[p])) {
+                        p++;
+                    }
+                    pos = p;
+                    if (p < l || !available()) {
+                        break;
+                    }
+                }
+                int end = pos;
+                while (end > mark && (buf[end - 1] == ' ' || buf[end - 1] == '\t')) {
+                    end--;
+                }
+                handler.cell(buf, mark, end, false);
+            }
+            
+            // Delimiter: next cell; line break or end of input: end of row
+            mark = pos;
+            if (!available()) {
+                handler.endRow();
+                return;
+            }
+            byte b = buf[pos++];
+            if (b == delimiter) {
+                continue;
+            }
+            if (b == '\r' && available() && buf[pos] == '\n') {
+                pos++;
+            }
+            handler.endRow();
+            return;
+        }
+    }
+    
+    private boolean isCellEnd(byte b) {
+        return b == delimiter || b == '\n' || b == '\r';
+    }
+    
+    /**
+     * True if a byte is available at pos, reading more input if needed
+     */
+    private boolean available() throws IOException {
+        while (pos >= limit) {
+            if (eof) {
+                return false;
+            }
+            refill();
+        }
+        return true;
+    }
+    
+    /**
+     * Drop the bytes before mark (or grow the buffer if there are none to
+     * drop) and read the next block
+     */
+    private void refill() throws IOException {
+        if (mark > 0) {
+            System.arraycopy(buf, mark, buf, 0, limit - mark);
+            limit -= mark;
+            pos -= mark;
+            mark = 0;
+        } else if (limit == buf.length) {
+            byte[] bigger = new byte[buf.length * 2];
+            System.arraycopy(buf, 0, bigger, 0, limit);
+            buf = bigger;
+        }
+        
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+        } else {
+            limit += n;
+            bytesRead += n;
+        }
+    }
+    
+    /**
+     * True if the input ran out inside a quoted field (the field is still
+     * delivered, holding everything up to the end)
+     */
+    public boolean endedInsideQuotes() {
+        return endedInsideQuotes;
+    }
+    
+    /**
+     * Position in the stream of buf[index], for a slice the handler was
+     * just given (e.g. to remember where a row starts)
+     */
+    public long offsetOf(int index) {
+        return bytesRead - limit + index;
+    }
+    
+    /**
+     * Bytes consumed from the stream so far (for progress reporting)
+     */
+    public long getBytesRead() {
+        return bytesRead;
+    }
+}
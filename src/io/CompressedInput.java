@@ -0,0 +1,266 @@
+package io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PushbackInputStream;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * COMPRESSED INPUT
+ * 
+ * Purpose: Read gzip, zip and deflate files as if they were plain CSV
+ * Think of it like: A parcel opener in front of the mail sorter - sealed
+ * parcels get opened, loose letters go straight through
+ * 
+ * Real-life analogy: Like a kitchen helper who unpacks the groceries while
+ * the cook is already chopping the first bag, instead of the cook waiting
+ * until every bag is unpacked
+ * 
+ * How it works:
+ * - The first bytes are checked for a known signature: 1F 8B is gzip,
+ *   "PK\3\4" is a zip archive (its first file is read), and a zlib
+ *   header (78 01, 78 9C or 78 DA) is deflate data
+ * - Anything else is returned unchanged (the peeked bytes are put back)
+ * - Compressed data is inflated on its own thread into one of two
+ *   buffers while the parser reads the other; the buffers are swapped
+ *   through two small queues, so inflating and parsing overlap
+ * The 78 5E zlib header is not detected, because "x^" could start a CSV.
+ */
+public class CompressedInput {
+    
+    /**
+     * How a stream is compressed
+     */
+    public enum Format {
+        NONE,
+        GZIP,
+        ZIP,
+        ZLIB
+    }
+    
+    private static final int SIGNATURE_BYTES = 4;
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final long CLOSE_WAIT_MS = 1000;
+    
+    /**
+     * Format of a stream from its first bytes
+     */
+    public static Format detect(byte[] head, int length) {
+        int b0 = length > 0 ? head[0] & 0xFF : -1;
+        int b1 = length > 1 ? head[1] & 0xFF : -1;
+        if (b0 == 0x1F && b1 == 0x8B) {
+            return Format.GZIP;
+        }
+        if (length >= 4 && b0 == 'P' && b1 == 'K' && head[2] == 3 && head[3] == 4) {
+            return Format.ZIP;
+        }
+        if (b0 == 0x78 && (b1 == 0x01 || b1 == 0x9C || b1 == 0xDA)) {
+            return Format.ZLIB;
+        }
+        return Format.NONE;
+    }
+    
+    /**
+     * True if a file starts with a compression signature
+     */
+    public static boolean isCompressed(String filename) throws IOException {
+        try (InputStream in = new FileInputStream(filename)) {
+            byte[] head = new byte[SIGNATURE_BYTES];
+            int length = in.readNBytes(head, 0, head.length);
+            return detect(head, length) != Format.NONE;
+        }
+    }
+    
+    /**
+     * The decompressed content of a stream (or the stream itself, if it
+     * isn't compressed). Closing the result closes the original stream.
+     */
+    public static InputStream open(InputStream in) throws IOException {
+        PushbackInputStream peek = new PushbackInputStream(in, SIGNATURE_BYTES);
+        byte[] head = new byte[SIGNATURE_BYTES];
+        int length = 0;
+        while (length < head.length) {
+            int n = peek.read(head, length, head.length - length);
+            if (n < 0) {
+                break;
+            }
+            length += n;
+        }
+        peek.unread(head, 0, length);
+        
+        switch (detect(head, length)) {
+            case GZIP:
+                return new PipeInputStream(new GZIPInputStream(peek, 1 << 16));
+            case ZIP:
+                ZipInputStream zip = new ZipInputStream(peek);
+                ZipEntry entry = zip.getNextEntry();
+                while (entry != null && entry.isDirectory()) {
+                    entry = zip.getNextEntry();
+                }
+                if (entry == null) {
+                    zip.close();
+                    throw new IOException("Zip archive contains no file");
+                }
+                return new PipeInputStream(zip);
+            case ZLIB:
+                return new PipeInputStream(new InflaterInputStream(peek, new Inflater(), 1 << 16));
+            default:
+                return peek;
+        }
+    }
+    
+    /**
+     * Reads a source stream on a background thread, handing over full
+     * buffers; two buffers circulate, one being filled while the other is
+     * read
+     */
+    private static class PipeInputStream extends InputStream {
+        private final InputStream source;
+        private final BlockingQueue<Chunk> empty = new ArrayBlockingQueue<>(2);
+        private final BlockingQueue<Chunk> full = new ArrayBlockingQueue<>(2);
+        private final Thread producer;
+        private Chunk current;
+        private int pos;
+        private boolean done;
+        private volatile boolean closed;
+        
+        // A buffer and how much of it holds data; length -1 marks the end,
+        // error (if set) is rethrown to the reader
+        private static class Chunk {
+            final byte[] data = new byte[BUFFER_SIZE];
+            int length;
+            IOException error;
+        }
+        
+        PipeInputStream(InputStream source) {
+            this.source = source;
+            empty.add(new Chunk());
+            empty.add(new Chunk());
+            producer = new Thread(this::produce, "yota-decompress");
+            producer.setDaemon(true);
+            producer.start();
+        }
+        
+        private void produce() {
+            try {
+                while (!closed) {
+                    Chunk chunk = empty.take();
+                    chunk.length = 0;
+                    try {
+                        while (chunk.length < chunk.data.length) {
+                            int n = source.read(chunk.data, chunk.length, chunk.data.length - chunk.length);
+                            if (n < 0) {
+                                break;
+                            }
+                            chunk.length += n;
+                        }
+                    } catch (IOException e) {
+                        chunk.error = e;
+                    }
+                    boolean end = chunk.error != null || chunk.length < chunk.data.length;
+                    if (chunk.length == 0 && chunk.error == null) {
+                        chunk.length = -1;
+                    }
+                    full.put(chunk);
+                    if (end) {
+                        if (chunk.length > 0) {
+                            Chunk last = empty.take();
+                            last.length = -1;
+                            full.put(last);
+                        }
+                        return;
+                    }
+                }
+            } catch (InterruptedException e) {
+                // Closed by the reader
+            } catch (RuntimeException e) {
+                // The reader closed the source mid-read (a closed Inflater
+                // fails with an unchecked exception); anything else is a bug
+                if (!closed) {
+                    throw e;
+                }
+            }
+        }
+        
+        /**
+         * Make sure current has unread bytes; false at the end
+         */
+        private boolean nextChunk() throws IOException {
+            if (done) {
+                return false;
+            }
+            if (current != null && pos < current.length) {
+                return true;
+            }
+            try {
+                if (current != null) {
+                    empty.put(current);
+                    current = null;
+                }
+                Chunk chunk = full.take();
+                if (chunk.error != null) {
+                    done = true;
+                    throw chunk.error;
+                }
+                if (chunk.length < 0) {
+                    done = true;
+                    return false;
+                }
+                current = chunk;
+                pos = 0;
+                return true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Decompression interrupted");
+            }
+        }
+        
+        @Override
+        public int read() throws IOException {
+            return nextChunk() ? current.data[pos++] & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (len == 0) {
+                return 0;
+            }
+            if (!nextChunk()) {
+                return -1;
+            }
+            int n = Math.min(len, current.length - pos);
+            System.arraycopy(current.data, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+        
+        @Override
+        public void close() throws IOException {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            done = true;
+            // Closing the source first unblocks a producer stuck in read()
+            // (e.g. on a socket); the interrupt covers one waiting for a buffer
+            try {
+                source.close();
+            } finally {
+                producer.interrupt();
+                try {
+                    producer.join(CLOSE_WAIT_MS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,356 @@
+package io;
+
+import core.Dataset;
+import io.CSVSchema.ColumnType;
+import io.ColumnarTable.Column;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+
+/**
+ * LAZY CSV TABLE
+ * 
+ * Purpose: Load only the columns a model actually uses from a wide CSV
+ * file, and the others only if someone asks for them later
+ * Think of it like: A table of contents for the file - you note where
+ * every row starts once, then read just the parts you need
+ * 
+ * Real-life analogy: Like a phone book where you only copy out the names
+ * and numbers, skipping the addresses, and go back for an address only
+ * when you need one
+ * 
+ * How it works:
+ * - open() makes one pass with CSVTokenizer (so rows are split exactly as
+ *   readCSV splits them) that records where each row starts and parses
+ *   only the cells of the columns asked for up front; the other cells are
+ *   passed over. Column types are sampled from the head of the file
+ *   (CSVSchema), as for readCSV
+ * - getColumn() / load() parse more columns later: each row is read from
+ *   its start up to the last wanted cell, and the rest of the row is
+ *   skipped by jumping straight to the next row's start
+ * - Columns already parsed are kept, so asking again is free; several
+ *   columns asked for together are parsed in one pass
+ * Memory is 8 bytes per row for the row starts, plus the parsed columns.
+ * The file must be a plain CSV file (compressed data can't be jumped
+ * into), and it must not change while the table is in use.
+ */
+public class LazyCSVTable {
+    
+    private static final int BUFFER_SIZE = 1 << 20;
+    
+    private final String filename;
+    private final CSVSchema schema;
+    private final Map<String, Integer> columnIndex = new HashMap<>();
+    private final Column[] columns;
+    private long[] rowStarts;      // rowStarts[numRows] is the end of the data
+    private int numRows;
+    
+    private LazyCSVTable(String filename, CSVSchema schema) {
+        this.filename = filename;
+        this.schema = schema;
+        this.columns = new Column[schema.getNumColumns()];
+        for (int c = schema.getNumColumns() - 1; c >= 0; c--) {
+            columnIndex.put(schema.getColumnName(c), c);   // first of duplicate names wins
+        }
+    }
+    
+    /**
+     * Index a CSV file's rows, parsing the named columns on the way (none
+     * if no names are given)
+     */
+    public static LazyCSVTable open(String filename, String... columns) throws IOException {
+        return open(filename, null, columns);
+    }
+    
+    /**
+     * Index a CSV file and parse the named columns; overrides (column name
+     * -> type) replace inferred types
+     */
+    public static LazyCSVTable open(String filename, Map<String, ColumnType> overrides,
+                                    String... columns) throws IOException {
+        if (CompressedInput.isCompressed(filename)) {
+            throw new IOException(filename + " is compressed; only plain CSV files can be loaded lazily");
+        }
+        CSVSchema schema;
+        try (InputStream head = new FileInputStream(filename)) {
+            schema = CSVSchema.sample(head, overrides);
+        }
+        
+        LazyCSVTable table = new LazyCSVTable(filename, schema);
+        Column[] targets = new Column[schema.getNumColumns()];
+        for (String name : columns) {
+            int column = table.indexOf(name);
+            targets[column] = new Column(schema.getType(column));
+        }
+        try (InputStream in = new FileInputStream(filename)) {
+            CSVTokenizer tokenizer = new CSVTokenizer(in);
+            tokenizer.parse(table.new RowIndexer(tokenizer, targets));
+            table.rowStarts[table.numRows] = tokenizer.getBytesRead();
+        }
+        System.arraycopy(targets, 0, table.columns, 0, targets.length);
+        return table;
+    }
+    
+    public int getNumRows() {
+        return numRows;
+    }
+    
+    /**
+     * Number of columns named in the header
+     */
+    public int getNumColumns() {
+        return columns.length;
+    }
+    
+    public String getColumnName(int column) {
+        return schema.getColumnName(column);
+    }
+    
+    /**
+     * Index of a column by header name, or -1
+     */
+    public int getColumnIndex(String name) {
+        Integer column = columnIndex.get(name);
+        return column != null ? column : -1;
+    }
+    
+    /**
+     * Types sampled from the head of the file (a parsed INT or LONG column
+     * may turn out wider)
+     */
+    public CSVSchema getSchema() {
+        return schema;
+    }
+    
+    public synchronized boolean isLoaded(int column) {
+        return columns[column] != null;
+    }
+    
+    /**
+     * A column, parsed now if this is the first time it is asked for
+     */
+    public synchronized Column getColumn(int column) throws IOException {
+        if (columns[column] == null) {
+            load(new int[] {column});
+        }
+        return columns[column];
+    }
+    
+    public Column getColumn(String name) throws IOException {
+        return getColumn(indexOf(name));
+    }
+    
+    /**
+     * Parse the named columns that aren't loaded yet, all in one pass
+     */
+    public synchronized void load(String... names) throws IOException {
+        int[] wanted = new int[names.length];
+        for (int i = 0; i < names.length; i++) {
+            wanted[i] = indexOf(names[i]);
+        }
+        load(wanted);
+    }
+    
+    /**
+     * A table of just the named columns, in the given order (the last one
+     * is the class, as the last header column is for readCSV)
+     */
+    public synchronized ColumnarTable toTable(String... names) throws IOException {
+        load(names);
+        List<String> columnNames = new ArrayList<>();
+        List<Column> projected = new ArrayList<>();
+        for (String name : names) {
+            columnNames.add(name);
+            projected.add(columns[indexOf(name)]);
+        }
+        return ColumnarTable.fromColumns(columnNames, projected, numRows, names.length, null);
+    }
+    
+    /**
+     * A Dataset of just the named columns (the last one is the class)
+     */
+    public Dataset toDataset(String name, String... columnNames) throws IOException {
+        return toTable(columnNames).toDataset(name);
+    }
+    
+    private int indexOf(String name) {
+        int column = getColumnIndex(name);
+        if (column < 0) {
+            throw new IllegalArgumentException("No column named '" + name + "' in " + filename);
+        }
+        return column;
+    }
+    
+    /**
+     * Parse the given columns (those not loaded yet) by walking every row
+     * up to the last of them
+     */
+    private void load(int[] wanted) throws IOException {
+        Column[] targets = new Column[columns.length];
+        int last = -1;
+        for (int column : wanted) {
+            if (columns[column] == null && targets[column] == null) {
+                targets[column] = new Column(schema.getType(column));
+                last = Math.max(last, column);
+            }
+        }
+        if (last < 0) {
+            return;
+        }
+        
+        NumericParser parser = new NumericParser();
+        byte[] buf = new byte[BUFFER_SIZE];
+        long bufStart = 0;      // file position of buf[0]
+        int bufLength = 0;
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            for (int r = 0; r < numRows; r++) {
+                // Make sure the whole row is in the buffer
+                long rowStart = rowStarts[r];
+                long rowEnd = rowStarts[r + 1];
+                if (rowEnd > bufStart + bufLength) {
+                    int keep = (int) Math.max(0, bufStart + bufLength - rowStart);
+                    System.arraycopy(buf, bufLength - keep, buf, 0, keep);
+                    bufStart = rowStart;
+                    bufLength = keep;
+                    if (rowEnd - rowStart > buf.length) {
+                        buf = Arrays.copyOf(buf, (int) Math.max(rowEnd - rowStart, buf.length * 2L));
+                    }
+                    while (bufStart + bufLength < rowEnd) {
+                        int n = channel.read(ByteBuffer.wrap(buf, bufLength, buf.length - bufLength), bufStart + bufLength);
+                        if (n < 0) {
+                            throw new IOException(filename + " changed since it was opened");
+                        }
+                        bufLength += n;
+                    }
+                }
+                int cells = readRow(buf, (int) (rowStart - bufStart), (int) (rowEnd - bufStart), targets, last, parser);
+                for (int c = cells; c <= last; c++) {
+                    if (targets[c] != null) {
+                        targets[c].appendMissing();
+                    }
+                }
+            }
+        }
+        
+        for (int c = 0; c <= last; c++) {
+            if (targets[c] != null) {
+                columns[c] = targets[c];
+            }
+        }
+    }
+    
+    /**
+     * Split one row (buf[start, end)) into cells the way CSVTokenizer does,
+     * up to cell number last, handing the wanted ones to their columns.
+     * Returns the number of cells read.
+     */
+    private static int readRow(byte[] buf, int start, int end, Column[] targets, int last, NumericParser parser) {
+        int p = start;
+        for (int c = 0; c <= last; c++) {
+            while (p < end && (buf[p] == ' ' || buf[p] == '\t')) {
+                p++;
+            }
+            
+            int cellStart;
+            int cellEnd;
+            if (p < end && buf[p] == '"') {
+                // Quoted: collapse "" to " in place
+                p++;
+                cellStart = p;
+                int written = p;
+                while (p < end) {
+                    byte b = buf[p++];
+                    if (b == '"') {
+                        if (p < end && buf[p] == '"') {
+                            buf[written++] = '"';
+                            p++;
+                            continue;
+                        }
+                        break;
+                    }
+                    buf[written++] = b;
+                }
+                cellEnd = written;
+                while (p < end && !isCellEnd(buf[p])) {
+                    p++;
+                }
+            } else {
+                cellStart = p;
+                while (p < end && !isCellEnd(buf[p])) {
+                    p++;
+                }
+                cellEnd = p;
+                while (cellEnd > cellStart && (buf[cellEnd - 1] == ' ' || buf[cellEnd - 1] == '\t')) {
+                    cellEnd--;
+                }
+            }
+            
+            if (targets[c] != null) {
+                targets[c].appendCell(buf, cellStart, cellEnd, parser);
+            }
+            if (p >= end || buf[p] != ',') {
+                return c + 1;             // line break or end of data
+            }
+            p++;
+        }
+        return last + 1;
+    }
+    
+    private static boolean isCellEnd(byte b) {
+        return b == ',' || b == '\n' || b == '\r';
+    }
+    
+    /**
+     * First pass: remembers where each data row starts (skipping the
+     * header) and parses the cells of the target columns
+     */
+    private class RowIndexer implements CSVTokenizer.CellHandler {
+        private final CSVTokenizer tokenizer;
+        private final NumericParser parser = new NumericParser();
+        private final Column[] targets;    // null where a column is skipped
+        private boolean header = true;
+        private int column;
+        
+        RowIndexer(CSVTokenizer tokenizer, Column[] targets) {
+            this.tokenizer = tokenizer;
+            this.targets = targets;
+            rowStarts = new long[1024];
+        }
+        
+        @Override
+        public void cell(byte[] buf, int start, int end, boolean quoted) {
+            if (header) {
+                return;
+            }
+            if (column == 0) {
+                if (numRows + 1 == rowStarts.length) {
+                    rowStarts = Arrays.copyOf(rowStarts, rowStarts.length * 2);
+                }
+                // A quoted cell's slice starts after its opening quote
+                rowStarts[numRows++] = tokenizer.offsetOf(quoted ? start - 1 : start);
+            }
+            if (column < targets.length && targets[column] != null) {
+                targets[column].appendCell(buf, start, end, parser);
+            }
+            column++;
+        }
+        
+        @Override
+        public void endRow() {
+            if (!header) {
+                for (int c = column; c < targets.length; c++) {
+                    if (targets[c] != null) {
+                        targets[c].appendMissing();
+                    }
+                }
+            }
+            header = false;
+            column = 0;
+        }
+    }
+}
@@ -0,0 +1,421 @@
+package io;
+
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * NUMERIC PARSER
+ * 
+ * Purpose: Turn the bytes of one CSV cell into a double without creating
+ * a String and without using exceptions for cells that aren't numbers
+ * Think of it like: Reading a price tag digit by digit instead of
+ * photocopying it first
+ * 
+ * Accepts exactly what Double.parseDouble accepts (decimal notation with
+ * optional sign, fraction, exponent and d/f suffix, plus NaN, Infinity and
+ * hex floats), so switching to it never changes which cells count as
+ * numbers - but a cell that isn't a number just returns false, nothing is
+ * thrown. Results are correctly rounded, bit for bit equal to the JDK:
+ * - short decimals (at most 19 digits, mantissa up to 2^53, power of ten
+ *   within +-22) need a single exact multiply or divide
+ * - other decimals use the Eisel-Lemire algorithm (as in fast_float):
+ *   one 64x128-bit multiply by a table value of 5^q, which decides the
+ *   rounding for any mantissa of up to 19 digits
+ * - longer mantissas are cut to 19 digits; if rounding the cut and the
+ *   cut + 1 agree, that is the answer, otherwise (rare) the already
+ *   validated text goes to Double.parseDouble, as do hex floats
+ * 
+ * parseInteger() recognizes plain whole numbers for typed integer columns.
+ * 
+ * Usage: if (parser.parse(buf, start, end)) { double x = parser.getValue(); }
+ */
+public class NumericParser {
+    
+    private static final double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_DIGITS = 19;
+    
+    // Eisel-Lemire table: 5^q as a normalized 128-bit value (high, low),
+    // truncated for q >= 0 and rounded up for q < 0
+    private static final int MIN_POWER = -342;
+    private static final int MAX_POWER = 308;
+    private static final long[] POWERS_OF_FIVE = buildPowersOfFive();
+    
+    private static final long INFINITY_BITS = 0x7FFL << 52;
+    private static final byte[] NAN = "NaN".getBytes(StandardCharsets.ISO_8859_1);
+    private static final byte[] INFINITY = "Infinity".getBytes(StandardCharsets.ISO_8859_1);
+    
+    private double value;
+    private long longValue;
+    private byte[] scratch = new byte[32];  // reused by parse(String)
+    
+    /**
+     * Parse bytes [start, end) (already trimmed); returns false if they are
+     * not a number
+     */
+    public boolean parse(byte[] buf, int start, int end) {
+        int p = start;
+        if (p >= end) {
+            return false;
+        }
+        boolean negative = false;
+        if (buf[p] == '-' || buf[p] == '+') {
+            negative = buf[p] == '-';
+            p++;
+        }
+        if (p >= end) {
+            return false;
+        }
+        
+        byte first = buf[p];
+        if (first == 'N' || first == 'I') {
+            return parseNamed(buf, p, end, negative);
+        }
+        if (first == '0' && p + 1 < end && (buf[p + 1] | 0x20) == 'x') {
+            return parseHex(buf, start, p + 2, end);
+        }
+        
+        // [digits] [. digits] [e [sign] digits] [dDfF]
+        // Digits are accumulated without overflow checks; with more than 19
+        // of them (rare) the mantissa is rebuilt by parseLongMantissa
+        long mantissa = 0;
+        int integerStart = p;
+        while (p < end && isDigit(buf[p])) {
+            mantissa = mantissa * 10 + (buf[p] - '0');
+            p++;
+        }
+        int digits = p - integerStart;
+        int exponent = 0;
+        if (p < end && buf[p] == '.') {
+            p++;
+            int fractionStart = p;
+            while (p < end && isDigit(buf[p])) {
+                mantissa = mantissa * 10 + (buf[p] - '0');
+                p++;
+            }
+            exponent = fractionStart - p;
+            digits += p - fractionStart;
+        }
+        if (digits == 0) {
+            return false;
+        }
+        int digitsEnd = p;
+        
+        int explicitExponent = 0;
+        if (p < end && (buf[p] == 'e' || buf[p] == 'E')) {
+            p++;
+            boolean negativeExponent = false;
+            if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+                negativeExponent = buf[p] == '-';
+                p++;
+            }
+            int exponentStart = p;
+            while (p < end && isDigit(buf[p])) {
+                if (explicitExponent < 100000) {
+                    explicitExponent = explicitExponent * 10 + (buf[p] - '0');
+                }
+                p++;
+            }
+            if (p == exponentStart) {
+                return false;
+            }
+            if (negativeExponent) {
+                explicitExponent = -explicitExponent;
+            }
+        }
+        if (p < end && (buf[p] == 'd' || buf[p] == 'D' || buf[p] == 'f' || buf[p] == 'F')) {
+            p++;
+        }
+        if (p != end) {
+            return false;
+        }
+        
+        // Valid decimal from here on: nothing below can fail
+        if (digits <= MAX_DIGITS) {
+            exponent += explicitExponent;
+            if (mantissa >= 0 && mantissa <= MAX_EXACT_MANTISSA && exponent >= -22 && exponent <= 22) {
+                double m = mantissa;
+                value = exponent >= 0 ? m * POWERS_OF_TEN[exponent] : m / POWERS_OF_TEN[-exponent];
+            } else {
+                value = Double.longBitsToDouble(eiselLemire(mantissa, exponent));
+            }
+        } else {
+            value = parseLongMantissa(buf, integerStart, digitsEnd, explicitExponent, start, end);
+        }
+        if (negative) {
+            value = -value;
+        }
+        return true;
+    }
+    
+    /**
+     * Parse a plain integer: optional sign and 1-18 digits (so it always fits
+     * a long). "-0" is refused because its double value is -0.0.
+     */
+    public boolean parseInteger(byte[] buf, int start, int end) {
+        int p = start;
+        boolean negative = false;
+        if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+            negative = buf[p] == '-';
+            p++;
+        }
+        if (end - p < 1 || end - p > 18) {
+            return false;
+        }
+        long result = 0;
+        for (; p < end; p++) {
+            int digit = buf[p] - '0';
+            if (digit < 0 || digit > 9) {
+                return false;
+            }
+            result = result * 10 + digit;
+        }
+        if (negative) {
+            if (result == 0) {
+                return false;
+            }
+            result = -result;
+        }
+        longValue = result;
+        value = result;
+        return true;
+    }
+    
+    /**
+     * Parse a whole string (trimmed by the caller)
+     */
+    public boolean parse(String text) {
+        int length = text.length();
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, scratch.length * 2)];
+        }
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            scratch[i] = c < 0x80 ? (byte) c : (byte) '?'; // never part of a number
+        }
+        return parse(scratch, 0, length);
+    }
+    
+    /**
+     * Magnitude of a decimal with more than 19 digits: leading zeros don't
+     * count, and beyond 19 significant digits the mantissa is truncated
+     */
+    private static double parseLongMantissa(byte[] buf, int from, int to, int explicitExponent,
+                                            int start, int end) {
+        long mantissa = 0;
+        int taken = 0;
+        int exponent = explicitExponent;
+        boolean fraction = false;
+        boolean dropped = false;
+        for (int p = from; p < to; p++) {
+            if (buf[p] == '.') {
+                fraction = true;
+                continue;
+            }
+            int digit = buf[p] - '0';
+            if (taken < MAX_DIGITS) {
+                if (mantissa != 0 || digit != 0) {
+                    mantissa = mantissa * 10 + digit;
+                    taken++;
+                }
+                if (fraction) {
+                    exponent--;
+                }
+            } else {
+                if (!fraction) {
+                    exponent++;
+                }
+                dropped |= digit != 0;
+            }
+        }
+        
+        long bits = eiselLemire(mantissa, exponent);
+        if (dropped && bits != eiselLemire(mantissa + 1, exponent)) {
+            // The true value lies between two cut mantissas that round differently
+            return Math.abs(Double.parseDouble(new String(buf, start, end - start, StandardCharsets.ISO_8859_1)));
+        }
+        return Double.longBitsToDouble(bits);
+    }
+    
+    /**
+     * Eisel-Lemire: bits of the double nearest to w * 10^q, for w read as
+     * an unsigned 64-bit integer of at most 19 decimal digits
+     */
+    private static long eiselLemire(long w, int q) {
+        if (w == 0 || q < MIN_POWER) {
+            return 0;
+        }
+        if (q > MAX_POWER) {
+            return INFINITY_BITS;
+        }
+        
+        int leadingZeros = Long.numberOfLeadingZeros(w);
+        w <<= leadingZeros;
+        int index = 2 * (q - MIN_POWER);
+        long high = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index]);
+        long low = w * POWERS_OF_FIVE[index];
+        if ((high & 0x1FF) == 0x1FF) {
+            // The low half of 5^q could still carry into the bits we keep
+            long lowHigh = unsignedMultiplyHigh(w, POWERS_OF_FIVE[index + 1]);
+            low += lowHigh;
+            if (Long.compareUnsigned(lowHigh, low) > 0) {
+                high++;
+            }
+        }
+        
+        int upperBit = (int) (high >>> 63);
+        long mantissa = high >>> (upperBit + 9);
+        int power2 = ((217706 * q) >> 16) + 63 + upperBit - leadingZeros + 1023;
+        
+        if (power2 <= 0) {
+            // Subnormal (or zero)
+            if (-power2 + 1 >= 64) {
+                return 0;
+            }
+            mantissa >>>= -power2 + 1;
+            mantissa += mantissa & 1;
+            mantissa >>>= 1;
+            power2 = mantissa < (1L << 52) ? 0 : 1;
+            return ((long) power2 << 52) | (mantissa & ((1L << 52) - 1));
+        }
+        
+        // Exactly halfway between two doubles: round to even
+        if (Long.compareUnsigned(low, 1) <= 0 && q >= -4 && q <= 23 && (mantissa & 3) == 1
+                && (mantissa << (upperBit + 9)) == high) {
+            mantissa &= ~1L;
+        }
+        mantissa += mantissa & 1;
+        mantissa >>>= 1;
+        if (mantissa >= (2L << 52)) {
+            mantissa = 1L << 52;
+            power2++;
+        }
+        if (power2 >= 0x7FF) {
+            return INFINITY_BITS;
+        }
+        return ((long) power2 << 52) | (mantissa & ((1L << 52) - 1));
+    }
+    
+    private static long unsignedMultiplyHigh(long x, long y) {
+        return Math.multiplyHigh(x, y) + ((x >> 63) & y) + ((y >> 63) & x);
+    }
+    
+    private static long[] buildPowersOfFive() {
+        long[] table = new long[2 * (MAX_POWER - MIN_POWER + 1)];
+        BigInteger five = BigInteger.valueOf(5);
+        for (int q = MIN_POWER; q <= MAX_POWER; q++) {
+            BigInteger v;
+            if (q < 0) {
+                // 2^b / 5^-q + 1 with b chosen to land in [2^127, 2^128)
+                BigInteger power = five.pow(-q);
+                int z = power.bitLength();
+                int b = q >= -27 ? z + 127 : 2 * z + 128;
+                v = BigInteger.ONE.shiftLeft(b).divide(power).add(BigInteger.ONE);
+                if (v.bitLength() > 128) {
+                    v = v.shiftRight(v.bitLength() - 128);
+                }
+            } else {
+                v = five.pow(q);
+                v = v.bitLength() > 128 ? v.shiftRight(v.bitLength() - 128) : v.shiftLeft(128 - v.bitLength());
+            }
+            int index = 2 * (q - MIN_POWER);
+            table[index] = v.shiftRight(64).longValue();
+            table[index + 1] = v.longValue();
+        }
+        return table;
+    }
+    
+    /**
+     * NaN or Infinity (a sign may precede either, no suffix)
+     */
+    private boolean parseNamed(byte[] buf, int p, int end, boolean negative) {
+        if (matches(buf, p, end, NAN)) {
+            value = Double.NaN;
+            return true;
+        }
+        if (matches(buf, p, end, INFINITY)) {
+            value = negative ? Double.NEGATIVE_INFINITY : Double.POSITIVE_INFINITY;
+            return true;
+        }
+        return false;
+    }
+    
+    /**
+     * Hex float: 0x [hex digits] [. hex digits] p [sign] digits [dDfF].
+     * Validated here; the (rare) conversion itself is left to the JDK.
+     */
+    private boolean parseHex(byte[] buf, int start, int p, int end) {
+        int hexDigits = 0;
+        while (p < end && isHexDigit(buf[p])) {
+            hexDigits++;
+            p++;
+        }
+        if (p < end && buf[p] == '.') {
+            p++;
+            while (p < end && isHexDigit(buf[p])) {
+                hexDigits++;
+                p++;
+            }
+        }
+        if (hexDigits == 0 || p >= end || (buf[p] | 0x20) != 'p') {
+            return false;
+        }
+        p++;
+        if (p < end && (buf[p] == '-' || buf[p] == '+')) {
+            p++;
+        }
+        int exponentStart = p;
+        while (p < end && isDigit(buf[p])) {
+            p++;
+        }
+        if (p == exponentStart) {
+            return false;
+        }
+        if (p < end && (buf[p] == 'd' || buf[p] == 'D' || buf[p] == 'f' || buf[p] == 'F')) {
+            p++;
+        }
+        if (p != end) {
+            return false;
+        }
+        value = Double.parseDouble(new String(buf, start, end - start, StandardCharsets.ISO_8859_1));
+        return true;
+    }
+    
+    private static boolean matches(byte[] buf, int p, int end, byte[] word) {
+        if (end - p != word.length) {
+            return false;
+        }
+        for (int i = 0; i < word.length; i++) {
+            if (buf[p + i] != word[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    private static boolean isDigit(byte b) {
+        return b >= '0' && b <= '9';
+    }
+    
+    private static boolean isHexDigit(byte b) {
+        int lower = b | 0x20;
+        return isDigit(b) || (lower >= 'a' && lower <= 'f');
+    }
+    
+    /**
+     * Value of the last successful parse
+     */
+    public double getValue() {
+        return value;
+    }
+    
+    /**
+     * Value of the last successful parseInteger
+     */
+    public long getLongValue() {
+        return longValue;
+    }
+}
@@ -0,0 +1,251 @@
+package io;
+
+import io.CSVSchema.ColumnType;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * PARALLEL CSV READER
+ * 
+ * Purpose: Load one large CSV file on several threads at once
+ * Think of it like: Several typists each copying a different chapter of
+ * the same book, then binding the chapters back in order
+ * 
+ * Real-life analogy: Like splitting a long checkout queue across several
+ * tills - but never splitting one customer's shopping between two tills
+ * 
+ * How it works:
+ * 1. Column types are sampled once from the head of the file (CSVSchema),
+ *    so every piece parses its cells into the same types
+ * 2. The file is memory-mapped and cut into one piece per thread
+ * 3. Each thread counts the quote characters in its piece; from the
+ *    running total every cut is moved forward to the next line break that
+ *    lies outside quotes, so no row (and no quoted field with line breaks
+ *    inside) is split
+ * 4. Each piece is parsed on its own thread into a ColumnarTable segment
+ * 5. The segments are joined in file order without copying their blocks
+ *    (a numeric column one piece had to widen is widened in all of them)
+ * 
+ * The result is exactly what a sequential ColumnarTable.readCSV gives,
+ * same rows in the same order. A stray quote inside an unquoted cell can
+ * throw the quote count off; the piece then ends inside a "quoted field",
+ * which the tokenizer reports, and the file is read sequentially instead.
+ * Compressed files are always read sequentially (inflated while parsed).
+ */
+public class ParallelCSVReader {
+    
+    private static final long MIN_PIECE_SIZE = 4L << 20;   // smaller files aren't worth splitting
+    private static final long MAX_PIECE_SIZE = 1L << 30;   // one mapping must stay below 2GB
+    private static final int SCAN_BUFFER_SIZE = 1 << 16;
+    
+    private final int threads;
+    private int piecesParsed;
+    
+    public ParallelCSVReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ParallelCSVReader(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Parse a CSV file, in parallel when it is large enough
+     */
+    public ColumnarTable read(String filename) throws IOException {
+        return read(filename, null);
+    }
+    
+    /**
+     * Parse a CSV file; overrides (column name -> type) replace inferred types
+     */
+    public ColumnarTable read(String filename, Map<String, ColumnType> overrides) throws IOException {
+        if (CompressedInput.isCompressed(filename)) {
+            // Compressed bytes can't be cut into pieces; inflate while parsing
+            piecesParsed = 1;
+            return ColumnarTable.readCSV(filename, overrides);
+        }
+        
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.READ)) {
+            long size = channel.size();
+            long pieces = Math.max(Math.min(threads, size / MIN_PIECE_SIZE),
+                                   (size + MAX_PIECE_SIZE - 1) / MAX_PIECE_SIZE);
+            if (pieces > 1) {
+                ExecutorService pool = Executors.newFixedThreadPool(threads);
+                try {
+                    CSVSchema schema;
+                    try (InputStream head = new FileInputStream(filename)) {
+                        schema = CSVSchema.sample(head, overrides);
+                    }
+                    long[] cuts = findCuts(channel, size, (int) pieces, pool);
+                    List<ColumnarTable> segments = parsePieces(channel, cuts, schema, pool);
+                    if (segments != null) {
+                        piecesParsed = segments.size();
+                        return ColumnarTable.concat(segments);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("CSV load interrupted");
+                } catch (ExecutionException e) {
+                    if (e.getCause() instanceof IOException) {
+                        throw (IOException) e.getCause();
+                    }
+                    throw new RuntimeException("CSV worker failed", e.getCause());
+                } finally {
+                    pool.shutdown();
+                }
+            }
+        }
+        
+        // Small file, or the cuts didn't land on row boundaries
+        piecesParsed = 1;
+        return ColumnarTable.readCSV(filename, overrides);
+    }
+    
+    /**
+     * Row-aligned cut positions: cuts[k] .. cuts[k + 1] is piece k
+     */
+    private long[] findCuts(FileChannel channel, long size, int pieces, ExecutorService pool)
+            throws IOException, InterruptedException, ExecutionException {
+        long[] nominal = new long[pieces + 1];
+        for (int k = 0; k <= pieces; k++) {
+            nominal[k] = size * k / pieces;
+        }
+        
+        // Quote characters per nominal piece, counted in parallel
+        List<Callable<Long>> counters = new ArrayList<>(pieces);
+        for (int k = 0; k < pieces; k++) {
+            long from = nominal[k];
+            long to = nominal[k + 1];
+            counters.add(() -> countQuotes(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)));
+        }
+        List<Future<Long>> quoteCounts = pool.invokeAll(counters);
+        
+        long[] cuts = new long[pieces + 1];
+        cuts[pieces] = size;
+        long quotesBefore = 0;
+        for (int k = 1; k < pieces; k++) {
+            quotesBefore += quoteCounts.get(k - 1).get();
+            boolean insideQuotes = (quotesBefore & 1) == 1;
+            cuts[k] = Math.max(cuts[k - 1], nextRowStart(channel, nominal[k], insideQuotes, size));
+        }
+        return cuts;
+    }
+    
+    private static long countQuotes(MappedByteBuffer buffer) {
+        long count = 0;
+        int limit = buffer.limit();
+        for (int i = 0; i < limit; i++) {
+            if (buffer.get(i) == '"') {
+                count++;
+            }
+        }
+        return count;
+    }
+    
+    /**
+     * Position just after the first line break at or after from that is
+     * outside quotes (the end of the file if there is none)
+     */
+    private static long nextRowStart(FileChannel channel, long from, boolean insideQuotes, long size)
+            throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        long position = from;
+        boolean quoted = insideQuotes;
+        while (position < size) {
+            buffer.clear();
+            int n = channel.read(buffer, position);
+            if (n <= 0) {
+                break;
+            }
+            for (int i = 0; i < n; i++) {
+                byte b = buffer.get(i);
+                if (b == '"') {
+                    quoted = !quoted;
+                } else if (b == '\n' && !quoted) {
+                    return position + i + 1;
+                }
+            }
+            position += n;
+        }
+        return size;
+    }
+    
+    /**
+     * Parse every non-empty piece on the pool; null if any piece turned out
+     * not to end on a row boundary
+     */
+    private static List<ColumnarTable> parsePieces(FileChannel channel, long[] cuts, CSVSchema schema,
+                                                   ExecutorService pool)
+            throws InterruptedException, ExecutionException {
+        List<Callable<ColumnarTable>> parsers = new ArrayList<>();
+        for (int k = 0; k + 1 < cuts.length; k++) {
+            long from = cuts[k];
+            long to = cuts[k + 1];
+            boolean first = k == 0;
+            if (to > from || first) {
+                parsers.add(() -> ColumnarTable.readSegment(
+                    new BufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, from, to - from)), first, schema));
+            }
+        }
+        
+        List<ColumnarTable> segments = new ArrayList<>(parsers.size());
+        for (Future<ColumnarTable> result : pool.invokeAll(parsers)) {
+            ColumnarTable segment = result.get();
+            if (segment == null) {
+                return null;
+            }
+            segments.add(segment);
+        }
+        return segments;
+    }
+    
+    /**
+     * Number of pieces the last file was parsed in (1 = sequential)
+     */
+    public int getPiecesParsed() {
+        return piecesParsed;
+    }
+    
+    /**
+     * Reads a mapped region through the tokenizer's InputStream interface
+     */
+    private static class BufferInputStream extends InputStream {
+        private final ByteBuffer buffer;
+        
+        BufferInputStream(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+        
+        @Override
+        public int read() {
+            return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) {
+            if (len == 0) {
+                return 0;
+            }
+            if (!buffer.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(len, buffer.remaining());
+            buffer.get(b, off, n);
+            return n;
+        }
+    }
+}
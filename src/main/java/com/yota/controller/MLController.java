@@ -2,14 +2,25 @@ package com.YOTA.controller;
 
 import com.YOTA.service.MLService;
 import com.YOTA.model.AnalysisResult;
+import com.YOTA.model.ClusteringResult;
 import com.YOTA.model.MLResult;
+import com.YOTA.model.RowPreview;
+import com.YOTA.model.UploadJob;
+import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.Map;
+
 /**
  * MAIN WEB CONTROLLER
  * 
@@ -113,6 +124,108 @@ public class MLController {
         }
     }
     
+    /**
+     * API: Upload a large CSV file
+     * The body is streamed to disk as it arrives (Spring never buffers it)
+     * and parsed in the background. Send either a multipart form with the
+     * file, or the raw CSV with its name in an X-File-Name header. Returns
+     * at once with the upload's dataset ID; poll /api/uploads/{id}.
+     * No request parameters are read here: that would make the servlet
+     * container parse the whole multipart body first.
+     */
+    @PostMapping("/api/upload-large")
+    @ResponseBody
+    public ResponseEntity<UploadJob> uploadLargeFile(HttpServletRequest request) {
+        try {
+            UploadJob job = mlService.startLargeUpload(request.getInputStream(), request.getContentType(),
+                                                       request.getContentLengthLong(), request.getHeader("X-File-Name"));
+            HttpStatus status = UploadJob.FAILED.equals(job.getStatus()) ? HttpStatus.BAD_REQUEST : HttpStatus.ACCEPTED;
+            return ResponseEntity.status(status).body(job);
+        } catch (Exception e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+    }
+    
+    /**
+     * API: Progress of a large upload (status, bytes, and the analysis
+     * once done)
+     */
+    @GetMapping("/api/uploads/{datasetId}")
+    @ResponseBody
+    public ResponseEntity<UploadJob> getUploadStatus(@PathVariable String datasetId) {
+        UploadJob job = mlService.getUploadJob(datasetId);
+        return job != null ? ResponseEntity.ok(job) : ResponseEntity.notFound().build();
+    }
+    
+    /**
+     * API: One page of a large upload's rows, read from the file without
+     * loading it (202 until the background job has indexed the file)
+     */
+    @GetMapping("/api/uploads/{datasetId}/rows")
+    @ResponseBody
+    public ResponseEntity<Object> getUploadRows(@PathVariable String datasetId,
+                                                @RequestParam(defaultValue = "0") long page,
+                                                @RequestParam(defaultValue = "50") int size) {
+        try {
+            RowPreview preview = mlService.getUploadRows(datasetId, page, size);
+            return preview != null ? ResponseEntity.ok(preview) : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("status", "INDEXING"));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * API: A uniform random sample of a large upload's rows; the same seed
+     * gives the same sample (202 until the file has been indexed)
+     */
+    @GetMapping("/api/uploads/{datasetId}/sample")
+    @ResponseBody
+    public ResponseEntity<Object> sampleUploadRows(@PathVariable String datasetId,
+                                                   @RequestParam(defaultValue = "100") int n,
+                                                   @RequestParam(required = false) Long seed) {
+        try {
+            RowPreview preview = mlService.sampleUploadRows(datasetId, n, seed != null ? seed : System.nanoTime());
+            return preview != null ? ResponseEntity.ok(preview) : ResponseEntity.notFound().build();
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(Map.of("status", "INDEXING"));
+        } catch (IOException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * API: Append a CSV file's rows to the current dataset (e.g. the latest
+     * hourly drop) instead of uploading everything again. Use header=false
+     * for a file without a header row. Returns the updated analysis, or
+     * 400 with the reason if the rows don't fit the dataset.
+     */
+    @PostMapping("/api/append")
+    @ResponseBody
+    public ResponseEntity<Object> appendFile(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(defaultValue = "true") boolean header) {
+        try (InputStream in = file.getInputStream()) {
+            return ResponseEntity.ok(mlService.appendCSV(in, header));
+        } catch (IOException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
+    /**
+     * API: Append one row (a JSON array of cell texts) to the current
+     * dataset
+     */
+    @PostMapping("/api/append-row")
+    @ResponseBody
+    public ResponseEntity<Object> appendRow(@RequestBody List<String> cells) {
+        try {
+            return ResponseEntity.ok(mlService.appendRow(cells));
+        } catch (IOException | IllegalStateException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", String.valueOf(e.getMessage())));
+        }
+    }
+    
     /**
      * LOAD SAMPLE DATASET
      * Load the built-in sample dataset
@@ -186,6 +299,17 @@ public class MLController {
         return mlService.getCurrentMLResult();
     }
     
+    /**
+     * API: Run k-means clustering on the current dataset
+     * (results are then also available as visualization type "clusters")
+     */
+    @PostMapping("/api/cluster")
+    @ResponseBody
+    public ClusteringResult runClustering(@RequestParam(defaultValue = "3") int k,
+                                          @RequestParam(defaultValue = "EXACT") String mode) throws Exception {
+        return mlService.runKMeansClustering(k, mode);
+    }
+    
     /**
      * API: Get visualization data
      */
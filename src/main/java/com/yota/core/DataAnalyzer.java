@@ -105,6 +105,20 @@ public class DataAnalyzer {
         return sum / count;
     }
     
+    // Method: Count the numeric values in a column (the average is over these)
+    public int getNumericCount(int attributeIndex) {
+        int count = 0;
+        
+        for (int i = 0; i < dataset.getNumInstances(); i++) {
+            Instance instance = dataset.getInstance(i);
+            if (instance.getValue(attributeIndex) instanceof Double) {
+                count++;
+            }
+        }
+        
+        return count;
+    }
+    
     // Method: Get frequency count for categorical values
     public HashMap<String, Integer> getFrequency(int attributeIndex) {
         HashMap<String, Integer> frequencies = new HashMap<String, Integer>();
@@ -0,0 +1,660 @@
+package com.ayota.core;
+
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * K-MEANS CLUSTERER (Spring Boot Version)
+ * 
+ * Purpose: Split a dataset into k groups of similar rows (no labels needed)
+ * Think of it like: Placing k post offices so that every house is as close
+ * as possible to its nearest office
+ * 
+ * Real-life analogy: Like segmenting customers into groups that behave
+ * alike, so each group can get its own marketing campaign
+ * 
+ * How it works:
+ * - Uses the numeric attributes, standardized (z-scores) so that large
+ *   units like salary don't dominate; centroids are reported in the
+ *   original units
+ * - k-means++ seeding: each new center is picked with probability
+ *   proportional to its squared distance from the centers chosen so far
+ * - EXACT mode: Lloyd iterations accelerated with Hamerly's bounds - an
+ *   upper bound to the own center and a lower bound to every other center
+ *   let most rows skip the distance computations entirely
+ * - MINI_BATCH mode: each step assigns a random batch and moves the
+ *   centers toward it with per-center learning rates 1/count (Sculley);
+ *   meant for very large datasets
+ * - Assignment passes are split into chunks over a fork-join pool
+ */
+public class KMeansClusterer {
+    
+    /**
+     * Training mode
+     */
+    public enum Mode {
+        EXACT,       // Lloyd's algorithm with Hamerly acceleration
+        MINI_BATCH   // stochastic mini-batch updates
+    }
+    
+    // Rows per parallel chunk
+    private static final int CHUNK_SIZE = 4096;
+    
+    private int k = 3;
+    private Mode mode = Mode.EXACT;
+    private int maxIterations = 100;
+    private int batchSize = 1024;
+    private double tolerance = 1e-4;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private long seed = 42;
+    
+    // Numeric attributes used and their standardization
+    private int[] featureIndices;
+    private double[] featureMean;
+    private double[] featureScale;
+    
+    // Results (centroids in standardized units, row-major k x d)
+    private double[] centroids;
+    private int[] assignments;
+    private int[] clusterSizes;
+    private double inertia;
+    private int iterationsRun;
+    private long distanceComputations;
+    
+    private Dataset trainingData;
+    
+    public KMeansClusterer(int k) {
+        this(k, Mode.EXACT);
+    }
+    
+    public KMeansClusterer(int k, Mode mode) {
+        if (k < 1) {
+            throw new IllegalArgumentException("k must be at least 1");
+        }
+        this.k = k;
+        this.mode = mode;
+    }
+    
+    public void setMaxIterations(int maxIterations) {
+        this.maxIterations = maxIterations;
+    }
+    
+    /**
+     * Rows per step in MINI_BATCH mode
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = Math.max(1, batchSize);
+    }
+    
+    /**
+     * Stop once no center moves further than this (in standardized units)
+     */
+    public void setTolerance(double tolerance) {
+        this.tolerance = tolerance;
+    }
+    
+    public void setParallelism(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+    
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+    
+    /**
+     * Cluster the numeric attributes of the dataset
+     */
+    public void fit(Dataset dataset) {
+        this.trainingData = dataset;
+        
+        List<Integer> numeric = new ArrayList<>();
+        for (int j = 0; j < dataset.getNumAttributes(); j++) {
+            if ("numeric".equals(dataset.getAttribute(j).getType())) {
+                numeric.add(j);
+            }
+        }
+        if (numeric.isEmpty()) {
+            throw new IllegalArgumentException("k-means needs at least one numeric attribute");
+        }
+        featureIndices = new int[numeric.size()];
+        for (int j = 0; j < featureIndices.length; j++) {
+            featureIndices[j] = numeric.get(j);
+        }
+        
+        int n = dataset.getNumInstances();
+        int d = featureIndices.length;
+        if (n < k) {
+            throw new IllegalArgumentException("k-means needs at least k = " + k + " rows, got " + n);
+        }
+        double[] data = standardize(dataset);
+        
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            Random random = new Random(seed);
+            distanceComputations = 0;
+            centroids = seedPlusPlus(data, n, d, random, pool);
+            assignments = new int[n];
+            if (mode == Mode.MINI_BATCH) {
+                fitMiniBatch(data, n, d, random, pool);
+            } else {
+                fitHamerly(data, n, d, pool);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+    
+    /**
+     * Copy the numeric columns into a row-major array of z-scores
+     * (missing / non-numeric values become the column mean, i.e. 0)
+     */
+    private double[] standardize(Dataset dataset) {
+        int n = dataset.getNumInstances();
+        int d = featureIndices.length;
+        double[] data = new double[n * d];
+        featureMean = new double[d];
+        featureScale = new double[d];
+        
+        for (int j = 0; j < d; j++) {
+            int count = 0;
+            double mean = 0.0;
+            double m2 = 0.0;
+            for (int i = 0; i < n; i++) {
+                Object value = dataset.getInstance(i).getValue(featureIndices[j]);
+                if (value instanceof Double) {
+                    double x = (Double) value;
+                    count++;
+                    double delta = x - mean;
+                    mean += delta / count;
+                    m2 += delta * (x - mean);
+                }
+            }
+            double std = count > 1 ? Math.sqrt(m2 / count) : 0.0;
+            featureMean[j] = mean;
+            featureScale[j] = std > 0 ? 1.0 / std : 1.0;
+            
+            for (int i = 0; i < n; i++) {
+                Object value = dataset.getInstance(i).getValue(featureIndices[j]);
+                data[i * d + j] = value instanceof Double ? ((Double) value - mean) * featureScale[j] : 0.0;
+            }
+        }
+        return data;
+    }
+    
+    /**
+     * k-means++ seeding
+     */
+    private double[] seedPlusPlus(double[] data, int n, int d, Random random, ForkJoinPool pool) {
+        double[] centers = new double[k * d];
+        int first = random.nextInt(n);
+        System.arraycopy(data, first * d, centers, 0, d);
+        
+        double[] closest = new double[n];
+        Arrays.fill(closest, Double.POSITIVE_INFINITY);
+        for (int c = 1; c < k; c++) {
+            int previous = c - 1;
+            double[] chunkTotals = new double[chunkCount(n)];
+            runChunks(pool, n, (chunk, from, to) -> {
+                double total = 0.0;
+                for (int i = from; i < to; i++) {
+                    double dist = squaredDistance(data, i * d, centers, previous * d, d);
+                    if (dist < closest[i]) {
+                        closest[i] = dist;
+                    }
+                    total += closest[i];
+                }
+                chunkTotals[chunk] = total;
+            });
+            distanceComputations += n;
+            
+            double total = 0.0;
+            for (double t : chunkTotals) {
+                total += t;
+            }
+            
+            // Sample proportional to squared distance
+            int chosen = n - 1;
+            double target = random.nextDouble() * total;
+            for (int i = 0; i < n; i++) {
+                target -= closest[i];
+                if (target <= 0) {
+                    chosen = i;
+                    break;
+                }
+            }
+            System.arraycopy(data, chosen * d, centers, c * d, d);
+        }
+        return centers;
+    }
+    
+    /**
+     * Exact k-means with Hamerly's triangle-inequality bounds
+     */
+    private void fitHamerly(double[] data, int n, int d, ForkJoinPool pool) {
+        double[] upper = new double[n];
+        double[] lower = new double[n];
+        double[] halfGap = new double[k];
+        double[] moved = new double[k];
+        int chunks = chunkCount(n);
+        double[][] chunkSums = new double[chunks][k * d];
+        int[][] chunkCounts = new int[chunks][k];
+        int[] chunkChanges = new int[chunks];
+        long[] chunkDistances = new long[chunks];
+        
+        // Initial full assignment: closest and second-closest center
+        runChunks(pool, n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                assignFully(data, i, d, upper, lower);
+            }
+            chunkDistances[chunk] = (long) (to - from) * k;
+        });
+        distanceComputations += sum(chunkDistances);
+        
+        iterationsRun = 0;
+        while (iterationsRun < maxIterations) {
+            iterationsRun++;
+            
+            // Half the distance from each center to its nearest other center
+            for (int c = 0; c < k; c++) {
+                double nearest = Double.POSITIVE_INFINITY;
+                for (int other = 0; other < k; other++) {
+                    if (other != c) {
+                        nearest = Math.min(nearest, Math.sqrt(squaredDistance(centroids, c * d, centroids, other * d, d)));
+                    }
+                }
+                halfGap[c] = k > 1 ? nearest / 2.0 : Double.POSITIVE_INFINITY;
+            }
+            distanceComputations += (long) k * (k - 1);
+            
+            // Assignment step (bounds let most rows skip it) and per-chunk sums
+            runChunks(pool, n, (chunk, from, to) -> {
+                double[] sums = chunkSums[chunk];
+                int[] counts = chunkCounts[chunk];
+                Arrays.fill(sums, 0.0);
+                Arrays.fill(counts, 0);
+                int changes = 0;
+                long distances = 0;
+                
+                for (int i = from; i < to; i++) {
+                    int a = assignments[i];
+                    double bound = Math.max(halfGap[a], lower[i]);
+                    if (upper[i] > bound) {
+                        upper[i] = Math.sqrt(squaredDistance(data, i * d, centroids, a * d, d));
+                        distances++;
+                        if (upper[i] > bound) {
+                            assignFully(data, i, d, upper, lower);
+                            distances += k;
+                            if (assignments[i] != a) {
+                                changes++;
+                                a = assignments[i];
+                            }
+                        }
+                    }
+                    counts[a]++;
+                    int offset = a * d;
+                    for (int j = 0; j < d; j++) {
+                        sums[offset + j] += data[i * d + j];
+                    }
+                }
+                chunkChanges[chunk] = changes;
+                chunkDistances[chunk] = distances;
+            });
+            distanceComputations += sum(chunkDistances);
+            
+            // Move the centers (empty clusters keep their position)
+            clusterSizes = new int[k];
+            double[] totals = new double[k * d];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                for (int c = 0; c < k; c++) {
+                    clusterSizes[c] += chunkCounts[chunk][c];
+                }
+                for (int p = 0; p < totals.length; p++) {
+                    totals[p] += chunkSums[chunk][p];
+                }
+            }
+            double maxMove = 0.0;
+            int farthest = 0;
+            for (int c = 0; c < k; c++) {
+                if (clusterSizes[c] > 0) {
+                    double dist = 0.0;
+                    for (int j = 0; j < d; j++) {
+                        double updated = totals[c * d + j] / clusterSizes[c];
+                        double diff = updated - centroids[c * d + j];
+                        dist += diff * diff;
+                        centroids[c * d + j] = updated;
+                    }
+                    moved[c] = Math.sqrt(dist);
+                } else {
+                    moved[c] = 0.0;
+                }
+                if (moved[c] > maxMove) {
+                    maxMove = moved[c];
+                    farthest = c;
+                }
+            }
+            
+            int changes = 0;
+            for (int c : chunkChanges) {
+                changes += c;
+            }
+            if (iterationsRun > 1 && (changes == 0 || maxMove <= tolerance)) {
+                break;
+            }
+            
+            // Keep the bounds valid after the move
+            double secondMove = 0.0;
+            for (int c = 0; c < k; c++) {
+                if (c != farthest) {
+                    secondMove = Math.max(secondMove, moved[c]);
+                }
+            }
+            double largest = maxMove;
+            int farthestCenter = farthest;
+            double second = secondMove;
+            runChunks(pool, n, (chunk, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    int a = assignments[i];
+                    upper[i] += moved[a];
+                    lower[i] -= a == farthestCenter ? second : largest;
+                }
+            });
+        }
+        
+        computeInertia(data, n, d, pool);
+    }
+    
+    /**
+     * Find the closest and second-closest centers of row i
+     */
+    private void assignFully(double[] data, int i, int d, double[] upper, double[] lower) {
+        double best = Double.POSITIVE_INFINITY;
+        double second = Double.POSITIVE_INFINITY;
+        int bestCenter = 0;
+        for (int c = 0; c < k; c++) {
+            double dist = squaredDistance(data, i * d, centroids, c * d, d);
+            if (dist < best) {
+                second = best;
+                best = dist;
+                bestCenter = c;
+            } else if (dist < second) {
+                second = dist;
+            }
+        }
+        assignments[i] = bestCenter;
+        upper[i] = Math.sqrt(best);
+        lower[i] = Math.sqrt(second);
+    }
+    
+    /**
+     * Mini-batch k-means: parallel batch assignment, sequential center updates
+     */
+    private void fitMiniBatch(double[] data, int n, int d, Random random, ForkJoinPool pool) {
+        int batch = Math.min(batchSize, n);
+        int[] rows = new int[batch];
+        int[] nearest = new int[batch];
+        long[] counts = new long[k];
+        double[] previous = new double[k * d];
+        
+        iterationsRun = 0;
+        int quietSteps = 0;
+        while (iterationsRun < maxIterations) {
+            iterationsRun++;
+            for (int b = 0; b < batch; b++) {
+                rows[b] = random.nextInt(n);
+            }
+            
+            runChunks(pool, batch, (chunk, from, to) -> {
+                for (int b = from; b < to; b++) {
+                    nearest[b] = nearestCenter(data, rows[b] * d, d);
+                }
+            });
+            distanceComputations += (long) batch * k;
+            
+            // Per-center learning rate 1 / (points seen so far)
+            System.arraycopy(centroids, 0, previous, 0, centroids.length);
+            for (int b = 0; b < batch; b++) {
+                int c = nearest[b];
+                counts[c]++;
+                double rate = 1.0 / counts[c];
+                int offset = rows[b] * d;
+                for (int j = 0; j < d; j++) {
+                    centroids[c * d + j] += rate * (data[offset + j] - centroids[c * d + j]);
+                }
+            }
+            
+            double maxMove = 0.0;
+            for (int c = 0; c < k; c++) {
+                maxMove = Math.max(maxMove, Math.sqrt(squaredDistance(centroids, c * d, previous, c * d, d)));
+            }
+            // Stop after a few consecutive quiet steps, as single batches are noisy
+            quietSteps = maxMove <= tolerance ? quietSteps + 1 : 0;
+            if (quietSteps >= 3) {
+                break;
+            }
+        }
+        
+        // Final assignment of every row
+        runChunks(pool, n, (chunk, from, to) -> {
+            for (int i = from; i < to; i++) {
+                assignments[i] = nearestCenter(data, i * d, d);
+            }
+        });
+        distanceComputations += (long) n * k;
+        
+        clusterSizes = new int[k];
+        for (int a : assignments) {
+            clusterSizes[a]++;
+        }
+        computeInertia(data, n, d, pool);
+    }
+    
+    private int nearestCenter(double[] data, int offset, int d) {
+        int best = 0;
+        double bestDistance = Double.POSITIVE_INFINITY;
+        for (int c = 0; c < k; c++) {
+            double dist = squaredDistance(data, offset, centroids, c * d, d);
+            if (dist < bestDistance) {
+                bestDistance = dist;
+                best = c;
+            }
+        }
+        return best;
+    }
+    
+    /**
+     * Sum of squared distances from every row to its center
+     */
+    private void computeInertia(double[] data, int n, int d, ForkJoinPool pool) {
+        double[] chunkTotals = new double[chunkCount(n)];
+        runChunks(pool, n, (chunk, from, to) -> {
+            double total = 0.0;
+            for (int i = from; i < to; i++) {
+                total += squaredDistance(data, i * d, centroids, assignments[i] * d, d);
+            }
+            chunkTotals[chunk] = total;
+        });
+        inertia = 0.0;
+        for (double t : chunkTotals) {
+            inertia += t;
+        }
+    }
+    
+    private static double squaredDistance(double[] a, int aOffset, double[] b, int bOffset, int d) {
+        double sum = 0.0;
+        for (int j = 0; j < d; j++) {
+            double diff = a[aOffset + j] - b[bOffset + j];
+            sum += diff * diff;
+        }
+        return sum;
+    }
+    
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long v : values) {
+            total += v;
+        }
+        return total;
+    }
+    
+    /**
+     * Work on rows [from, to) of one chunk
+     */
+    private interface ChunkTask {
+        void run(int chunk, int from, int to);
+    }
+    
+    private static int chunkCount(int n) {
+        return Math.max(1, (n + CHUNK_SIZE - 1) / CHUNK_SIZE);
+    }
+    
+    /**
+     * Run the task over fixed-size row chunks, in parallel when a pool is given
+     */
+    private static void runChunks(ForkJoinPool pool, int n, ChunkTask task) {
+        int chunks = chunkCount(n);
+        if (pool == null || chunks == 1) {
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                task.run(chunk, chunk * CHUNK_SIZE, Math.min(n, (chunk + 1) * CHUNK_SIZE));
+            }
+            return;
+        }
+        
+        List<RecursiveAction> actions = new ArrayList<>(chunks);
+        for (int chunk = 0; chunk < chunks; chunk++) {
+            int id = chunk;
+            actions.add(new RecursiveAction() {
+                @Override
+                protected void compute() {
+                    task.run(id, id * CHUNK_SIZE, Math.min(n, (id + 1) * CHUNK_SIZE));
+                }
+            });
+        }
+        pool.invoke(new RecursiveAction() {
+            @Override
+            protected void compute() {
+                invokeAll(actions);
+            }
+        });
+    }
+    
+    /**
+     * Cluster index of a new instance
+     */
+    public int predict(Instance instance) {
+        if (centroids == null) {
+            throw new IllegalStateException("Clusterer has not been fitted");
+        }
+        int d = featureIndices.length;
+        double[] x = new double[d];
+        for (int j = 0; j < d; j++) {
+            Object value = instance.getValue(featureIndices[j]);
+            x[j] = value instanceof Double ? ((Double) value - featureMean[j]) * featureScale[j] : 0.0;
+        }
+        return nearestCenter(x, 0, d);
+    }
+    
+    /**
+     * Centroids in the original units, one row per cluster
+     */
+    public double[][] getCentroids() {
+        if (centroids == null) {
+            return new double[0][];
+        }
+        int d = featureIndices.length;
+        double[][] result = new double[k][d];
+        for (int c = 0; c < k; c++) {
+            for (int j = 0; j < d; j++) {
+                result[c][j] = centroids[c * d + j] / featureScale[j] + featureMean[j];
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Names of the numeric attributes used, in centroid column order
+     */
+    public List<String> getFeatureNames() {
+        List<String> names = new ArrayList<>();
+        if (featureIndices != null) {
+            for (int index : featureIndices) {
+                names.add(trainingData.getAttribute(index).getName());
+            }
+        }
+        return names;
+    }
+    
+    /**
+     * Attribute index (in the dataset) of each centroid column
+     */
+    public int[] getFeatureIndices() {
+        return featureIndices;
+    }
+    
+    /**
+     * Cluster of every training row
+     */
+    public int[] getAssignments() {
+        return assignments;
+    }
+    
+    public int[] getClusterSizes() {
+        return clusterSizes;
+    }
+    
+    /**
+     * Sum of squared (standardized) distances to the assigned centers
+     */
+    public double getInertia() {
+        return inertia;
+    }
+    
+    public int getIterationsRun() {
+        return iterationsRun;
+    }
+    
+    /**
+     * Point-to-center distance evaluations, including seeding
+     */
+    public long getDistanceComputations() {
+        return distanceComputations;
+    }
+    
+    public int getK() {
+        return k;
+    }
+    
+    public Mode getMode() {
+        return mode;
+    }
+    
+    /**
+     * Get model summary for display
+     */
+    public String getModelSummary() {
+        StringBuilder sb = new StringBuilder();
+        sb.append("=== K-Means Clustering Summary ===\n");
+        if (centroids == null) {
+            sb.append("Model not trained yet.\n");
+            return sb.toString();
+        }
+        
+        List<String> names = getFeatureNames();
+        double[][] centers = getCentroids();
+        for (int c = 0; c < k; c++) {
+            sb.append("Cluster ").append(c).append(" (").append(clusterSizes[c]).append(" rows):");
+            for (int j = 0; j < names.size(); j++) {
+                sb.append(" ").append(names.get(j)).append("=")
+                  .append(String.format("%.4f", centers[c][j]));
+            }
+            sb.append("\n");
+        }
+        sb.append("Mode: ").append(mode).append(mode == Mode.MINI_BATCH ? " (batch size " + batchSize + ")" : " (Hamerly)").append("\n");
+        sb.append("Iterations Run: ").append(iterationsRun).append("\n");
+        sb.append("Inertia (standardized): ").append(String.format("%.4f", inertia)).append("\n");
+        sb.append("Distance Computations: ").append(distanceComputations).append("\n");
+        return sb.toString();
+    }
+}
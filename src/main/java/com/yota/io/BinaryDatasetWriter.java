@@ -0,0 +1,270 @@
+package com.ayota.io;
+
+import com.ayota.io.CSVSchema.ColumnType;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32C;
+
+/**
+ * BINARY DATASET WRITER (Spring Boot Version)
+ * 
+ * Purpose: Save a parsed table in a compact binary file that opens without
+ * parsing
+ * Think of it like: Saving a spreadsheet in its native format instead of
+ * exporting it to text and importing it again every time
+ * 
+ * Real-life analogy: Like freezing a cooked meal - reheating it is much
+ * faster than cooking from the raw ingredients again
+ * 
+ * File layout (little-endian, every section starts on an 8-byte boundary):
+ * - Header: magic, version, row and column counts, flags, and where the
+ *   directory is
+ * - Column sections, one after another: the text dictionary, then the
+ *   column's blocks as they are in memory (typed values and/or int codes)
+ * - Row widths (only when some row was ragged)
+ * - Directory: per column its name, type and section position
+ * Every block, dictionary and the directory carry a CRC32C checksum, which
+ * BinaryDatasetReader checks when it loads them.
+ */
+public class BinaryDatasetWriter {
+    
+    static final int MAGIC = 0x42544F59;           // "YOTB" read little-endian
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 56;              // 52 bytes used
+    static final int FLAG_RAGGED = 1;
+    static final int BLOCK_HAS_VALUES = 1;
+    static final int BLOCK_HAS_CODES = 2;
+    
+    private static final int BUFFER_SIZE = 1 << 20;
+    
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+    private final CRC32C checksum = new CRC32C();
+    private long position;
+    
+    private BinaryDatasetWriter(FileChannel channel) {
+        this.channel = channel;
+    }
+    
+    /**
+     * Write a table to a file, replacing it if it exists
+     */
+    public static void write(ColumnarTable table, String filename) throws IOException {
+        try (FileChannel channel = FileChannel.open(Paths.get(filename), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            new BinaryDatasetWriter(channel).writeTable(table);
+        }
+    }
+    
+    private void writeTable(ColumnarTable table) throws IOException {
+        int numColumns = table.getNumColumns();
+        position = HEADER_SIZE;
+        channel.position(HEADER_SIZE);
+        
+        long[] sectionStart = new long[numColumns];
+        long[] sectionLength = new long[numColumns];
+        for (int c = 0; c < numColumns; c++) {
+            sectionStart[c] = position;
+            writeColumn(table.getColumn(c));
+            sectionLength[c] = position - sectionStart[c];
+        }
+        
+        long rowWidthsStart = 0;
+        if (table.isRagged()) {
+            rowWidthsStart = position;
+            checksum.reset();
+            for (int r = 0; r < table.getNumRows(); r++) {
+                putInt(table.getRowWidth(r), true);
+            }
+            putInt((int) checksum.getValue(), false);
+            align();
+        }
+        
+        // Directory
+        long directoryStart = position;
+        checksum.reset();
+        for (int c = 0; c < numColumns; c++) {
+            byte[] name = table.getColumnName(c).getBytes(StandardCharsets.UTF_8);
+            putInt(name.length, true);
+            putBytes(name, 0, name.length, true);
+            putInt(table.getColumn(c).getType().ordinal(), true);
+            putLong(sectionStart[c], true);
+            putLong(sectionLength[c], true);
+        }
+        putInt((int) checksum.getValue(), false);
+        flush();
+        
+        // Header last, so a file cut short never looks complete
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(MAGIC).putInt(VERSION);
+        header.putInt(table.getNumRows()).putInt(numColumns).putInt(table.getHeaderColumns());
+        header.putInt(table.isRagged() ? FLAG_RAGGED : 0);
+        header.putLong(rowWidthsStart).putLong(directoryStart).putLong(position - directoryStart);
+        checksum.reset();
+        checksum.update(header.array(), 0, header.position());
+        header.putInt((int) checksum.getValue());
+        header.position(HEADER_SIZE);
+        header.flip();
+        long at = 0;
+        while (header.hasRemaining()) {
+            at += channel.write(header, at);
+        }
+    }
+    
+    /**
+     * Column section: dictionary, then blocks
+     */
+    private void writeColumn(ColumnarTable.Column column) throws IOException {
+        // Dictionary: count, byte offsets, the bytes as read, checksum
+        byte[][] encoded = new byte[column.getDistinctStrings().size()][];
+        int totalBytes = 0;
+        for (int i = 0; i < encoded.length; i++) {
+            encoded[i] = column.getText(i);
+            totalBytes += encoded[i].length;
+        }
+        checksum.reset();
+        putInt(encoded.length, true);
+        putInt(column.getBlockCount(), true);
+        int offset = 0;
+        for (byte[] text : encoded) {
+            putInt(offset, true);
+            offset += text.length;
+        }
+        putInt(totalBytes, true);
+        for (byte[] text : encoded) {
+            putBytes(text, 0, text.length, true);
+        }
+        putInt((int) checksum.getValue(), false);
+        align();
+        
+        // Blocks: rows, flags, checksum, then values and codes
+        ColumnType type = column.getType();
+        for (int b = 0; b < column.getBlockCount(); b++) {
+            int length = column.getBlockLength(b);
+            Object values = type == ColumnType.CATEGORICAL ? null : column.getValueBlock(b);
+            int[] codes = column.getCodeBlock(b);
+            int flags = (values != null ? BLOCK_HAS_VALUES : 0) | (codes != null ? BLOCK_HAS_CODES : 0);
+            ByteBuffer valueBytes = values != null ? toBytes(values, length) : null;
+            ByteBuffer codeBytes = codes != null ? toBytes(codes, length) : null;
+            
+            checksum.reset();
+            if (valueBytes != null) {
+                checksum.update(valueBytes.duplicate());
+            }
+            if (codeBytes != null) {
+                checksum.update(codeBytes.duplicate());
+            }
+            putInt(length, false);
+            putInt(flags, false);
+            putInt((int) checksum.getValue(), false);
+            putInt(0, false);
+            if (valueBytes != null) {
+                putBuffer(valueBytes);
+                align();
+            }
+            if (codeBytes != null) {
+                putBuffer(codeBytes);
+                align();
+            }
+        }
+    }
+    
+    /**
+     * The little-endian bytes a value array is written as
+     */
+    private static ByteBuffer toBytes(Object values, int length) {
+        if (values instanceof byte[]) {
+            return ByteBuffer.wrap((byte[]) values, 0, length);
+        }
+        int width = elementSize(values);
+        ByteBuffer bytes = ByteBuffer.allocate(length * width).order(ByteOrder.LITTLE_ENDIAN);
+        if (values instanceof int[]) {
+            bytes.asIntBuffer().put((int[]) values, 0, length);
+        } else if (values instanceof long[]) {
+            bytes.asLongBuffer().put((long[]) values, 0, length);
+        } else {
+            bytes.asDoubleBuffer().put((double[]) values, 0, length);
+        }
+        return bytes;
+    }
+    
+    static int elementSize(Object values) {
+        if (values instanceof byte[]) {
+            return 1;
+        }
+        return values instanceof int[] ? 4 : 8;
+    }
+    
+    private void putBuffer(ByteBuffer bytes) throws IOException {
+        position += bytes.remaining();
+        if (bytes.remaining() <= buffer.remaining()) {
+            buffer.put(bytes);
+            return;
+        }
+        flush();
+        while (bytes.hasRemaining()) {
+            channel.write(bytes);
+        }
+    }
+    
+    private void putInt(int value, boolean checked) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+        position += 4;
+        if (checked) {
+            checksum.update(buffer.duplicate().position(buffer.position() - 4).limit(buffer.position()));
+        }
+    }
+    
+    private void putLong(long value, boolean checked) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+        position += 8;
+        if (checked) {
+            checksum.update(buffer.duplicate().position(buffer.position() - 8).limit(buffer.position()));
+        }
+    }
+    
+    private void putBytes(byte[] bytes, int start, int length, boolean checked) throws IOException {
+        if (checked) {
+            checksum.update(bytes, start, length);
+        }
+        for (int done = 0; done < length; ) {
+            ensure(1);
+            int n = Math.min(buffer.remaining(), length - done);
+            buffer.put(bytes, start + done, n);
+            done += n;
+        }
+        position += length;
+    }
+    
+    /**
+     * Pad with zeros to the next 8-byte boundary
+     */
+    private void align() throws IOException {
+        while ((position & 7) != 0) {
+            ensure(1);
+            buffer.put((byte) 0);
+            position++;
+        }
+    }
+    
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            flush();
+        }
+    }
+    
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
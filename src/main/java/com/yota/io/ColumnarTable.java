@@ -0,0 +1,1208 @@
+package com.ayota.io;
+
+import com.ayota.core.Attribute;
+import com.ayota.core.Dataset;
+import com.ayota.core.Instance;
+import com.ayota.io.CSVSchema.ColumnType;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * COLUMNAR TABLE (Spring Boot Version)
+ * 
+ * Purpose: Hold parsed CSV data column by column in primitive arrays
+ * Think of it like: A spreadsheet stored as one long strip per column
+ * instead of one box per cell
+ * 
+ * Real-life analogy: Like a warehouse that stores all the apples together
+ * and all the pears together, rather than a separate crate for every
+ * single fruit
+ * 
+ * How it works:
+ * - The first rows are sampled to pick a type per column (CSVSchema): int,
+ *   long, double, boolean, date or categorical text; the user may override
+ *   any of them by column name
+ * - CSVTokenizer hands over cells as byte slices, which are parsed straight
+ *   into the column's typed blocks (int[], long[], double[], byte[]), so
+ *   growing a column never copies it
+ * - Text (categorical columns, and cells that don't fit a column's type) is
+ *   dictionary-encoded: each distinct value is decoded into a String once,
+ *   and rows store an int code
+ * - No object is created per cell; toDataset() converts to the row-based
+ *   Dataset when a classifier needs it
+ * - Tables parsed from consecutive pieces of a file can be joined with
+ *   concat(), which links their blocks instead of copying them
+ * - BinaryDatasetWriter saves the blocks as they are, and
+ *   BinaryDatasetReader rebuilds a table from them without any parsing
+ * - More rows can be appended later (appendCSV, appendRow): they are
+ *   checked against the table's schema first, then added to the open
+ *   blocks, which start small and double in size
+ * 
+ * As with uploads before, the first row is the header, the last header column is
+ * the class, and a row shorter than the header simply has fewer values.
+ * An empty class cell becomes the label "" (never null), so classifiers
+ * can compare and look up every row's class.
+ */
+public class ColumnarTable {
+    
+    private final List<String> columnNames = new ArrayList<>();
+    private final List<Column> columns = new ArrayList<>();
+    private int numRows;
+    private int headerColumns;
+    
+    // Cells per row; null while every row has exactly one cell per column
+    private int[] rowWidths;
+    
+    /**
+     * Parse a CSV file (plain or compressed), inferring column types
+     */
+    public static ColumnarTable readCSV(String filename) throws IOException {
+        return readCSV(filename, null);
+    }
+    
+    /**
+     * Parse a CSV file; overrides (column name -> type) replace inferred types
+     */
+    public static ColumnarTable readCSV(String filename, Map<String, ColumnType> overrides) throws IOException {
+        try (InputStream in = new FileInputStream(filename)) {
+            return readCSV(in, overrides);
+        }
+    }
+    
+    /**
+     * Parse a CSV stream, which may be gzip, zip or deflate compressed
+     * (CompressedInput); the stream is closed when done
+     */
+    public static ColumnarTable readCSV(InputStream in) throws IOException {
+        return readCSV(in, null);
+    }
+    
+    /**
+     * Parse a (possibly compressed) CSV stream with type overrides
+     */
+    public static ColumnarTable readCSV(InputStream in, Map<String, ColumnType> overrides) throws IOException {
+        ColumnarTable table = new ColumnarTable();
+        Builder builder = table.new Builder(true, null, overrides);
+        try (InputStream data = CompressedInput.open(in)) {
+            new CSVTokenizer(data).parse(builder);
+        }
+        builder.finish();
+        return table;
+    }
+    
+    /**
+     * Parse one piece of a CSV file that starts on a row boundary, with a
+     * schema decided beforehand. Only the first piece has the header.
+     * Returns null if the piece ends inside a quoted field, i.e. it was not
+     * cut on a real row boundary.
+     */
+    static ColumnarTable readSegment(InputStream in, boolean first, CSVSchema schema) throws IOException {
+        ColumnarTable table = new ColumnarTable();
+        Builder builder = table.new Builder(first, schema, null);
+        CSVTokenizer tokenizer = new CSVTokenizer(in);
+        tokenizer.setSkipByteOrderMark(first);
+        tokenizer.parse(builder);
+        builder.finish();
+        return tokenizer.endedInsideQuotes() ? null : table;
+    }
+    
+    /**
+     * Join tables parsed from consecutive pieces of one file, in order. The
+     * first supplies the header. Value blocks are shared, not copied; only
+     * text codes are renumbered into one dictionary per column, and a
+     * numeric column is widened if any piece had to widen it.
+     */
+    static ColumnarTable concat(List<ColumnarTable> segments) {
+        ColumnarTable first = segments.get(0);
+        if (segments.size() == 1) {
+            return first;
+        }
+        
+        ColumnarTable table = new ColumnarTable();
+        table.columnNames.addAll(first.columnNames);
+        table.headerColumns = first.headerColumns;
+        int width = 0;
+        for (ColumnarTable segment : segments) {
+            width = Math.max(width, segment.getNumColumns());
+            table.numRows += segment.numRows;
+        }
+        while (table.columnNames.size() < width) {
+            table.columnNames.add("");
+        }
+        
+        for (int c = 0; c < width; c++) {
+            ColumnType type = null;
+            for (ColumnarTable segment : segments) {
+                if (c < segment.getNumColumns()) {
+                    ColumnType segmentType = segment.columns.get(c).getType();
+                    type = type == null ? segmentType : ColumnType.widerNumeric(type, segmentType);
+                }
+            }
+            Column merged = new Column(type);
+            for (ColumnarTable segment : segments) {
+                if (c < segment.getNumColumns()) {
+                    Column part = segment.columns.get(c);
+                    part.widen(type);
+                    merged.appendColumn(part);
+                } else {
+                    merged.appendMissing(segment.numRows);
+                }
+            }
+            table.columns.add(merged);
+        }
+        
+        boolean ragged = false;
+        for (ColumnarTable segment : segments) {
+            ragged |= segment.rowWidths != null || segment.getNumColumns() != width;
+        }
+        if (ragged) {
+            table.rowWidths = new int[table.numRows];
+            int row = 0;
+            for (ColumnarTable segment : segments) {
+                for (int r = 0; r < segment.numRows; r++) {
+                    table.rowWidths[row++] = segment.getRowWidth(r);
+                }
+            }
+        }
+        return table;
+    }
+    
+    /**
+     * Table from already-built columns (used by BinaryDatasetReader);
+     * rowWidths is null when every row is full width
+     */
+    static ColumnarTable fromColumns(List<String> names, List<Column> columns, int numRows,
+                                     int headerColumns, int[] rowWidths) {
+        if (names.size() != columns.size() || headerColumns > columns.size()) {
+            throw new IllegalArgumentException("Column names and columns don't match");
+        }
+        ColumnarTable table = new ColumnarTable();
+        table.columnNames.addAll(names);
+        table.columns.addAll(columns);
+        table.numRows = numRows;
+        table.headerColumns = headerColumns;
+        table.rowWidths = rowWidths;
+        return table;
+    }
+    
+    public int getNumRows() {
+        return numRows;
+    }
+    
+    /**
+     * Number of columns named in the header (extra unnamed ones follow)
+     */
+    public int getHeaderColumns() {
+        return headerColumns;
+    }
+    
+    /**
+     * True if some row has fewer or more cells than there are columns
+     */
+    public boolean isRagged() {
+        return rowWidths != null;
+    }
+    
+    public int getNumColumns() {
+        return columns.size();
+    }
+    
+    public String getColumnName(int column) {
+        return columnNames.get(column);
+    }
+    
+    public Column getColumn(int column) {
+        return columns.get(column);
+    }
+    
+    /**
+     * Types of the header columns as loaded (after any widening)
+     */
+    public CSVSchema getSchema() {
+        ColumnType[] types = new ColumnType[headerColumns];
+        for (int c = 0; c < headerColumns; c++) {
+            types[c] = columns.get(c).getType();
+        }
+        return new CSVSchema(columnNames.subList(0, headerColumns), types);
+    }
+    
+    /**
+     * Number of cells in a row (the header width unless the row was ragged)
+     */
+    public int getRowWidth(int row) {
+        return rowWidths == null ? columns.size() : rowWidths[row];
+    }
+    
+    /**
+     * Build the row-based Dataset. Attribute types come from the column
+     * types, except the last header column, which is always the categorical
+     * class. Cells past the header stay in their row without an attribute.
+     */
+    public Dataset toDataset(String name) {
+        Dataset dataset = new Dataset(name);
+        int classColumn = headerColumns - 1;
+        for (int c = 0; c < headerColumns; c++) {
+            String type = (c == classColumn) ? "categorical" : columns.get(c).getType().getDatasetType();
+            dataset.addAttribute(new Attribute(columnNames.get(c), type));
+        }
+        addRows(dataset, 0);
+        return dataset;
+    }
+    
+    /**
+     * Add this table's rows from fromRow on to a Dataset made by toDataset,
+     * e.g. the rows that an append just added
+     */
+    public void addRows(Dataset dataset, int fromRow) {
+        int classColumn = headerColumns - 1;
+        for (int r = fromRow; r < numRows; r++) {
+            Instance instance = new Instance();
+            int width = getRowWidth(r);
+            Object last = null;
+            for (int c = 0; c < width; c++) {
+                Column column = columns.get(c);
+                last = (c == classColumn) ? column.getLabel(r) : column.getValue(r);
+                if (c == classColumn && last == null) {
+                    last = "";      // empty class cell: label "", as before
+                }
+                instance.addValue(last);
+            }
+            if (width > 0) {
+                instance.setClassValue(last != null ? last : "");
+            }
+            dataset.addInstance(instance);
+        }
+    }
+    
+    /**
+     * Append the rows of a CSV chunk (plain or compressed) to this table.
+     * With hasHeader the chunk's first row must name the same columns in
+     * the same order. Every cell must fit its column's type (an INT or LONG
+     * column may still widen), be empty, or be text the column already
+     * holds; otherwise nothing is appended and an IOException says which
+     * cell is wrong. Returns the number of rows added.
+     */
+    public int appendCSV(InputStream in, boolean hasHeader) throws IOException {
+        ColumnarTable chunk = new ColumnarTable();
+        Builder builder = chunk.new Builder(hasHeader, getSchema(), null);
+        try (InputStream data = CompressedInput.open(in)) {
+            new CSVTokenizer(data).parse(builder);
+        }
+        builder.finish();
+        if (chunk.numRows == 0) {
+            return 0;
+        }
+        if (hasHeader) {
+            List<String> expected = columnNames.subList(0, headerColumns);
+            List<String> found = chunk.columnNames.subList(0, builder.headerCells);
+            if (!found.equals(expected)) {
+                throw new IOException("Header doesn't match the dataset: expected " + expected + " but found " + found);
+            }
+        }
+        append(chunk);
+        return chunk.numRows;
+    }
+    
+    /**
+     * Append one row given as cell texts (null or "" for an empty cell),
+     * checked like the rows of appendCSV
+     */
+    public void appendRow(String... cells) throws IOException {
+        ColumnarTable chunk = new ColumnarTable();
+        Builder builder = chunk.new Builder(false, getSchema(), null);
+        for (String cell : cells) {
+            byte[] bytes = cell == null ? new byte[0] : cell.getBytes(StandardCharsets.UTF_8);
+            builder.cell(bytes, 0, bytes.length, false);
+        }
+        builder.endRow();
+        builder.finish();
+        append(chunk);
+    }
+    
+    /**
+     * Check a chunk parsed with this table's schema against the table, then
+     * copy its rows in. Nothing changes if the check fails.
+     */
+    private void append(ColumnarTable chunk) throws IOException {
+        int width = columns.size();
+        for (int r = 0; r < chunk.numRows; r++) {
+            if (chunk.getRowWidth(r) > width) {
+                throw new IOException("Row " + (r + 1) + " has " + chunk.getRowWidth(r)
+                                      + " cells, but the dataset has " + width + " columns");
+            }
+        }
+        for (int c = 0; c < chunk.getNumColumns(); c++) {
+            Column target = columns.get(c);
+            Column part = chunk.columns.get(c);
+            if (target.type == ColumnType.CATEGORICAL || !part.hasText) {
+                continue;
+            }
+            Set<String> known = new HashSet<>(target.strings);
+            for (int r = 0; r < chunk.numRows; r++) {
+                String text = part.getString(r);
+                if (text != null && !text.isEmpty() && !known.contains(text)) {
+                    throw new IOException("Row " + (r + 1) + ", column '" + columnNames.get(c) + "': \""
+                                          + text + "\" is not " + target.type);
+                }
+            }
+        }
+        
+        for (int c = 0; c < width; c++) {
+            Column target = columns.get(c);
+            if (c < chunk.getNumColumns()) {
+                Column part = chunk.columns.get(c);
+                target.widen(part.type);
+                target.appendRows(part);
+            } else {
+                target.appendMissing(chunk.numRows);
+            }
+        }
+        
+        if (rowWidths != null || chunk.isRagged() || chunk.getNumColumns() < width) {
+            recordRowWidths();
+            if (numRows + chunk.numRows > rowWidths.length) {
+                rowWidths = Arrays.copyOf(rowWidths, Math.max(numRows + chunk.numRows, rowWidths.length * 2));
+            }
+            for (int r = 0; r < chunk.numRows; r++) {
+                rowWidths[numRows + r] = chunk.getRowWidth(r);
+            }
+        }
+        numRows += chunk.numRows;
+    }
+    
+    /**
+     * Start tracking row widths explicitly (every row so far was full width)
+     */
+    private void recordRowWidths() {
+        if (rowWidths == null) {
+            rowWidths = new int[Math.max(16, numRows * 2)];
+            Arrays.fill(rowWidths, 0, numRows, columns.size());
+        }
+    }
+    
+    /**
+     * Feeds tokenizer cells into the columns. Without a given schema the
+     * first rows are kept as bytes while their types are inferred, then
+     * replayed into the typed columns; later rows go straight in.
+     */
+    private class Builder implements CSVTokenizer.CellHandler {
+        private final NumericParser parser = new NumericParser();
+        private final Map<String, ColumnType> overrides;
+        private boolean header;
+        private int headerCells;       // names in the header row
+        private int column;
+        private Column[] targets = new Column[0];
+        
+        // Sampling state (null once the schema is known)
+        private CSVSchema.Inference inference;
+        private byte[] sampleBytes;
+        private int sampleUsed;
+        private int[] sampleCells;     // start, end pairs into sampleBytes
+        private int sampleCellCount;
+        private int[] sampleRowEnds;   // cell count at the end of each row
+        private int sampleRows;
+        private CSVSchema pendingSchema;   // given schema, applied after the header
+        
+        Builder(boolean header, CSVSchema schema, Map<String, ColumnType> overrides) {
+            this.header = header;
+            this.overrides = overrides;
+            if (schema != null) {
+                if (!header) {
+                    columnNames.addAll(namesOf(schema));
+                    start(schema);
+                } else {
+                    pendingSchema = schema;
+                }
+            }
+        }
+        
+        @Override
+        public void cell(byte[] buf, int start, int end, boolean quoted) {
+            if (header) {
+                columnNames.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                column++;
+            } else if (inference != null) {
+                keepSampleCell(buf, start, end);
+                inference.observe(column++, buf, start, end);
+            } else {
+                addCell(buf, start, end);
+            }
+        }
+        
+        @Override
+        public void endRow() {
+            if (header) {
+                header = false;
+                headerCells = columnNames.size();
+                column = 0;
+                if (pendingSchema != null) {
+                    start(pendingSchema);
+                } else {
+                    inference = new CSVSchema.Inference();
+                    for (String name : columnNames) {
+                        inference.addColumn(name);
+                    }
+                    sampleBytes = new byte[1 << 16];
+                    sampleCells = new int[256];
+                    sampleRowEnds = new int[CSVSchema.SAMPLE_ROWS];
+                }
+            } else if (inference != null) {
+                sampleRowEnds[sampleRows++] = sampleCellCount;
+                inference.endRow();
+                column = 0;
+                if (sampleRows == CSVSchema.SAMPLE_ROWS) {
+                    finishSampling();
+                }
+            } else {
+                endDataRow();
+            }
+        }
+        
+        /**
+         * End of input: settle the schema if the sample never filled up
+         */
+        void finish() {
+            if (header) {
+                header = false;
+                headerColumns = columnNames.size();
+            }
+            if (inference != null) {
+                finishSampling();
+            } else if (targets.length == 0 && columns.isEmpty()) {
+                headerColumns = columnNames.size();
+                for (int c = 0; c < columnNames.size(); c++) {
+                    columns.add(new Column(ColumnType.DOUBLE));
+                }
+            }
+        }
+        
+        private void keepSampleCell(byte[] buf, int start, int end) {
+            int length = end - start;
+            if (sampleUsed + length > sampleBytes.length) {
+                sampleBytes = Arrays.copyOf(sampleBytes, Math.max(sampleUsed + length, sampleBytes.length * 2));
+            }
+            System.arraycopy(buf, start, sampleBytes, sampleUsed, length);
+            if (2 * sampleCellCount + 2 > sampleCells.length) {
+                sampleCells = Arrays.copyOf(sampleCells, sampleCells.length * 2);
+            }
+            sampleCells[2 * sampleCellCount] = sampleUsed;
+            sampleCells[2 * sampleCellCount + 1] = sampleUsed + length;
+            sampleCellCount++;
+            sampleUsed += length;
+        }
+        
+        /**
+         * Decide the schema, then replay the sampled rows into the columns
+         */
+        private void finishSampling() {
+            CSVSchema schema = inference.build().withOverrides(overrides);
+            inference = null;
+            start(schema);
+            
+            int cell = 0;
+            for (int r = 0; r < sampleRows; r++) {
+                for (; cell < sampleRowEnds[r]; cell++) {
+                    addCell(sampleBytes, sampleCells[2 * cell], sampleCells[2 * cell + 1]);
+                }
+                endDataRow();
+            }
+            sampleBytes = null;
+            sampleCells = null;
+            sampleRowEnds = null;
+        }
+        
+        /**
+         * Create one typed column per schema column
+         */
+        private void start(CSVSchema schema) {
+            headerColumns = schema.getNumColumns();
+            for (int c = 0; c < schema.getNumColumns(); c++) {
+                columns.add(new Column(schema.getType(c)));
+            }
+            targets = columns.toArray(new Column[0]);
+            column = 0;
+        }
+        
+        private void addCell(byte[] buf, int start, int end) {
+            if (column == targets.length) {
+                // More cells than columns: new unnamed column, missing so far
+                if (numRows > 0) {
+                    recordRowWidths();
+                }
+                Column extra = new Column(ColumnType.DOUBLE);
+                extra.appendMissing(numRows);
+                columns.add(extra);
+                columnNames.add("");
+                targets = columns.toArray(new Column[0]);
+            }
+            targets[column++].appendCell(buf, start, end, parser);
+        }
+        
+        private void endDataRow() {
+            int width = column;
+            for (int c = width; c < targets.length; c++) {
+                targets[c].appendMissing();
+            }
+            if (width != targets.length || rowWidths != null) {
+                recordRowWidths();
+                if (numRows == rowWidths.length) {
+                    rowWidths = Arrays.copyOf(rowWidths, numRows * 2);
+                }
+                rowWidths[numRows] = width;
+            }
+            numRows++;
+            column = 0;
+        }
+    }
+    
+    private static List<String> namesOf(CSVSchema schema) {
+        List<String> names = new ArrayList<>();
+        for (int c = 0; c < schema.getNumColumns(); c++) {
+            names.add(schema.getColumnName(c));
+        }
+        return names;
+    }
+    
+    /**
+     * One column: typed values in blocks, plus text as dictionary codes.
+     * Values live in blocks of at most BLOCK_SIZE rows, so a growing column
+     * never copies more than its open block. That block starts small and
+     * doubles until it is full size, so a small table (or a few appended
+     * rows) doesn't reserve a whole block per column. A block of codes is
+     * only created once that block holds text or a missing cell.
+     */
+    public static class Column {
+        static final int VALUE = 0;
+        static final int MISSING = -1;
+        private static final int BLOCK_SHIFT = 14;
+        private static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+        private static final int FIRST_BLOCK_SIZE = 256;
+        
+        private ColumnType type;
+        
+        // blockStart[b] is the first row of block b. While a column is built
+        // row by row every block is full (uniform), so a row's block is a
+        // shift; joined segments can leave shorter blocks in the middle.
+        private Object[] valueBlocks = new Object[8];  // int[] (INT, DATE), long[], double[], byte[] (BOOLEAN)
+        private int[][] codeBlocks = new int[8][];     // VALUE, MISSING or text code + 1 per cell
+        private int[] blockStart = new int[8];
+        private int blockCount;
+        private boolean uniform = true;
+        private int lastBlock;                         // lookup hint for row scans
+        private Object currentValues;                  // the block appends write into
+        private int blockCapacity;                     // its capacity (0 = none open)
+        private int offset;                            // position inside it
+        private int size;
+        private int valueCount;
+        private boolean hasText;
+        
+        // Dictionary: distinct byte strings -> code, open addressing
+        private final List<String> strings = new ArrayList<>();
+        private byte[] dictionaryBytes = new byte[0];
+        private int[] dictionaryStart = new int[0];
+        private int dictionaryUsed;
+        private int[] slots = new int[0];
+        
+        Column(ColumnType type) {
+            this.type = type;
+        }
+        
+        public ColumnType getType() {
+            return type;
+        }
+        
+        /**
+         * Parse one cell into this column's type; a cell that doesn't fit is
+         * kept as text (an INT or LONG column is widened for bigger or
+         * fractional numbers instead). The value is read without spaces
+         * around it, so a quoted " 5" is still a number; text keeps them.
+         */
+        void appendCell(byte[] buf, int cellStart, int cellEnd, NumericParser parser) {
+            int start = CSVSchema.valueStart(buf, cellStart, cellEnd);
+            int end = CSVSchema.valueEnd(buf, start, cellEnd);
+            switch (type) {
+                case INT:
+                    if (parser.parseInteger(buf, start, end)) {
+                        long value = parser.getLongValue();
+                        if (value == (int) value) {
+                            ((int[]) currentValues())[offset] = (int) value;
+                            appended();
+                            return;
+                        }
+                        widen(ColumnType.LONG);
+                        appendLong(value);
+                        return;
+                    }
+                    if (parser.parse(buf, start, end)) {
+                        widen(ColumnType.DOUBLE);
+                        appendDouble(parser.getValue());
+                        return;
+                    }
+                    break;
+                case LONG:
+                    if (parser.parseInteger(buf, start, end)) {
+                        appendLong(parser.getLongValue());
+                        return;
+                    }
+                    if (parser.parse(buf, start, end)) {
+                        widen(ColumnType.DOUBLE);
+                        appendDouble(parser.getValue());
+                        return;
+                    }
+                    break;
+                case DOUBLE:
+                    if (parser.parse(buf, start, end)) {
+                        appendDouble(parser.getValue());
+                        return;
+                    }
+                    break;
+                case DATE:
+                    int day = CSVSchema.parseDate(buf, start, end);
+                    if (day != CSVSchema.NO_DATE) {
+                        ((int[]) currentValues())[offset] = day;
+                        appended();
+                        return;
+                    }
+                    break;
+                case BOOLEAN:
+                    int word = CSVSchema.parseBoolean(buf, start, end);
+                    if (word >= 0) {
+                        ((byte[]) currentValues())[offset] = (byte) word;
+                        appended();
+                        return;
+                    }
+                    break;
+                default:
+                    break;
+            }
+            appendString(buf, cellStart, cellEnd);
+        }
+        
+        private void appendLong(long value) {
+            ((long[]) currentValues())[offset] = value;
+            appended();
+        }
+        
+        private void appendDouble(double value) {
+            ((double[]) currentValues())[offset] = value;
+            appended();
+        }
+        
+        /**
+         * The open value block: doubled while it is below full size, and a
+         * new one started when it is full
+         */
+        private Object currentValues() {
+            if (offset == blockCapacity) {
+                if (blockCapacity > 0 && blockCapacity < BLOCK_SIZE) {
+                    growBlock(Math.min(BLOCK_SIZE, blockCapacity * 2));
+                } else {
+                    int capacity = Math.min(BLOCK_SIZE, Math.max(FIRST_BLOCK_SIZE, size));
+                    addBlock(newValueBlock(capacity), null, 0, capacity);
+                }
+            }
+            return currentValues;
+        }
+        
+        /**
+         * Give the open block a bigger capacity (values and codes are copied)
+         */
+        private void growBlock(int capacity) {
+            int block = blockCount - 1;
+            if (currentValues instanceof int[]) {
+                currentValues = Arrays.copyOf((int[]) currentValues, capacity);
+            } else if (currentValues instanceof long[]) {
+                currentValues = Arrays.copyOf((long[]) currentValues, capacity);
+            } else if (currentValues instanceof double[]) {
+                currentValues = Arrays.copyOf((double[]) currentValues, capacity);
+            } else if (currentValues instanceof byte[]) {
+                currentValues = Arrays.copyOf((byte[]) currentValues, capacity);
+            }
+            valueBlocks[block] = currentValues;
+            if (codeBlocks[block] != null) {
+                codeBlocks[block] = Arrays.copyOf(codeBlocks[block], capacity);
+            }
+            blockCapacity = capacity;
+        }
+        
+        private void appended() {
+            offset++;
+            size++;
+            valueCount++;
+        }
+        
+        void appendString(byte[] buf, int start, int end) {
+            appendCode(lookup(buf, start, end) + 1);
+        }
+        
+        void appendMissing() {
+            appendCode(MISSING);
+        }
+        
+        void appendMissing(int count) {
+            for (int i = 0; i < count; i++) {
+                appendCode(MISSING);
+            }
+        }
+        
+        private void appendCode(int code) {
+            currentValues();
+            int block = blockCount - 1;
+            if (codeBlocks[block] == null) {
+                codeBlocks[block] = new int[blockCapacity];
+            }
+            codeBlocks[block][offset++] = code;
+            size++;
+            hasText |= code > 0;
+        }
+        
+        private Object newValueBlock(int capacity) {
+            switch (type) {
+                case INT:
+                case DATE:
+                    return new int[capacity];
+                case LONG:
+                    return new long[capacity];
+                case DOUBLE:
+                    return new double[capacity];
+                case BOOLEAN:
+                    return new byte[capacity];
+                default:
+                    return null;                       // categorical: codes only
+            }
+        }
+        
+        /**
+         * Add a block holding rows [size, size + length); an empty block
+         * (length 0) becomes the one that appends write into
+         */
+        private void addBlock(Object values, int[] codes, int length, int capacity) {
+            if (blockCount == blockStart.length) {
+                valueBlocks = Arrays.copyOf(valueBlocks, blockCount * 2);
+                codeBlocks = Arrays.copyOf(codeBlocks, blockCount * 2);
+                blockStart = Arrays.copyOf(blockStart, blockCount * 2);
+            }
+            uniform &= size == blockCount << BLOCK_SHIFT;
+            valueBlocks[blockCount] = values;
+            codeBlocks[blockCount] = codes;
+            blockStart[blockCount] = size;
+            blockCount++;
+            
+            size += length;
+            currentValues = length == 0 ? values : null;
+            blockCapacity = length == 0 ? capacity : 0;
+            offset = 0;
+        }
+        
+        /**
+         * Convert an INT or LONG column to a wider numeric type in place
+         */
+        void widen(ColumnType wider) {
+            if (wider == type) {
+                return;
+            }
+            if (!type.isNumber() || !wider.isNumber() || wider.ordinal() < type.ordinal()) {
+                throw new IllegalStateException("Cannot widen " + type + " to " + wider);
+            }
+            for (int b = 0; b < blockCount; b++) {
+                Object values = valueBlocks[b];
+                if (values instanceof int[]) {
+                    int[] ints = (int[]) values;
+                    if (wider == ColumnType.LONG) {
+                        long[] longs = new long[ints.length];
+                        for (int i = 0; i < ints.length; i++) {
+                            longs[i] = ints[i];
+                        }
+                        valueBlocks[b] = longs;
+                    } else {
+                        double[] doubles = new double[ints.length];
+                        for (int i = 0; i < ints.length; i++) {
+                            doubles[i] = ints[i];
+                        }
+                        valueBlocks[b] = doubles;
+                    }
+                } else if (values instanceof long[]) {
+                    long[] longs = (long[]) values;
+                    double[] doubles = new double[longs.length];
+                    for (int i = 0; i < longs.length; i++) {
+                        doubles[i] = longs[i];
+                    }
+                    valueBlocks[b] = doubles;
+                }
+            }
+            if (blockCapacity > 0) {
+                currentValues = valueBlocks[blockCount - 1];
+            }
+            type = wider;
+        }
+        
+        /**
+         * Append all rows of another column of the same type, sharing its
+         * blocks. Its text codes are renumbered in place, so it must not be
+         * used afterwards.
+         */
+        void appendColumn(Column other) {
+            if (other.type != type) {
+                throw new IllegalStateException("Column types differ: " + type + " and " + other.type);
+            }
+            int[] remap = new int[other.strings.size() + 1];
+            for (int code = 0; code < other.strings.size(); code++) {
+                remap[code + 1] = lookup(other.dictionaryBytes, other.dictionaryStart[code], other.entryEnd(code)) + 1;
+            }
+            
+            for (int b = 0; b < other.blockCount; b++) {
+                int length = other.blockEnd(b) - other.blockStart[b];
+                int[] codes = other.codeBlocks[b];
+                if (codes != null) {
+                    for (int i = 0; i < length; i++) {
+                        if (codes[i] > 0) {
+                            codes[i] = remap[codes[i]];
+                        }
+                    }
+                }
+                addBlock(other.valueBlocks[b], codes, length, 0);
+            }
+            valueCount += other.valueCount;
+            hasText |= other.hasText;
+        }
+        
+        /**
+         * Copy all rows of another column of the same type into the open
+         * blocks (unlike appendColumn, the other column is left as it is)
+         */
+        void appendRows(Column other) {
+            if (other.type != type) {
+                throw new IllegalStateException("Column types differ: " + type + " and " + other.type);
+            }
+            for (int b = 0; b < other.blockCount; b++) {
+                Object values = other.valueBlocks[b];
+                int[] codes = other.codeBlocks[b];
+                int length = other.getBlockLength(b);
+                for (int i = 0; i < length; i++) {
+                    int code = codes == null ? VALUE : codes[i];
+                    if (code == VALUE) {
+                        appendValue(values, i);
+                    } else if (code == MISSING) {
+                        appendMissing();
+                    } else {
+                        appendString(other.dictionaryBytes, other.dictionaryStart[code - 1], other.entryEnd(code - 1));
+                    }
+                }
+            }
+        }
+        
+        /**
+         * Append values[index] from a value block of this column's type
+         */
+        private void appendValue(Object values, int index) {
+            Object target = currentValues();
+            switch (type) {
+                case INT:
+                case DATE:
+                    ((int[]) target)[offset] = ((int[]) values)[index];
+                    break;
+                case LONG:
+                    ((long[]) target)[offset] = ((long[]) values)[index];
+                    break;
+                case DOUBLE:
+                    ((double[]) target)[offset] = ((double[]) values)[index];
+                    break;
+                case BOOLEAN:
+                    ((byte[]) target)[offset] = ((byte[]) values)[index];
+                    break;
+                default:
+                    throw new IllegalStateException("A categorical cell has no value");
+            }
+            appended();
+        }
+        
+        /**
+         * Append a finished block of another column's layout: values of this
+         * column's type (null for CATEGORICAL) and codes, or null codes when
+         * every cell holds a value. The arrays are kept, not copied.
+         */
+        void appendBlock(Object values, int[] codes, int length) {
+            addBlock(values, codes, length, 0);
+            if (codes == null) {
+                valueCount += length;
+                return;
+            }
+            for (int i = 0; i < length; i++) {
+                if (codes[i] == VALUE) {
+                    valueCount++;
+                }
+                hasText |= codes[i] > 0;
+            }
+        }
+        
+        /**
+         * Add a dictionary entry; entries get codes 0, 1, 2... in order
+         */
+        int addText(byte[] buf, int start, int end) {
+            return lookup(buf, start, end);
+        }
+        
+        /**
+         * Bytes of a dictionary entry, exactly as they were read
+         */
+        byte[] getText(int code) {
+            return Arrays.copyOfRange(dictionaryBytes, dictionaryStart[code], entryEnd(code));
+        }
+        
+        int getBlockCount() {
+            return blockCount;
+        }
+        
+        int getBlockLength(int block) {
+            return blockEnd(block) - blockStart[block];
+        }
+        
+        /**
+         * Values of a block (int[], long[], double[] or byte[], possibly
+         * longer than the block); null for CATEGORICAL
+         */
+        Object getValueBlock(int block) {
+            return valueBlocks[block];
+        }
+        
+        /**
+         * Codes of a block, or null if every cell holds a value
+         */
+        int[] getCodeBlock(int block) {
+            return codeBlocks[block];
+        }
+        
+        private int blockEnd(int block) {
+            return block + 1 < blockCount ? blockStart[block + 1] : size;
+        }
+        
+        /**
+         * Block holding a row
+         */
+        private int findBlock(int row) {
+            if (uniform) {
+                return row >>> BLOCK_SHIFT;
+            }
+            int block = lastBlock;
+            if (row >= blockStart[block] && row < blockEnd(block)) {
+                return block;
+            }
+            block = Arrays.binarySearch(blockStart, 0, blockCount, row);
+            if (block < 0) {
+                block = -block - 2;
+            }
+            // Skip empty blocks that start at the same row
+            while (block + 1 < blockCount && blockStart[block + 1] == row) {
+                block++;
+            }
+            lastBlock = block;
+            return block;
+        }
+        
+        /**
+         * Stored code for a row: VALUE, MISSING, or dictionary code + 1
+         */
+        private int code(int block, int row) {
+            int[] codes = codeBlocks[block];
+            return codes == null ? VALUE : codes[row - blockStart[block]];
+        }
+        
+        /**
+         * Code of a byte string, adding it to the dictionary if new
+         */
+        private int lookup(byte[] buf, int start, int end) {
+            int length = end - start;
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + buf[i];
+            }
+            hash ^= hash >>> 16;
+            
+            if (strings.size() * 2 >= slots.length) {
+                rehash(Math.max(16, slots.length * 2));
+            }
+            int mask = slots.length - 1;
+            for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+                int entry = slots[slot];
+                if (entry == 0) {
+                    int code = strings.size();
+                    addToDictionary(buf, start, length);
+                    strings.add(new String(buf, start, length, StandardCharsets.UTF_8));
+                    slots[slot] = code + 1;
+                    return code;
+                }
+                int code = entry - 1;
+                if (equalsEntry(code, buf, start, length)) {
+                    return code;
+                }
+            }
+        }
+        
+        private int entryEnd(int code) {
+            return code + 1 < strings.size() ? dictionaryStart[code + 1] : dictionaryUsed;
+        }
+        
+        private boolean equalsEntry(int code, byte[] buf, int start, int length) {
+            int from = dictionaryStart[code];
+            if (entryEnd(code) - from != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (dictionaryBytes[from + i] != buf[start + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        
+        private void addToDictionary(byte[] buf, int start, int length) {
+            int code = strings.size();
+            if (code == dictionaryStart.length) {
+                dictionaryStart = Arrays.copyOf(dictionaryStart, Math.max(16, code * 2));
+            }
+            if (dictionaryUsed + length > dictionaryBytes.length) {
+                dictionaryBytes = Arrays.copyOf(dictionaryBytes, Math.max(dictionaryUsed + length, dictionaryBytes.length * 2 + 64));
+            }
+            dictionaryStart[code] = dictionaryUsed;
+            System.arraycopy(buf, start, dictionaryBytes, dictionaryUsed, length);
+            dictionaryUsed += length;
+        }
+        
+        private void rehash(int capacity) {
+            slots = new int[capacity];
+            int mask = capacity - 1;
+            for (int code = 0; code < strings.size(); code++) {
+                int hash = 1;
+                for (int i = dictionaryStart[code]; i < entryEnd(code); i++) {
+                    hash = 31 * hash + dictionaryBytes[i];
+                }
+                hash ^= hash >>> 16;
+                int slot = hash & mask;
+                while (slots[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                slots[slot] = code + 1;
+            }
+        }
+        
+        public int size() {
+            return size;
+        }
+        
+        public boolean isMissing(int row) {
+            return code(findBlock(row), row) == MISSING;
+        }
+        
+        /**
+         * True if the cell holds a value of the column's type (not text,
+         * not missing)
+         */
+        public boolean hasValue(int row) {
+            return type != ColumnType.CATEGORICAL && code(findBlock(row), row) == VALUE;
+        }
+        
+        /**
+         * Typed value as a number: the number itself, days since 1970 for a
+         * date, 1/0 for a boolean (only meaningful when hasValue)
+         */
+        public double getNumber(int row) {
+            int block = findBlock(row);
+            return number(block, row - blockStart[block]);
+        }
+        
+        /**
+         * Typed value of an INT, LONG or DATE cell as an exact long (a
+         * double from getNumber loses digits above 2^53)
+         */
+        public long getLong(int row) {
+            int block = findBlock(row);
+            Object values = valueBlocks[block];
+            int index = row - blockStart[block];
+            switch (type) {
+                case INT:
+                case DATE:
+                    return ((int[]) values)[index];
+                case LONG:
+                    return ((long[]) values)[index];
+                default:
+                    throw new IllegalStateException("Column of type " + type + " has no long values");
+            }
+        }
+        
+        private double number(int block, int index) {
+            Object values = valueBlocks[block];
+            switch (type) {
+                case INT:
+                case DATE:
+                    return ((int[]) values)[index];
+                case LONG:
+                    return ((long[]) values)[index];
+                case DOUBLE:
+                    return ((double[]) values)[index];
+                case BOOLEAN:
+                    return ((byte[]) values)[index] & 1;
+                default:
+                    return Double.NaN;
+            }
+        }
+        
+        /**
+         * Text value of a row, or null if the cell is typed or missing
+         */
+        public String getString(int row) {
+            int code = code(findBlock(row), row);
+            return code > 0 ? strings.get(code - 1) : null;
+        }
+        
+        /**
+         * Cell as a Dataset feature value: Double for numbers and dates,
+         * String for booleans and text, null when missing
+         */
+        public Object getValue(int row) {
+            int block = findBlock(row);
+            int code = code(block, row);
+            if (code != VALUE) {
+                return code > 0 ? strings.get(code - 1) : null;
+            }
+            int index = row - blockStart[block];
+            if (type == ColumnType.BOOLEAN) {
+                return CSVSchema.booleanWord(((byte[]) valueBlocks[block])[index]);
+            }
+            return number(block, index);
+        }
+        
+        /**
+         * Cell as a class label: like getValue, but a date stays yyyy-MM-dd
+         */
+        public Object getLabel(int row) {
+            if (type == ColumnType.DATE && hasValue(row)) {
+                return CSVSchema.formatDate((int) getNumber(row));
+            }
+            return getValue(row);
+        }
+        
+        /**
+         * Number of cells holding a value of the column's type
+         */
+        public int getValueCount() {
+            return valueCount;
+        }
+        
+        /**
+         * True if some cell is text (always for CATEGORICAL)
+         */
+        public boolean hasText() {
+            return hasText;
+        }
+        
+        /**
+         * Distinct text values, in order of first appearance
+         */
+        public List<String> getDistinctStrings() {
+            return Collections.unmodifiableList(strings);
+        }
+    }
+}
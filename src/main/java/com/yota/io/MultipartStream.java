@@ -0,0 +1,307 @@
+package com.ayota.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * MULTIPART STREAM (Spring Boot Version)
+ * 
+ * Purpose: Read the parts of a multipart/form-data request body one after
+ * another, while the body is still arriving
+ * Think of it like: Unpacking a parcel as it comes off the delivery van,
+ * box by box, instead of waiting for the whole van to be emptied
+ * 
+ * Real-life analogy: Like a post room that opens each envelope as it
+ * arrives and sends the contents straight on to the right desk
+ * 
+ * How it works:
+ * - A fixed buffer slides over the body; bytes that cannot be the start
+ *   of a boundary ("\r\n--" + boundary) are handed out straight away
+ * - nextPart() skips to the next boundary and reads that part's headers
+ * - getBody() streams the part's content up to its closing boundary, so
+ *   an uploaded file can go straight into CSVTokenizer
+ * Memory use is the buffer plus one part's headers, however big the
+ * upload.
+ */
+public class MultipartStream {
+    
+    private static final int BUFFER_SIZE = 1 << 16;
+    private static final int MAX_HEADER_LINE = 8192;
+    
+    private final InputStream in;
+    private final byte[] delimiter;   // "\r\n--" + boundary
+    private final byte[] buf;
+    private int pos;
+    private int limit;
+    private int scanned;              // no boundary starts in [pos, scanned)
+    private boolean eof;
+    private boolean partDone;         // current body has reached its boundary
+    private boolean finished;         // closing boundary seen
+    private final Map<String, String> headers = new HashMap<>();
+    private final InputStream body = new PartInputStream();
+    
+    public MultipartStream(InputStream in, String boundary) {
+        if (boundary == null || boundary.isEmpty()) {
+            throw new IllegalArgumentException("Multipart boundary is missing");
+        }
+        this.in = in;
+        this.delimiter = ("\r\n--" + boundary).getBytes(StandardCharsets.ISO_8859_1);
+        this.buf = new byte[Math.max(BUFFER_SIZE, delimiter.length * 2)];
+        
+        // The first boundary has no line break before it; pretend it has,
+        // so the preamble is just a body nobody reads
+        buf[0] = '\r';
+        buf[1] = '\n';
+        limit = 2;
+    }
+    
+    /**
+     * Boundary parameter of a multipart Content-Type header, or null
+     */
+    public static String boundaryOf(String contentType) {
+        if (contentType == null) {
+            return null;
+        }
+        for (String part : contentType.split(";")) {
+            part = part.trim();
+            if (part.regionMatches(true, 0, "boundary=", 0, 9)) {
+                String boundary = part.substring(9);
+                if (boundary.length() >= 2 && boundary.startsWith("\"") && boundary.endsWith("\"")) {
+                    boundary = boundary.substring(1, boundary.length() - 1);
+                }
+                return boundary;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Move to the next part (skipping whatever is left of the current one);
+     * false once the closing boundary or the end of the body is reached
+     */
+    public boolean nextPart() throws IOException {
+        headers.clear();
+        if (finished) {
+            return false;
+        }
+        byte[] skip = new byte[4096];
+        while (body.read(skip, 0, skip.length) >= 0) {
+            // discard the rest of the current part
+        }
+        if (!partDone) {
+            finished = true;                  // body ended without a boundary
+            return false;
+        }
+        
+        // "--" after the boundary closes the body
+        fill(2);
+        if (limit - pos >= 2 && buf[pos] == '-' && buf[pos + 1] == '-') {
+            finished = true;
+            return false;
+        }
+        readLine();                           // rest of the boundary line
+        
+        // Headers up to the empty line
+        while (true) {
+            String line = readLine();
+            if (line == null) {
+                finished = true;
+                return false;
+            }
+            if (line.isEmpty()) {
+                break;
+            }
+            int colon = line.indexOf(':');
+            if (colon > 0) {
+                headers.put(line.substring(0, colon).trim().toLowerCase(Locale.ROOT), line.substring(colon + 1).trim());
+            }
+        }
+        partDone = false;
+        return true;
+    }
+    
+    /**
+     * Header of the current part by (case-insensitive) name, or null
+     */
+    public String getHeader(String name) {
+        return headers.get(name.toLowerCase(Locale.ROOT));
+    }
+    
+    /**
+     * Form field name of the current part, or null
+     */
+    public String getName() {
+        return dispositionParameter("name");
+    }
+    
+    /**
+     * File name of the current part, or null if it isn't a file
+     */
+    public String getFilename() {
+        return dispositionParameter("filename");
+    }
+    
+    /**
+     * Content of the current part; ends at the part's boundary
+     */
+    public InputStream getBody() {
+        return body;
+    }
+    
+    private String dispositionParameter(String name) {
+        String disposition = getHeader("Content-Disposition");
+        if (disposition == null) {
+            return null;
+        }
+        for (String parameter : disposition.split(";")) {
+            parameter = parameter.trim();
+            int equals = parameter.indexOf('=');
+            if (equals > 0 && parameter.substring(0, equals).trim().equalsIgnoreCase(name)) {
+                String value = parameter.substring(equals + 1).trim();
+                if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+                    value = value.substring(1, value.length() - 1);
+                }
+                return value;
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * One header line without its line break (UTF-8), or null at the end
+     * of the body
+     */
+    private String readLine() throws IOException {
+        int start = pos;
+        while (true) {
+            for (int i = pos; i < limit; i++) {
+                if (buf[i] == '\n') {
+                    int end = (i > start && buf[i - 1] == '\r') ? i - 1 : i;
+                    String line = new String(buf, start, end - start, StandardCharsets.UTF_8);
+                    pos = i + 1;
+                    return line;
+                }
+            }
+            if (limit - start > MAX_HEADER_LINE) {
+                throw new IOException("Multipart header line too long");
+            }
+            pos = limit;
+            int kept = limit - start;
+            if (!fillFrom(start)) {
+                return kept == 0 ? null : new String(buf, pos - kept, kept, StandardCharsets.UTF_8);
+            }
+            start = pos - kept;
+        }
+    }
+    
+    /**
+     * Read until at least count bytes are buffered after pos (or the input
+     * ends)
+     */
+    private void fill(int count) throws IOException {
+        while (limit - pos < count && fillFrom(pos)) {
+            // keep reading
+        }
+    }
+    
+    /**
+     * Keep the bytes from keep on (moved to the front of the buffer) and
+     * read more after them; false at the end of the input
+     */
+    private boolean fillFrom(int keep) throws IOException {
+        if (eof) {
+            return false;
+        }
+        if (keep > 0) {
+            System.arraycopy(buf, keep, buf, 0, limit - keep);
+            limit -= keep;
+            pos -= keep;
+            scanned = Math.max(0, scanned - keep);
+        }
+        if (limit == buf.length) {
+            throw new IOException("Multipart buffer overflow");
+        }
+        int n = in.read(buf, limit, buf.length - limit);
+        if (n < 0) {
+            eof = true;
+            return false;
+        }
+        limit += n;
+        return true;
+    }
+    
+    /**
+     * The current part's content: every byte up to the next boundary
+     */
+    private class PartInputStream extends InputStream {
+        
+        @Override
+        public int read() throws IOException {
+            byte[] one = new byte[1];
+            return read(one, 0, 1) < 0 ? -1 : one[0] & 0xFF;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            if (partDone || finished) {
+                return -1;
+            }
+            if (len == 0) {
+                return 0;
+            }
+            if (pos < scanned) {
+                // Already known to be content
+                int n = Math.min(len, scanned - pos);
+                System.arraycopy(buf, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+            
+            fill(delimiter.length);
+            int available = limit - pos;
+            if (available < delimiter.length) {
+                // Input ended without a boundary: the rest is content
+                if (available == 0) {
+                    finished = true;
+                    return -1;
+                }
+                int n = Math.min(len, available);
+                System.arraycopy(buf, pos, b, off, n);
+                pos += n;
+                return n;
+            }
+            
+            // Bytes before the first possible boundary start are content
+            int last = limit - delimiter.length;
+            int found = -1;
+            for (int i = pos; i <= last; i++) {
+                if (buf[i] == '\r' && startsDelimiter(i)) {
+                    found = i;
+                    break;
+                }
+            }
+            if (found == pos) {
+                pos += delimiter.length;
+                scanned = pos;
+                partDone = true;
+                return -1;
+            }
+            scanned = found >= 0 ? found : last + 1;
+            int n = Math.min(len, scanned - pos);
+            System.arraycopy(buf, pos, b, off, n);
+            pos += n;
+            return n;
+        }
+        
+        private boolean startsDelimiter(int at) {
+            for (int k = 1; k < delimiter.length; k++) {
+                if (buf[at + k] != delimiter[k]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
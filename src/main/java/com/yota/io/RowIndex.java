@@ -0,0 +1,345 @@
+package com.ayota.io;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32C;
+
+/**
+ * ROW INDEX (Spring Boot Version)
+ * 
+ * Purpose: Jump to any row of a huge CSV file without loading it
+ * Think of it like: The thumb tabs on a dictionary - one tab every few
+ * pages, then a short flick to the exact word
+ * 
+ * Real-life analogy: Like mile markers on a motorway; to reach mile 1234
+ * you drive to marker 1200 and count the last few miles
+ * 
+ * How it works:
+ * - One pass with CSVTokenizer (so rows are counted exactly as readCSV
+ *   counts them) notes the byte offset of every STRIDE-th data row
+ * - The offsets are saved beside the CSV file as "<file>.rowidx", with the
+ *   file's size and modified time; a later open() reuses them unless the
+ *   CSV has changed (or the index is damaged), and rebuilds otherwise
+ * - Reading row r seeks to the mark for row r - r % STRIDE and tokenizes
+ *   forward from there, so any row costs at most STRIDE rows of reading
+ * - sample() picks rows uniformly at random and reads them in file order,
+ *   visiting each needed stretch of the file once
+ * The index is 8 bytes per STRIDE rows: about 400KB for 200 million rows.
+ * Compressed files can't be indexed (there is nothing to seek into).
+ */
+public class RowIndex {
+    
+    public static final int STRIDE = 4096;
+    public static final String SUFFIX = ".rowidx";
+    
+    static final int MAGIC = 0x49544F59;           // "YOTI" read little-endian
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 36;     // magic, version, stride, size, modified, rows
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    
+    private final String filename;
+    private final long fileSize;
+    private final long lastModified;
+    private final long numRows;
+    private final long[] marks;                    // marks[k]: offset of data row k * STRIDE
+    private List<String> header;
+    
+    private RowIndex(String filename, long fileSize, long lastModified, long numRows, long[] marks) {
+        this.filename = filename;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+        this.numRows = numRows;
+        this.marks = marks;
+    }
+    
+    /**
+     * The index of a CSV file: loaded from beside it if it is up to date,
+     * otherwise built and saved there (kept in memory only if the
+     * directory isn't writable)
+     */
+    public static RowIndex open(String filename) throws IOException {
+        Path file = Paths.get(filename);
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        RowIndex index = load(filename, size, modified);
+        if (index == null) {
+            index = build(filename);
+            try {
+                index.save();
+            } catch (IOException e) {
+                // Read-only location: the index just isn't reused next time
+            }
+        }
+        return index;
+    }
+    
+    /**
+     * Build the index with one streaming pass over the file
+     */
+    public static RowIndex build(String filename) throws IOException {
+        if (CompressedInput.isCompressed(filename)) {
+            throw new IOException(filename + " is compressed; only plain CSV files can be indexed");
+        }
+        Path file = Paths.get(filename);
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        try (InputStream in = new FileInputStream(filename)) {
+            CSVTokenizer tokenizer = new CSVTokenizer(in);
+            Marker marker = new Marker(tokenizer);
+            tokenizer.parse(marker);
+            RowIndex index = new RowIndex(filename, size, modified, marker.rows,
+                                          Arrays.copyOf(marker.marks, marker.markCount));
+            index.header = marker.header;
+            return index;
+        }
+    }
+    
+    public long getNumRows() {
+        return numRows;
+    }
+    
+    /**
+     * Column names from the header row
+     */
+    public synchronized List<String> getHeader() throws IOException {
+        if (header == null) {
+            try (InputStream in = new FileInputStream(filename)) {
+                CSVTokenizer tokenizer = new CSVTokenizer(in, (byte) ',', READ_BUFFER_SIZE);
+                Collector collector = new Collector(tokenizer, -1, new long[] {-1}, 0);
+                tokenizer.parse(collector);
+                header = collector.rows.isEmpty() ? new ArrayList<>() : Arrays.asList(collector.rows.get(0));
+            }
+        }
+        return Collections.unmodifiableList(header);
+    }
+    
+    /**
+     * One data row's cells (row 0 is the first row after the header)
+     */
+    public String[] readRow(long row) throws IOException {
+        List<String[]> rows = readRows(row, 1);
+        if (rows.isEmpty()) {
+            throw new IndexOutOfBoundsException("Row " + row + " of " + numRows);
+        }
+        return rows.get(0);
+    }
+    
+    /**
+     * Up to count consecutive data rows starting at first (fewer at the
+     * end of the file); e.g. one page of a preview
+     */
+    public List<String[]> readRows(long first, int count) throws IOException {
+        if (first < 0) {
+            throw new IndexOutOfBoundsException("Row " + first);
+        }
+        long end = Math.min(numRows, first + Math.max(0, count));
+        long[] rows = new long[(int) Math.max(0, end - first)];
+        for (int i = 0; i < rows.length; i++) {
+            rows[i] = first + i;
+        }
+        return collect(rows);
+    }
+    
+    /**
+     * A uniform random sample of count distinct data rows (all of them if
+     * the file has fewer), in file order; the same seed gives the same rows
+     */
+    public List<String[]> sample(int count, long seed) throws IOException {
+        int n = (int) Math.min(count, numRows);
+        // Floyd's algorithm: n distinct rows out of numRows, each equally likely
+        Random random = new Random(seed);
+        Set<Long> chosen = new HashSet<>();
+        for (long j = numRows - n; j < numRows; j++) {
+            long pick = random.nextLong(j + 1);
+            chosen.add(chosen.contains(pick) ? j : pick);
+        }
+        long[] rows = new long[n];
+        int i = 0;
+        for (long row : chosen) {
+            rows[i++] = row;
+        }
+        Arrays.sort(rows);
+        return collect(rows);
+    }
+    
+    /**
+     * Save the index as "<file>.rowidx" (written to a temporary name, then
+     * renamed into place)
+     */
+    public void save() throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + 4 + marks.length * 8 + 4).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(STRIDE);
+        buffer.putLong(fileSize).putLong(lastModified).putLong(numRows);
+        buffer.putInt(marks.length);
+        for (long mark : marks) {
+            buffer.putLong(mark);
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) checksum.getValue());
+        buffer.flip();
+        
+        Path target = Paths.get(filename + SUFFIX);
+        Path temp = Paths.get(filename + SUFFIX + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                                                    StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * The saved index, or null if there is none, it is for another
+     * version of the file, or it is damaged
+     */
+    private static RowIndex load(String filename, long size, long modified) throws IOException {
+        Path path = Paths.get(filename + SUFFIX);
+        if (!Files.exists(path)) {
+            return null;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ByteOrder.LITTLE_ENDIAN);
+        if (buffer.remaining() < HEADER_SIZE + 8
+                || buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != STRIDE
+                || buffer.getLong() != size || buffer.getLong() != modified) {
+            return null;
+        }
+        long rows = buffer.getLong();
+        int count = buffer.getInt();
+        if (count < 0 || buffer.remaining() != count * 8L + 4 || count != (rows + STRIDE - 1) / STRIDE) {
+            return null;
+        }
+        long[] marks = new long[count];
+        for (int i = 0; i < count; i++) {
+            marks[i] = buffer.getLong();
+        }
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.array(), 0, buffer.position());
+        if (buffer.getInt() != (int) checksum.getValue()) {
+            return null;
+        }
+        return new RowIndex(filename, size, modified, rows, marks);
+    }
+    
+    /**
+     * Read the given data rows (sorted, distinct). Each run of rows is read
+     * from the mark before it; the reader only seeks again when the next
+     * wanted row is more than a stride ahead.
+     */
+    private List<String[]> collect(long[] rows) throws IOException {
+        List<String[]> result = new ArrayList<>(rows.length);
+        int next = 0;
+        try (FileInputStream in = new FileInputStream(filename)) {
+            FileChannel channel = in.getChannel();
+            while (next < rows.length) {
+                int mark = (int) (rows[next] / STRIDE);
+                channel.position(marks[mark]);
+                CSVTokenizer tokenizer = new CSVTokenizer(in, (byte) ',', READ_BUFFER_SIZE);
+                tokenizer.setSkipByteOrderMark(false);
+                Collector collector = new Collector(tokenizer, (long) mark * STRIDE, rows, next);
+                tokenizer.parse(collector);
+                if (collector.next == next) {
+                    throw new IOException(filename + " changed since it was indexed");
+                }
+                result.addAll(collector.rows);
+                next = collector.next;
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Index pass: the header, the row count and every STRIDE-th row start
+     */
+    private static class Marker implements CSVTokenizer.CellHandler {
+        private final CSVTokenizer tokenizer;
+        private List<String> header = new ArrayList<>();
+        private boolean inHeader = true;
+        private boolean rowStarted;
+        private long rows;
+        private long[] marks = new long[64];
+        private int markCount;
+        
+        Marker(CSVTokenizer tokenizer) {
+            this.tokenizer = tokenizer;
+        }
+        
+        @Override
+        public void cell(byte[] buf, int start, int end, boolean quoted) {
+            if (inHeader) {
+                header.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                return;
+            }
+            if (rowStarted) {
+                return;
+            }
+            rowStarted = true;
+            if (rows % STRIDE == 0) {
+                if (markCount == marks.length) {
+                    marks = Arrays.copyOf(marks, markCount * 2);
+                }
+                // A quoted cell's slice starts after its opening quote
+                marks[markCount++] = tokenizer.offsetOf(quoted ? start - 1 : start);
+            }
+            rows++;
+        }
+        
+        @Override
+        public void endRow() {
+            inHeader = false;
+            rowStarted = false;
+        }
+    }
+    
+    /**
+     * Keeps the cells of wanted rows while tokenizing forward from a mark;
+     * stops when the rest are too far ahead (or all are read)
+     */
+    private static class Collector implements CSVTokenizer.CellHandler {
+        private final CSVTokenizer tokenizer;
+        private final long[] wanted;
+        private final List<String[]> rows = new ArrayList<>();
+        private final List<String> cells = new ArrayList<>();
+        private long row;
+        private int next;
+        
+        Collector(CSVTokenizer tokenizer, long firstRow, long[] wanted, int next) {
+            this.tokenizer = tokenizer;
+            this.row = firstRow;
+            this.wanted = wanted;
+            this.next = next;
+        }
+        
+        @Override
+        public void cell(byte[] buf, int start, int end, boolean quoted) {
+            if (row == wanted[next]) {
+                cells.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+            }
+        }
+        
+        @Override
+        public void endRow() {
+            if (row == wanted[next]) {
+                rows.add(cells.toArray(new String[0]));
+                cells.clear();
+                next++;
+            }
+            row++;
+            if (next == wanted.length || wanted[next] - row > STRIDE) {
+                tokenizer.stop();
+            }
+        }
+    }
+}
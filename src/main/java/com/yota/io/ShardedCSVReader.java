@@ -0,0 +1,476 @@
+package com.ayota.io;
+
+import com.ayota.io.CSVSchema.ColumnType;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+/**
+ * SHARDED CSV READER (Spring Boot Version)
+ * 
+ * Purpose: Load a dataset that is stored as many CSV files (one per
+ * partition) as if it were one file
+ * Think of it like: Reading a book that came as a box of loose chapters -
+ * check they all belong to the same book, then read them in order
+ * 
+ * Real-life analogy: Like a head office adding up the ledgers of all its
+ * branches: every ledger must use the same columns, several clerks work
+ * at once, and branches that can't have what you're looking for are
+ * skipped without opening their books
+ * 
+ * How it works:
+ * 1. The shards are the CSV files in a directory (plain or compressed,
+ *    skipping hidden files and names starting with "_"), or the files
+ *    matching a glob such as "sales/part-*.csv.gz", in path order
+ * 2. Optional pruning: a shard may have a sidecar "<shard>.minmax" (see
+ *    writeStats) with each column's smallest and largest value. A shard
+ *    is skipped when its sidecar shows that a requested Range can't hold
+ *    any of its rows. The sidecar records the shard's size and modified
+ *    time; if the shard has changed since, or there is no usable sidecar,
+ *    the shard is always read
+ * 3. Schema check: the header of every remaining shard is read first, and
+ *    all must name the same columns in the same order, or nothing is
+ *    loaded. Column types are sampled once, from the first shard
+ *    (CSVSchema), so every shard parses into the same types
+ * 4. The shards are parsed on a fixed pool of threads, each streaming its
+ *    file through the tokenizer's buffer: however many shards there are,
+ *    only that many are being read at a time, and nothing but the parsed
+ *    columns stays in memory
+ * 5. The parsed shards are joined in path order without copying their
+ *    blocks (ColumnarTable.concat)
+ * 
+ * The result is what readCSV gives for the shards written one after the
+ * other as a single file (minus the repeated headers). Pruning only skips
+ * whole shards; rows of the shards that are read are not filtered.
+ * A shard that ends inside a quoted field is reported as truncated.
+ */
+public class ShardedCSVReader {
+    
+    public static final String STATS_SUFFIX = ".minmax";
+    private static final String STATS_SHARD_ROW = "shard";
+    
+    private static final String SHARD_GLOB = "*.{csv,gz,zip,zz,deflate}";
+    private static final int HEADER_BUFFER_SIZE = 1 << 16;
+    
+    private final int threads;
+    private int shardsRead;
+    private int shardsPruned;
+    
+    /**
+     * A column must have a value between min and max (inclusive) for a
+     * row to be wanted; dates are given as days since 1970-01-01, as in a
+     * Dataset
+     */
+    public static class Range {
+        private final String column;
+        private final double min;
+        private final double max;
+        
+        public Range(String column, double min, double max) {
+            if (min > max) {
+                throw new IllegalArgumentException("Range for " + column + " is empty: " + min + " > " + max);
+            }
+            this.column = column;
+            this.min = min;
+            this.max = max;
+        }
+        
+        public static Range atLeast(String column, double min) {
+            return new Range(column, min, Double.POSITIVE_INFINITY);
+        }
+        
+        public static Range atMost(String column, double max) {
+            return new Range(column, Double.NEGATIVE_INFINITY, max);
+        }
+        
+        /**
+         * Dates from and to (yyyy-MM-dd, inclusive)
+         */
+        public static Range dates(String column, String from, String to) {
+            return new Range(column, LocalDate.parse(from).toEpochDay(), LocalDate.parse(to).toEpochDay());
+        }
+        
+        public String getColumn() { return column; }
+        public double getMin() { return min; }
+        public double getMax() { return max; }
+        
+        @Override
+        public String toString() {
+            return min + " <= " + column + " <= " + max;
+        }
+    }
+    
+    public ShardedCSVReader() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+    
+    public ShardedCSVReader(int threads) {
+        this.threads = Math.max(1, threads);
+    }
+    
+    /**
+     * Load every shard of a directory or glob
+     */
+    public ColumnarTable read(String location) throws IOException {
+        return read(location, null, null);
+    }
+    
+    /**
+     * Load the shards of a directory or glob that may have rows in all the
+     * given ranges (null = no pruning); overrides (column name -> type)
+     * replace inferred types
+     */
+    public ColumnarTable read(String location, Map<String, ColumnType> overrides,
+                              List<Range> ranges) throws IOException {
+        List<Path> shards = listShards(location);
+        List<Path> kept = new ArrayList<>();
+        for (Path shard : shards) {
+            if (ranges == null || ranges.isEmpty() || mayMatch(readStats(shard), ranges)) {
+                kept.add(shard);
+            }
+        }
+        shardsPruned = shards.size() - kept.size();
+        shardsRead = kept.size();
+        
+        CSVSchema schema;
+        try (InputStream head = CompressedInput.open(new FileInputStream((kept.isEmpty() ? shards : kept).get(0).toFile()))) {
+            schema = CSVSchema.sample(head, overrides);
+        }
+        if (kept.isEmpty()) {
+            // Every shard was pruned: no rows, but the columns are known
+            List<String> names = new ArrayList<>();
+            List<ColumnarTable.Column> columns = new ArrayList<>();
+            for (int c = 0; c < schema.getNumColumns(); c++) {
+                names.add(schema.getColumnName(c));
+                columns.add(new ColumnarTable.Column(schema.getType(c)));
+            }
+            return ColumnarTable.fromColumns(names, columns, 0, names.size(), null);
+        }
+        
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, kept.size()));
+        try {
+            checkHeaders(kept, pool);
+            
+            List<Callable<ColumnarTable>> parsers = new ArrayList<>(kept.size());
+            for (Path shard : kept) {
+                parsers.add(() -> {
+                    try (InputStream in = CompressedInput.open(new FileInputStream(shard.toFile()))) {
+                        ColumnarTable segment = ColumnarTable.readSegment(in, true, schema);
+                        if (segment == null) {
+                            throw new IOException("Shard " + shard + " ends inside a quoted field (truncated?)");
+                        }
+                        return segment;
+                    }
+                });
+            }
+            List<ColumnarTable> segments = new ArrayList<>(kept.size());
+            for (Future<ColumnarTable> result : pool.invokeAll(parsers)) {
+                segments.add(result.get());
+            }
+            return ColumnarTable.concat(segments);
+        
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Shard load interrupted");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new RuntimeException("Shard worker failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+    
+    /**
+     * Shards parsed by the last read
+     */
+    public int getShardsRead() {
+        return shardsRead;
+    }
+    
+    /**
+     * Shards the last read skipped because of their sidecar statistics
+     */
+    public int getShardsPruned() {
+        return shardsPruned;
+    }
+    
+    /**
+     * The shard files of a directory or glob (or the file itself), in path
+     * order
+     */
+    public static List<Path> listShards(String location) throws IOException {
+        Path path = Paths.get(location);
+        List<Path> shards = new ArrayList<>();
+        if (Files.isDirectory(path)) {
+            PathMatcher matcher = path.getFileSystem().getPathMatcher("glob:" + SHARD_GLOB);
+            try (Stream<Path> files = Files.list(path)) {
+                files.filter(file -> Files.isRegularFile(file) && isData(file) && matcher.matches(file.getFileName()))
+                     .forEach(shards::add);
+            }
+        } else if (isGlob(location)) {
+            // Walk from the last directory before the first wildcard
+            String[] parts = location.replace('\\', '/').split("/", -1);
+            int fixed = 0;
+            while (fixed < parts.length - 1 && !isGlob(parts[fixed])) {
+                fixed++;
+            }
+            String baseName = String.join("/", Arrays.copyOf(parts, fixed));
+            Path base = baseName.isEmpty() ? Paths.get(location.startsWith("/") ? "/" : ".") : Paths.get(baseName);
+            Path pattern = base.resolve(String.join("/", Arrays.copyOfRange(parts, fixed, parts.length)));
+            PathMatcher matcher = base.getFileSystem().getPathMatcher("glob:" + pattern.toString().replace('\\', '/'));
+            int depth = location.contains("**") ? Integer.MAX_VALUE : parts.length - fixed;
+            if (Files.isDirectory(base)) {
+                try (Stream<Path> files = Files.walk(base, depth)) {
+                    files.filter(file -> Files.isRegularFile(file) && isData(file) && matcher.matches(file))
+                         .forEach(shards::add);
+                }
+            }
+        } else if (Files.isRegularFile(path)) {
+            shards.add(path);
+        }
+        if (shards.isEmpty()) {
+            throw new IOException("No CSV shards found at " + location);
+        }
+        shards.sort(Comparator.comparing(Path::toString));
+        return shards;
+    }
+    
+    /**
+     * Write "<shard>.minmax": the shard's size and modified time, then the
+     * smallest and largest value of each numeric and date column, for
+     * pruning. Typically run once when the shard is written; rewriting or
+     * appending to the shard afterwards makes the sidecar stale.
+     */
+    public static void writeStats(String shard) throws IOException {
+        // Taken before reading, so a change made while reading is stale too
+        Path file = Paths.get(shard);
+        long size = Files.size(file);
+        long modified = Files.getLastModifiedTime(file).toMillis();
+        ColumnarTable table = ColumnarTable.readCSV(shard);
+        Path target = Paths.get(shard + STATS_SUFFIX);
+        Path temp = Paths.get(shard + STATS_SUFFIX + ".tmp");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(temp, StandardCharsets.UTF_8))) {
+            out.println(STATS_SHARD_ROW + "," + size + "," + modified);
+            out.println("column,min,max");
+            for (int c = 0; c < table.getHeaderColumns(); c++) {
+                ColumnarTable.Column column = table.getColumn(c);
+                ColumnType type = column.getType();
+                if (type != ColumnType.INT && type != ColumnType.LONG && type != ColumnType.DOUBLE
+                        && type != ColumnType.DATE) {
+                    continue;
+                }
+                String bounds = type == ColumnType.DOUBLE ? doubleBounds(column, table.getNumRows())
+                                                          : longBounds(column, table.getNumRows());
+                if (bounds != null) {
+                    out.println(quote(table.getColumnName(c)) + "," + bounds);
+                }
+            }
+            if (out.checkError()) {
+                throw new IOException("Could not write " + temp);
+            }
+        }
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    
+    /**
+     * Read every shard's header (only the first row of each) and fail if
+     * any differs from the first shard's
+     */
+    private static void checkHeaders(List<Path> shards, ExecutorService pool)
+            throws IOException, InterruptedException, ExecutionException {
+        List<Callable<List<String>>> readers = new ArrayList<>(shards.size());
+        for (Path shard : shards) {
+            readers.add(() -> readHeader(shard));
+        }
+        List<Future<List<String>>> headers = pool.invokeAll(readers);
+        List<String> expected = headers.get(0).get();
+        for (int i = 1; i < shards.size(); i++) {
+            List<String> header = headers.get(i).get();
+            if (!header.equals(expected)) {
+                throw new IOException("Shard " + shards.get(i) + " has columns " + header + ", but "
+                                      + shards.get(0) + " has " + expected);
+            }
+        }
+    }
+    
+    private static List<String> readHeader(Path shard) throws IOException {
+        List<String> header = new ArrayList<>();
+        try (InputStream in = CompressedInput.open(new FileInputStream(shard.toFile()))) {
+            CSVTokenizer tokenizer = new CSVTokenizer(in, (byte) ',', HEADER_BUFFER_SIZE);
+            tokenizer.parse(new CSVTokenizer.CellHandler() {
+                @Override
+                public void cell(byte[] buf, int start, int end, boolean quoted) {
+                    header.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                }
+                
+                @Override
+                public void endRow() {
+                    tokenizer.stop();
+                }
+            });
+        }
+        return header;
+    }
+    
+    /**
+     * Column -> {min, max} from a shard's sidecar; empty if there is none,
+     * it can't be read, or the shard has changed since it was written (the
+     * shard is then always loaded)
+     */
+    static Map<String, double[]> readStats(Path shard) {
+        Map<String, double[]> stats = new HashMap<>();
+        Path sidecar = Paths.get(shard + STATS_SUFFIX);
+        if (!Files.isRegularFile(sidecar)) {
+            return stats;
+        }
+        List<String> cells = new ArrayList<>();
+        try (InputStream in = new FileInputStream(sidecar.toFile())) {
+            List<String> current = Arrays.asList(STATS_SHARD_ROW, Long.toString(Files.size(shard)),
+                                                 Long.toString(Files.getLastModifiedTime(shard).toMillis()));
+            boolean[] stale = new boolean[1];
+            CSVTokenizer tokenizer = new CSVTokenizer(in, (byte) ',', HEADER_BUFFER_SIZE);
+            tokenizer.parse(new CSVTokenizer.CellHandler() {
+                private int row;
+                
+                @Override
+                public void cell(byte[] buf, int start, int end, boolean quoted) {
+                    cells.add(new String(buf, start, end - start, StandardCharsets.UTF_8));
+                }
+                
+                @Override
+                public void endRow() {
+                    // Row 0 is the shard's size and modified time, row 1 the header
+                    if (row == 0 && !cells.equals(current)) {
+                        stale[0] = true;
+                        tokenizer.stop();
+                    } else if (row > 1 && cells.size() >= 3) {
+                        // A long bound rounds to the nearest double, as its
+                        // column's values do when compared, so it still covers them
+                        double min = parseValue(cells.get(1));
+                        double max = parseValue(cells.get(2));
+                        if (min <= max) {           // false for NaN
+                            stats.put(cells.get(0), new double[] {min, max});
+                        }
+                    }
+                    row++;
+                    cells.clear();
+                }
+            });
+            if (stale[0]) {
+                stats.clear();
+            }
+        } catch (IOException e) {
+            stats.clear();
+        }
+        return stats;
+    }
+    
+    /**
+     * False only if the statistics prove no row can be in every range
+     */
+    static boolean mayMatch(Map<String, double[]> stats, List<Range> ranges) {
+        for (Range range : ranges) {
+            double[] minMax = stats.get(range.column);
+            if (minMax != null && (minMax[1] < range.min || minMax[0] > range.max)) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * A number, or a yyyy-MM-dd date as days since 1970 (NaN otherwise)
+     */
+    private static double parseValue(String text) {
+        byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        int day = CSVSchema.parseDate(bytes, 0, bytes.length);
+        if (day != CSVSchema.NO_DATE) {
+            return day;
+        }
+        try {
+            return Double.parseDouble(text);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+    
+    /**
+     * "min,max" of a DOUBLE column, or null if it has no values
+     */
+    private static String doubleBounds(ColumnarTable.Column column, int rows) {
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (int r = 0; r < rows; r++) {
+            if (column.hasValue(r)) {
+                double value = column.getNumber(r);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        return min <= max ? min + "," + max : null;
+    }
+    
+    /**
+     * "min,max" of an INT, LONG or DATE column, or null if it has no
+     * values. Kept as longs, so values above 2^53 are written exactly.
+     */
+    private static String longBounds(ColumnarTable.Column column, int rows) {
+        long min = Long.MAX_VALUE;
+        long max = Long.MIN_VALUE;
+        boolean any = false;
+        for (int r = 0; r < rows; r++) {
+            if (column.hasValue(r)) {
+                long value = column.getLong(r);
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+                any = true;
+            }
+        }
+        if (!any) {
+            return null;
+        }
+        if (column.getType() == ColumnType.DATE) {
+            return CSVSchema.formatDate((int) min) + "," + CSVSchema.formatDate((int) max);
+        }
+        return min + "," + max;
+    }
+    
+    private static String quote(String name) {
+        if (name.indexOf(',') < 0 && name.indexOf('"') < 0 && name.indexOf('\n') < 0 && name.indexOf('\r') < 0) {
+            return name;
+        }
+        return '"' + name.replace("\"", "\"\"") + '"';
+    }
+    
+    private static boolean isGlob(String text) {
+        return text.indexOf('*') >= 0 || text.indexOf('?') >= 0 || text.indexOf('[') >= 0 || text.indexOf('{') >= 0;
+    }
+    
+    /**
+     * Not a hidden or bookkeeping file (".part-1.crc", "_SUCCESS") and not
+     * a sidecar
+     */
+    private static boolean isData(Path file) {
+        String name = file.getFileName().toString();
+        return !name.startsWith(".") && !name.startsWith("_")
+            && !name.endsWith(STATS_SUFFIX) && !name.endsWith(RowIndex.SUFFIX);
+    }
+}
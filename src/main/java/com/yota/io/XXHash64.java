@@ -0,0 +1,167 @@
+package com.ayota.io;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+
+/**
+ * XXHASH64
+ * 
+ * Purpose: Fingerprint a file's bytes quickly while they stream past
+ * Think of it like: A checksum that can keep up with the disk, so the
+ * same upload can be recognised without comparing whole files
+ * 
+ * Real-life analogy: Like a librarian who recognises a book by its ISBN
+ * instead of reading it cover to cover to see whether it's a duplicate
+ * 
+ * How it works (xxHash64, seed 0):
+ * - Four running lanes each take one 8-byte word of every 32-byte stripe
+ *   (multiply, rotate, multiply)
+ * - update() can be called with pieces of any size; a partial stripe is
+ *   kept until the next call completes it
+ * - getValue() merges the lanes and mixes in the leftover bytes and the
+ *   total length; it doesn't change the state, so hashing can go on
+ * Not a cryptographic hash: fine for spotting repeats, not for security.
+ */
+public class XXHash64 {
+    
+    private static final long PRIME1 = 0x9E3779B185EBCA87L;
+    private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+    private static final long PRIME3 = 0x165667B19E3779F9L;
+    private static final long PRIME4 = 0x85EBCA77C2B2AE63L;
+    private static final long PRIME5 = 0x27D4EB2F165667C5L;
+    
+    // Little-endian 8- and 4-byte reads at any offset of a byte[]
+    private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+    private static final VarHandle INTS = MethodHandles.byteArrayViewVarHandle(int[].class, ByteOrder.LITTLE_ENDIAN);
+    
+    private long v1 = PRIME1 + PRIME2;
+    private long v2 = PRIME2;
+    private long v3 = 0;
+    private long v4 = -PRIME1;
+    private long length;
+    private final byte[] pending = new byte[32];   // bytes of an unfinished stripe
+    private int pendingCount;
+    
+    /**
+     * Hash of everything an input stream holds (the stream is read to its
+     * end, not closed)
+     */
+    public static long hash(InputStream in) throws IOException {
+        XXHash64 hash = new XXHash64();
+        hash.update(in);
+        return hash.getValue();
+    }
+    
+    /**
+     * Feed everything an input stream holds into the hash (the stream is
+     * read to its end, not closed)
+     */
+    public void update(InputStream in) throws IOException {
+        byte[] buffer = new byte[1 << 16];
+        int n;
+        while ((n = in.read(buffer)) > 0) {
+            update(buffer, 0, n);
+        }
+    }
+    
+    public void update(byte[] buf, int off, int len) {
+        length += len;
+        int end = off + len;
+        
+        if (pendingCount > 0) {
+            int take = Math.min(len, 32 - pendingCount);
+            System.arraycopy(buf, off, pending, pendingCount, take);
+            pendingCount += take;
+            off += take;
+            if (pendingCount < 32) {
+                return;
+            }
+            stripe(pending, 0);
+            pendingCount = 0;
+        }
+        
+        for (; off + 32 <= end; off += 32) {
+            stripe(buf, off);
+        }
+        
+        if (off < end) {
+            System.arraycopy(buf, off, pending, 0, end - off);
+            pendingCount = end - off;
+        }
+    }
+    
+    /**
+     * Number of bytes hashed so far
+     */
+    public long getLength() {
+        return length;
+    }
+    
+    /**
+     * Hash of all bytes given so far
+     */
+    public long getValue() {
+        long hash;
+        if (length >= 32) {
+            hash = Long.rotateLeft(v1, 1) + Long.rotateLeft(v2, 7) + Long.rotateLeft(v3, 12) + Long.rotateLeft(v4, 18);
+            hash = merge(hash, v1);
+            hash = merge(hash, v2);
+            hash = merge(hash, v3);
+            hash = merge(hash, v4);
+        } else {
+            hash = PRIME5;
+        }
+        hash += length;
+        
+        int i = 0;
+        for (; i + 8 <= pendingCount; i += 8) {
+            hash ^= round(0, readLong(pending, i));
+            hash = Long.rotateLeft(hash, 27) * PRIME1 + PRIME4;
+        }
+        if (i + 4 <= pendingCount) {
+            hash ^= (readInt(pending, i) & 0xFFFFFFFFL) * PRIME1;
+            hash = Long.rotateLeft(hash, 23) * PRIME2 + PRIME3;
+            i += 4;
+        }
+        for (; i < pendingCount; i++) {
+            hash ^= (pending[i] & 0xFFL) * PRIME5;
+            hash = Long.rotateLeft(hash, 11) * PRIME1;
+        }
+        
+        hash ^= hash >>> 33;
+        hash *= PRIME2;
+        hash ^= hash >>> 29;
+        hash *= PRIME3;
+        hash ^= hash >>> 32;
+        return hash;
+    }
+    
+    private void stripe(byte[] buf, int off) {
+        v1 = round(v1, readLong(buf, off));
+        v2 = round(v2, readLong(buf, off + 8));
+        v3 = round(v3, readLong(buf, off + 16));
+        v4 = round(v4, readLong(buf, off + 24));
+    }
+    
+    private static long round(long lane, long input) {
+        lane += input * PRIME2;
+        lane = Long.rotateLeft(lane, 31);
+        return lane * PRIME1;
+    }
+    
+    private static long merge(long hash, long lane) {
+        hash ^= round(0, lane);
+        return hash * PRIME1 + PRIME4;
+    }
+    
+    private static long readLong(byte[] buf, int off) {
+        return (long) LONGS.get(buf, off);
+    }
+    
+    private static int readInt(byte[] buf, int off) {
+        return (int) INTS.get(buf, off);
+    }
+}
@@ -60,6 +60,7 @@ public class AnalysisResult {
         private Double min;
         private Double max;
         private Double average;
+        private Integer numericCount;    // values the average is over
         private Integer uniqueValues;
         
         // Constructors
@@ -86,6 +87,9 @@ public class AnalysisResult {
         public Double getAverage() { return average; }
         public void setAverage(Double average) { this.average = average; }
         
+        public Integer getNumericCount() { return numericCount; }
+        public void setNumericCount(Integer numericCount) { this.numericCount = numericCount; }
+        
         public Integer getUniqueValues() { return uniqueValues; }
         public void setUniqueValues(Integer uniqueValues) { this.uniqueValues = uniqueValues; }
     }
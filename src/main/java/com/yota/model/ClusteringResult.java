@@ -0,0 +1,69 @@
+package com.ayota.model;
+
+import java.util.List;
+
+/**
+ * CLUSTERING RESULT MODEL
+ * 
+ * Purpose: Store k-means clustering results for web display
+ * Think of it like: A map showing which group every row landed in
+ * 
+ * Real-life analogy: Like a report listing each customer segment,
+ * its size and its typical member
+ */
+public class ClusteringResult {
+    
+    private String mode;
+    private int k;
+    private int iterations;
+    private double inertia;
+    private long distanceComputations;
+    private List<String> featureNames;
+    private double[][] centroids;
+    private int[] clusterSizes;
+    private double[][] samplePoints;
+    private int[] sampleClusters;
+    
+    // Default constructor
+    public ClusteringResult() {}
+    
+    // Constructor with basic info
+    public ClusteringResult(String mode, int k, int iterations, double inertia) {
+        this.mode = mode;
+        this.k = k;
+        this.iterations = iterations;
+        this.inertia = inertia;
+    }
+    
+    // Getters and Setters
+    public String getMode() { return mode; }
+    public void setMode(String mode) { this.mode = mode; }
+    
+    public int getK() { return k; }
+    public void setK(int k) { this.k = k; }
+    
+    public int getIterations() { return iterations; }
+    public void setIterations(int iterations) { this.iterations = iterations; }
+    
+    public double getInertia() { return inertia; }
+    public void setInertia(double inertia) { this.inertia = inertia; }
+    
+    public long getDistanceComputations() { return distanceComputations; }
+    public void setDistanceComputations(long distanceComputations) { this.distanceComputations = distanceComputations; }
+    
+    public List<String> getFeatureNames() { return featureNames; }
+    public void setFeatureNames(List<String> featureNames) { this.featureNames = featureNames; }
+    
+    public double[][] getCentroids() { return centroids; }
+    public void setCentroids(double[][] centroids) { this.centroids = centroids; }
+    
+    public int[] getClusterSizes() { return clusterSizes; }
+    public void setClusterSizes(int[] clusterSizes) { this.clusterSizes = clusterSizes; }
+    
+    // Rows (numeric features only, original units) sampled for the scatter plot
+    public double[][] getSamplePoints() { return samplePoints; }
+    public void setSamplePoints(double[][] samplePoints) { this.samplePoints = samplePoints; }
+    
+    public int[] getSampleClusters() { return sampleClusters; }
+    public void setSampleClusters(int[] sampleClusters) { this.sampleClusters = sampleClusters; }
+}
@@ -0,0 +1,53 @@
+package com.ayota.model;
+
+import java.util.List;
+
+/**
+ * ROW PREVIEW MODEL
+ * 
+ * Purpose: A few raw rows of an uploaded file, read straight from disk
+ * Think of it like: Flicking through a few pages of a book in the shop
+ * instead of buying and reading all of it
+ * 
+ * Real-life analogy: Like the sample pages a printer sends before the
+ * whole run is printed
+ * 
+ * Either one page of consecutive rows (firstRow is the number of the first
+ * one, counting from 0 after the header) or a random sample in file order
+ * (sample is true, firstRow is -1). Cells are the text as written.
+ */
+public class RowPreview {
+    
+    private List<String> header;
+    private List<String[]> rows;
+    private long firstRow;
+    private long totalRows;
+    private boolean sample;
+    
+    // Default constructor
+    public RowPreview() {}
+    
+    public RowPreview(List<String> header, List<String[]> rows, long firstRow, long totalRows, boolean sample) {
+        this.header = header;
+        this.rows = rows;
+        this.firstRow = firstRow;
+        this.totalRows = totalRows;
+        this.sample = sample;
+    }
+    
+    // Getters and Setters
+    public List<String> getHeader() { return header; }
+    public void setHeader(List<String> header) { this.header = header; }
+    
+    public List<String[]> getRows() { return rows; }
+    public void setRows(List<String[]> rows) { this.rows = rows; }
+    
+    public long getFirstRow() { return firstRow; }
+    public void setFirstRow(long firstRow) { this.firstRow = firstRow; }
+    
+    public long getTotalRows() { return totalRows; }
+    public void setTotalRows(long totalRows) { this.totalRows = totalRows; }
+    
+    public boolean isSample() { return sample; }
+    public void setSample(boolean sample) { this.sample = sample; }
+}
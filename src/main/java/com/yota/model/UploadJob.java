@@ -0,0 +1,71 @@
+package com.ayota.model;
+
+/**
+ * UPLOAD JOB MODEL
+ * 
+ * Purpose: Track a large file upload that is parsed in the background
+ * Think of it like: A parcel tracking number you can check while the
+ * delivery is on its way
+ * 
+ * Real-life analogy: Like a dry-cleaning ticket - you hand the clothes in,
+ * get a number straight away, and come back to ask whether they're ready
+ * 
+ * The job is handed out once the file has been received, so status goes
+ * PARSING -> ANALYZING -> DONE (or FAILED). Fields are updated by the
+ * parsing thread while the web page polls them.
+ */
+public class UploadJob {
+    
+    public static final String PARSING = "PARSING";
+    public static final String ANALYZING = "ANALYZING";
+    public static final String DONE = "DONE";
+    public static final String FAILED = "FAILED";
+    
+    private final String datasetId;
+    private volatile String fileName;
+    private volatile String status = PARSING;
+    private volatile long totalBytes;      // -1 while unknown
+    private volatile long bytesParsed;
+    private volatile String error;
+    private volatile AnalysisResult analysisResult;
+    
+    public UploadJob(String datasetId, String fileName, long expectedBytes) {
+        this.datasetId = datasetId;
+        this.fileName = fileName;
+        this.totalBytes = expectedBytes;
+    }
+    
+    /**
+     * Percentage of the file parsed (0 while the size is unknown)
+     */
+    public double getProgress() {
+        if (DONE.equals(status)) {
+            return 100.0;
+        }
+        if (totalBytes <= 0) {
+            return 0.0;
+        }
+        return 100.0 * Math.min(1.0, (double) bytesParsed / totalBytes);
+    }
+    
+    // Getters and Setters
+    public String getDatasetId() { return datasetId; }
+    
+    public String getFileName() { return fileName; }
+    public void setFileName(String fileName) { this.fileName = fileName; }
+    
+    public String getStatus() { return status; }
+    public void setStatus(String status) { this.status = status; }
+    
+    public long getTotalBytes() { return totalBytes; }
+    public void setTotalBytes(long totalBytes) { this.totalBytes = totalBytes; }
+    
+    public long getBytesParsed() { return bytesParsed; }
+    public void setBytesParsed(long bytesParsed) { this.bytesParsed = bytesParsed; }
+    
+    public String getError() { return error; }
+    public void setError(String error) { this.error = error; }
+    
+    public AnalysisResult getAnalysisResult() { return analysisResult; }
+    public void setAnalysisResult(AnalysisResult analysisResult) { this.analysisResult = analysisResult; }
+}
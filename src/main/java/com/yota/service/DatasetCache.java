@@ -0,0 +1,229 @@
+package com.ayota.service;
+
+import com.ayota.io.BinaryDatasetReader;
+import com.ayota.io.BinaryDatasetWriter;
+import com.ayota.io.ColumnarTable;
+import com.ayota.io.XXHash64;
+import com.ayota.model.AnalysisResult;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * DATASET CACHE
+ * 
+ * Purpose: Remember uploads that were already parsed and analyzed, so the
+ * same file uploaded again is loaded instead of parsed
+ * Think of it like: A cloakroom - the same coat always gets the same
+ * ticket, and handing in the ticket gets the coat back at once
+ * 
+ * Real-life analogy: Like a print shop that keeps the plates of last
+ * week's flyer; a reorder skips the typesetting and goes straight to print
+ * 
+ * How it works:
+ * - The key is the xxHash64 of the uploaded bytes plus their length, so a
+ *   renamed copy of a file still hits, and any changed byte misses
+ * - An entry is the parsed table in the binary dataset format
+ *   (BinaryDatasetWriter) next to its AnalysisResult as JSON
+ * - Entries are written under temporary names and then renamed, so a
+ *   crash never leaves a half-written entry behind
+ * - When the total size goes over the limit, the least recently used
+ *   entries are deleted; use is recorded in the files' modified times, so
+ *   the order survives a restart
+ * - A damaged entry is deleted and treated as a miss
+ */
+@Service
+public class DatasetCache {
+    
+    private static final String TABLE_SUFFIX = ".yotab";
+    private static final String ANALYSIS_SUFFIX = ".json";
+    
+    private final Path directory;
+    private final long maxBytes;
+    private final ObjectMapper mapper = new ObjectMapper();
+    
+    // key -> entry size in bytes, least recently used first
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+    
+    /**
+     * A cached upload: its parsed table and its analysis
+     */
+    public static class Entry {
+        private final ColumnarTable table;
+        private final AnalysisResult analysis;
+        
+        Entry(ColumnarTable table, AnalysisResult analysis) {
+            this.table = table;
+            this.analysis = analysis;
+        }
+        
+        public ColumnarTable getTable() { return table; }
+        public AnalysisResult getAnalysis() { return analysis; }
+    }
+    
+    public DatasetCache(@Value("${yota.cache.dir:${java.io.tmpdir}/yota-cache}") String directory,
+                        @Value("${yota.cache.max-bytes:4294967296}") long maxBytes) throws IOException {
+        this.directory = Paths.get(directory);
+        this.maxBytes = maxBytes;
+        Files.createDirectories(this.directory);
+        loadIndex();
+    }
+    
+    /**
+     * Cache key of content that was fed through a hash
+     */
+    public static String keyOf(XXHash64 hash) {
+        return String.format("%016x-%d", hash.getValue(), hash.getLength());
+    }
+    
+    /**
+     * The cached table and analysis for a key, or null if there is none
+     */
+    public synchronized Entry get(String key) {
+        if (!entries.containsKey(key)) {
+            return null;
+        }
+        Path tableFile = tableFile(key);
+        Path analysisFile = analysisFile(key);
+        try {
+            ColumnarTable table;
+            try (BinaryDatasetReader reader = new BinaryDatasetReader(tableFile.toString())) {
+                table = reader.readTable();
+            }
+            AnalysisResult analysis = mapper.readValue(analysisFile.toFile(), AnalysisResult.class);
+            long now = System.currentTimeMillis();
+            tableFile.toFile().setLastModified(now);
+            analysisFile.toFile().setLastModified(now);
+            return new Entry(table, analysis);
+        } catch (IOException e) {
+            remove(key);
+            return null;
+        }
+    }
+    
+    /**
+     * Store a parsed upload under its key, then evict the least recently
+     * used entries until the cache fits its size limit again. Failing to
+     * write leaves the cache without this entry; the upload itself is fine.
+     */
+    public synchronized void put(String key, ColumnarTable table, AnalysisResult analysis) {
+        if (entries.containsKey(key)) {
+            return;
+        }
+        Path tableTemp = directory.resolve(key + TABLE_SUFFIX + ".tmp");
+        Path analysisTemp = directory.resolve(key + ANALYSIS_SUFFIX + ".tmp");
+        try {
+            BinaryDatasetWriter.write(table, tableTemp.toString());
+            mapper.writeValue(analysisTemp.toFile(), analysis);
+            long size = Files.size(tableTemp) + Files.size(analysisTemp);
+            if (size > maxBytes) {
+                return;
+            }
+            // The table goes last: an entry only counts once its table exists
+            Files.move(analysisTemp, analysisFile(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            Files.move(tableTemp, tableFile(key), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            entries.put(key, size);
+            totalBytes += size;
+            evict();
+        } catch (IOException e) {
+            // Not cached this time
+        } finally {
+            deleteQuietly(tableTemp);
+            deleteQuietly(analysisTemp);
+        }
+    }
+    
+    /**
+     * Total size of the cached entries in bytes
+     */
+    public synchronized long getTotalBytes() {
+        return totalBytes;
+    }
+    
+    public synchronized int size() {
+        return entries.size();
+    }
+    
+    /**
+     * Rebuild the index from the directory: complete entries, oldest use
+     * first. Leftovers of an interrupted write are deleted.
+     */
+    private void loadIndex() throws IOException {
+        File[] files = directory.toFile().listFiles();
+        if (files == null) {
+            return;
+        }
+        List<File> tables = new ArrayList<>();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(".tmp")) {
+                file.delete();
+            } else if (name.endsWith(TABLE_SUFFIX)) {
+                tables.add(file);
+            } else if (name.endsWith(ANALYSIS_SUFFIX)) {
+                String key = name.substring(0, name.length() - ANALYSIS_SUFFIX.length());
+                if (!Files.exists(tableFile(key))) {
+                    file.delete();
+                }
+            }
+        }
+        tables.sort(Comparator.comparingLong(File::lastModified));
+        for (File file : tables) {
+            String key = file.getName().substring(0, file.getName().length() - TABLE_SUFFIX.length());
+            Path analysisFile = analysisFile(key);
+            if (!Files.exists(analysisFile)) {
+                file.delete();
+                continue;
+            }
+            long size = file.length() + Files.size(analysisFile);
+            entries.put(key, size);
+            totalBytes += size;
+        }
+        evict();
+    }
+    
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            totalBytes -= entry.getValue();
+            deleteQuietly(tableFile(entry.getKey()));
+            deleteQuietly(analysisFile(entry.getKey()));
+            eldest.remove();
+        }
+    }
+    
+    private void remove(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+        deleteQuietly(tableFile(key));
+        deleteQuietly(analysisFile(key));
+    }
+    
+    private Path tableFile(String key) {
+        return directory.resolve(key + TABLE_SUFFIX);
+    }
+    
+    private Path analysisFile(String key) {
+        return directory.resolve(key + ANALYSIS_SUFFIX);
+    }
+    
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Retried by the next eviction or startup
+        }
+    }
+}
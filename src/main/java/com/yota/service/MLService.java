@@ -1,14 +1,33 @@
 package com.ayota.service;
 
 import com.ayota.core.*;
+import com.ayota.io.ColumnarTable;
+import com.ayota.io.CompressedInput;
+import com.ayota.io.MultipartStream;
+import com.ayota.io.RowIndex;
 import com.ayota.model.AnalysisResult;
+import com.ayota.model.ClusteringResult;
 import com.ayota.model.MLResult;
+import com.ayota.model.RowPreview;
+import com.ayota.model.UploadJob;
+import com.ayota.io.XXHash64;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.web.multipart.MultipartFile;
 
-import java.io.BufferedReader;
-import java.io.InputStreamReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * ML SERVICE
@@ -21,21 +40,199 @@ import java.util.*;
 @Service
 public class MLService {
     
-    // Store current dataset and results
-    private Dataset currentDataset;
+    // Store current dataset and results (large uploads replace them from
+    // the parsing thread). currentTable is the columnar form of a dataset
+    // loaded from CSV; appends go through it so they're checked against
+    // its schema.
+    private volatile Dataset currentDataset;
+    private ColumnarTable currentTable;
     private DataAnalyzer currentAnalyzer;
-    private AnalysisResult currentAnalysisResult;
+    private volatile AnalysisResult currentAnalysisResult;
     private MLResult currentMLResult;
+    private ClusteringResult currentClusteringResult;
+    
+    // Uploads already parsed and analyzed, by content hash
+    @Autowired
+    private DatasetCache datasetCache;
+    
+    // Rows sent to the browser for the cluster scatter plot
+    private static final int MAX_CLUSTER_PLOT_POINTS = 2000;
+    
+    // Large uploads: parsed one at a time in the background, looked up by ID
+    private static final int MAX_TRACKED_UPLOADS = 50;
+    private static final int COPY_BUFFER_SIZE = 1 << 16;
+    private final ExecutorService uploadParser = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "yota-upload-parser");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final Map<String, UploadJob> uploadJobs = Collections.synchronizedMap(
+        new LinkedHashMap<String, UploadJob>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UploadJob> eldest) {
+                return size() > MAX_TRACKED_UPLOADS;
+            }
+        });
+    
+    // Received large-upload files, kept so they can be paged through and
+    // sampled without loading them; the oldest is deleted once there are
+    // too many (by its parse, if that hasn't finished yet). A file's row
+    // index is built by its background job, before parsing.
+    private static final int MAX_KEPT_UPLOAD_FILES = 4;
+    private static final int MAX_PREVIEW_ROWS = 1000;
+    private final Map<String, CompletableFuture<RowIndex>> rowIndexes = new ConcurrentHashMap<>();
+    private final Map<String, Path> uploadFiles = Collections.synchronizedMap(
+        new LinkedHashMap<String, Path>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Path> eldest) {
+                if (size() <= MAX_KEPT_UPLOAD_FILES) {
+                    return false;
+                }
+                rowIndexes.remove(eldest.getKey());
+                UploadJob job = uploadJobs.get(eldest.getKey());
+                if (job == null || UploadJob.DONE.equals(job.getStatus()) || UploadJob.FAILED.equals(job.getStatus())) {
+                    deleteUploadFile(eldest.getValue());
+                }
+                return true;
+            }
+        });
     
     /**
-     * Process uploaded CSV file
+     * Process uploaded CSV file (a file uploaded before is loaded from the
+     * cache instead of parsed again). The file is hashed first, in one
+     * pass at disk speed, and only parsed if the cache misses.
      */
     public AnalysisResult processUploadedFile(MultipartFile file) throws Exception {
+        XXHash64 hash = new XXHash64();
+        try (InputStream in = file.getInputStream()) {
+            hash.update(in);
+        }
+        String key = DatasetCache.keyOf(hash);
+        DatasetCache.Entry cached = datasetCache.get(key);
+        if (cached != null) {
+            return useCached(cached, file.getOriginalFilename());
+        }
+        
         // Create dataset from uploaded file
-        Dataset dataset = loadCSVFromMultipartFile(file);
+        ColumnarTable table = loadCSVFromMultipartFile(file);
+        Dataset dataset = table.toDataset(file.getOriginalFilename());
         
         // Analyze the dataset
-        return analyzeDataset(dataset);
+        return analyzeAndCache(key, dataset, table);
+    }
+    
+    /**
+     * Append the rows of a CSV file (e.g. the latest hourly drop) to the
+     * current dataset instead of reloading it. The rows must fit the
+     * dataset's columns and types, or nothing is added. The column
+     * statistics are updated from the new rows only.
+     */
+    public synchronized AnalysisResult appendCSV(InputStream in, boolean hasHeader) throws IOException {
+        ColumnarTable table = requireTable();
+        int fromRow = table.getNumRows();
+        table.appendCSV(in, hasHeader);
+        return addAppendedRows(table, fromRow);
+    }
+    
+    /**
+     * Append one row, given as its cell texts, to the current dataset
+     */
+    public synchronized AnalysisResult appendRow(List<String> cells) throws IOException {
+        ColumnarTable table = requireTable();
+        int fromRow = table.getNumRows();
+        table.appendRow(cells.toArray(new String[0]));
+        return addAppendedRows(table, fromRow);
+    }
+    
+    /**
+     * Start a large upload: the request body (raw CSV, or multipart with
+     * the file as a part) is streamed to a temp file, never held in memory,
+     * then indexed and parsed in the background. Returns as soon as the
+     * body has been received (the sender tracks that part itself); the job
+     * reports parse progress and, once DONE, the analysis. The finished
+     * dataset becomes the current one, as with a normal upload. A body
+     * that can't be received gives a FAILED job with the reason.
+     */
+    public UploadJob startLargeUpload(InputStream body, String contentType, long contentLength,
+                                      String fileName) throws IOException {
+        UploadJob job = new UploadJob(UUID.randomUUID().toString(),
+                                      fileName != null ? fileName : "upload.csv", contentLength);
+        uploadJobs.put(job.getDatasetId(), job);
+        
+        Path tempFile = Files.createTempFile("yota-upload-", ".csv");
+        boolean started = false;
+        try {
+            InputStream fileContent = body;
+            String boundary = MultipartStream.boundaryOf(contentType);
+            if (contentType != null && contentType.startsWith("multipart/") && boundary != null) {
+                fileContent = findFilePart(new MultipartStream(body, boundary), job);
+            }
+            
+            // Receive: copy to disk, hashing the bytes for the cache
+            XXHash64 hash = new XXHash64();
+            try (OutputStream out = Files.newOutputStream(tempFile)) {
+                byte[] buffer = new byte[COPY_BUFFER_SIZE];
+                int n;
+                while ((n = fileContent.read(buffer)) > 0) {
+                    out.write(buffer, 0, n);
+                    hash.update(buffer, 0, n);
+                }
+            }
+            job.setTotalBytes(hash.getLength());
+            
+            CompletableFuture<RowIndex> index = new CompletableFuture<>();
+            rowIndexes.put(job.getDatasetId(), index);
+            uploadFiles.put(job.getDatasetId(), tempFile);
+            String key = DatasetCache.keyOf(hash);
+            uploadParser.submit(() -> parseUpload(job, tempFile, key, index));
+            started = true;
+            return job;
+        
+        } catch (IOException | IllegalArgumentException e) {
+            job.setError(e.getMessage());
+            job.setStatus(UploadJob.FAILED);
+            return job;
+        } finally {
+            if (!started) {
+                Files.deleteIfExists(tempFile);
+            }
+        }
+    }
+    
+    /**
+     * Status of a large upload, or null if the ID is unknown (or too old)
+     */
+    public UploadJob getUploadJob(String datasetId) {
+        return uploadJobs.get(datasetId);
+    }
+    
+    /**
+     * One page of a large upload's rows, read from the received file (so
+     * it works while the file is still being parsed). Null if the upload
+     * is unknown or its file is no longer kept; IllegalStateException
+     * while the file is still being indexed.
+     */
+    public RowPreview getUploadRows(String datasetId, long page, int pageSize) throws IOException {
+        RowIndex index = rowIndexOf(datasetId);
+        if (index == null) {
+            return null;
+        }
+        int size = Math.max(1, Math.min(pageSize, MAX_PREVIEW_ROWS));
+        long firstRow = Math.max(0, page) * size;
+        return new RowPreview(index.getHeader(), index.readRows(firstRow, size), firstRow, index.getNumRows(), false);
+    }
+    
+    /**
+     * A uniform random sample of a large upload's rows (in file order),
+     * or null as for getUploadRows
+     */
+    public RowPreview sampleUploadRows(String datasetId, int count, long seed) throws IOException {
+        RowIndex index = rowIndexOf(datasetId);
+        if (index == null) {
+            return null;
+        }
+        int size = Math.max(1, Math.min(count, MAX_PREVIEW_ROWS));
+        return new RowPreview(index.getHeader(), index.sample(size, seed), -1, index.getNumRows(), true);
     }
     
     /**
@@ -43,14 +240,16 @@ public class MLService {
      */
     public AnalysisResult loadSampleDataset() {
         Dataset dataset = createSampleDataset();
-        return analyzeDataset(dataset);
+        return analyzeDataset(dataset, null);
     }
     
     /**
-     * Analyze dataset and create analysis result
+     * Analyze dataset and create analysis result (table is its columnar
+     * form, or null if it wasn't loaded from CSV)
      */
-    private AnalysisResult analyzeDataset(Dataset dataset) {
+    private synchronized AnalysisResult analyzeDataset(Dataset dataset, ColumnarTable table) {
         this.currentDataset = dataset;
+        this.currentTable = table;
         this.currentAnalyzer = new DataAnalyzer(dataset);
         
         // Create analysis result
@@ -76,6 +275,7 @@ public class MLService {
                 stats.setMin(currentAnalyzer.getMin(i));
                 stats.setMax(currentAnalyzer.getMax(i));
                 stats.setAverage(currentAnalyzer.getAverage(i));
+                stats.setNumericCount(currentAnalyzer.getNumericCount(i));
             }
             
             stats.setUniqueValues(currentAnalyzer.getUniqueValueCount(i));
@@ -99,6 +299,32 @@ public class MLService {
         return result;
     }
     
+    /**
+     * Analyze a freshly parsed upload and cache it under its content key.
+     * Appends wait until the table is written, as they change it.
+     */
+    private synchronized AnalysisResult analyzeAndCache(String key, Dataset dataset, ColumnarTable table) {
+        AnalysisResult result = analyzeDataset(dataset, table);
+        datasetCache.put(key, table, result);
+        return result;
+    }
+    
+    /**
+     * Make a cached upload the current dataset, under its new file name
+     */
+    private synchronized AnalysisResult useCached(DatasetCache.Entry cached, String name) {
+        ColumnarTable table = cached.getTable();
+        Dataset dataset = table.toDataset(name);
+        AnalysisResult result = cached.getAnalysis();
+        result.setDatasetName(name);
+        
+        this.currentDataset = dataset;
+        this.currentTable = table;
+        this.currentAnalyzer = new DataAnalyzer(dataset);
+        this.currentAnalysisResult = result;
+        return result;
+    }
+    
     /**
      * Run KNN classification
      */
@@ -153,6 +379,47 @@ public class MLService {
         return result;
     }
     
+    /**
+     * Run k-means clustering on the numeric attributes
+     */
+    public ClusteringResult runKMeansClustering(int k, String mode) throws Exception {
+        if (currentDataset == null) {
+            throw new Exception("No dataset loaded");
+        }
+        
+        KMeansClusterer clusterer = new KMeansClusterer(k, KMeansClusterer.Mode.valueOf(mode));
+        clusterer.fit(currentDataset);
+        
+        ClusteringResult result = new ClusteringResult(
+            mode, k, clusterer.getIterationsRun(), clusterer.getInertia());
+        result.setDistanceComputations(clusterer.getDistanceComputations());
+        result.setFeatureNames(clusterer.getFeatureNames());
+        result.setCentroids(clusterer.getCentroids());
+        result.setClusterSizes(clusterer.getClusterSizes());
+        
+        // Evenly spaced sample of rows for plotting
+        int n = currentDataset.getNumInstances();
+        int[] features = clusterer.getFeatureIndices();
+        int[] assignments = clusterer.getAssignments();
+        int step = Math.max(1, (n + MAX_CLUSTER_PLOT_POINTS - 1) / MAX_CLUSTER_PLOT_POINTS);
+        int samples = (n + step - 1) / step;
+        double[][] points = new double[samples][features.length];
+        int[] clusters = new int[samples];
+        for (int s = 0; s < samples; s++) {
+            Instance instance = currentDataset.getInstance(s * step);
+            for (int j = 0; j < features.length; j++) {
+                Object value = instance.getValue(features[j]);
+                points[s][j] = value instanceof Double ? (Double) value : Double.NaN;
+            }
+            clusters[s] = assignments[s * step];
+        }
+        result.setSamplePoints(points);
+        result.setSampleClusters(clusters);
+        
+        this.currentClusteringResult = result;
+        return result;
+    }
+    
     /**
      * Get visualization data
      */
@@ -168,6 +435,8 @@ public class MLService {
                 return createClassDistributionData();
             case "correlation":
                 return createCorrelationData();
+            case "clusters":
+                return currentClusteringResult;
             default:
                 return null;
         }
@@ -177,51 +446,204 @@ public class MLService {
     public Dataset getCurrentDataset() { return currentDataset; }
     public AnalysisResult getCurrentAnalysisResult() { return currentAnalysisResult; }
     public MLResult getCurrentMLResult() { return currentMLResult; }
+    public ClusteringResult getCurrentClusteringResult() { return currentClusteringResult; }
     
     // ===== HELPER METHODS =====
     
     /**
      * Load CSV from MultipartFile
      */
-    private Dataset loadCSVFromMultipartFile(MultipartFile file) throws Exception {
-        Dataset dataset = new Dataset(file.getOriginalFilename());
-        
-        BufferedReader reader = new BufferedReader(new InputStreamReader(file.getInputStream()));
-        String line;
-        boolean firstLine = true;
+    private ColumnarTable loadCSVFromMultipartFile(MultipartFile file) throws Exception {
+        try (InputStream in = file.getInputStream()) {
+            return ColumnarTable.readCSV(in);
+        }
+    }
+    
+    private ColumnarTable requireTable() {
+        if (currentTable == null) {
+            throw new IllegalStateException("Rows can only be appended to a dataset loaded from a CSV file");
+        }
+        return currentTable;
+    }
+    
+    /**
+     * After an append: add the table's new rows to the current dataset and
+     * fold them into the cached analysis (min, max, average, frequencies,
+     * missing values) without rescanning the older rows
+     */
+    private AnalysisResult addAppendedRows(ColumnarTable table, int fromRow) {
+        Dataset dataset = currentDataset;
+        table.addRows(dataset, fromRow);
         
-        while ((line = reader.readLine()) != null) {
-            if (line.trim().isEmpty()) continue;
-            
-            String[] values = line.split(",");
+        AnalysisResult result = currentAnalysisResult;
+        result.setTotalRows(dataset.getNumInstances());
+        for (int i = 0; i < dataset.getNumAttributes(); i++) {
+            Attribute attr = dataset.getAttribute(i);
+            String columnName = attr.getName();
+            AnalysisResult.ColumnStats stats = result.getColumnStatistics().get(columnName);
+            Map<String, Integer> frequencies = result.getFrequencyTables().get(columnName);
+            boolean numeric = attr.getType().equals("numeric");
             
-            if (firstLine) {
-                firstLine = false;
-                // Create attributes
-                for (int i = 0; i < values.length; i++) {
-                    String header = values[i].trim();
-                    String type = (i == values.length - 1) ? "categorical" : "numeric";
-                    dataset.addAttribute(new Attribute(header, type));
+            boolean missing = false;
+            Double min = stats.getMin();
+            Double max = stats.getMax();
+            double sum = 0.0;
+            int count = 0;
+            for (int r = fromRow; r < dataset.getNumInstances(); r++) {
+                Object value = dataset.getInstance(r).getValue(i);
+                if (value == null) {
+                    missing = true;
+                    continue;
                 }
-            } else {
-                // Create instance
-                Instance instance = new Instance();
-                for (String value : values) {
-                    Object objectValue = tryParseNumber(value.trim());
-                    instance.addValue(objectValue);
+                frequencies.merge(value.toString(), 1, Integer::sum);
+                if (numeric && value instanceof Double) {
+                    double number = (Double) value;
+                    min = (min == null || number < min) ? number : min;
+                    max = (max == null || number > max) ? number : max;
+                    sum += number;
+                    count++;
                 }
-                
-                if (values.length > 0) {
-                    Object lastValue = tryParseNumber(values[values.length - 1].trim());
-                    instance.setClassValue(lastValue);
+            }
+            
+            if (count > 0) {
+                int oldCount = stats.getNumericCount() != null ? stats.getNumericCount() : 0;
+                double oldSum = stats.getAverage() != null ? stats.getAverage() * oldCount : 0.0;
+                stats.setMin(min);
+                stats.setMax(max);
+                stats.setAverage((oldSum + sum) / (oldCount + count));
+                stats.setNumericCount(oldCount + count);
+            }
+            stats.setUniqueValues(frequencies.size());
+            if (missing && !result.getMissingValueColumns().contains(columnName)) {
+                result.getMissingValueColumns().add(columnName);
+            }
+        }
+        return result;
+    }
+    
+    /**
+     * Skip to the first file part of a multipart body
+     */
+    private InputStream findFilePart(MultipartStream multipart, UploadJob job) throws IOException {
+        while (multipart.nextPart()) {
+            if (multipart.getFilename() != null) {
+                job.setFileName(multipart.getFilename());
+                return multipart.getBody();
+            }
+        }
+        throw new IllegalArgumentException("No file found in the upload");
+    }
+    
+    /**
+     * Row index of a kept upload file, as built by its background job.
+     * Never builds one here: a preview asked for straight after the upload
+     * just waits (IllegalStateException) until the job has indexed it.
+     */
+    private RowIndex rowIndexOf(String datasetId) throws IOException {
+        CompletableFuture<RowIndex> index = rowIndexes.get(datasetId);
+        if (index == null || !uploadFiles.containsKey(datasetId)) {
+            return null;
+        }
+        if (!index.isDone()) {
+            throw new IllegalStateException("The rows of upload " + datasetId + " are still being indexed");
+        }
+        try {
+            return index.get();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException ? (IOException) e.getCause() : new IOException(e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while reading the row index", e);
+        }
+    }
+    
+    /**
+     * Build the row index of a received file for previews (saved beside
+     * it). A failure only affects previews, never the parse.
+     */
+    private static void buildRowIndex(Path file, CompletableFuture<RowIndex> index) {
+        try {
+            if (CompressedInput.isCompressed(file.toString())) {
+                throw new IOException("Compressed uploads can't be previewed; upload the plain CSV to page through it");
+            }
+            index.complete(RowIndex.open(file.toString()));
+        } catch (IOException | RuntimeException e) {
+            index.completeExceptionally(e);
+        }
+    }
+    
+    private static void deleteUploadFile(Path file) {
+        try {
+            Files.deleteIfExists(file);
+            Files.deleteIfExists(Paths.get(file + RowIndex.SUFFIX));
+        } catch (IOException e) {
+            // Left in the temp directory; nothing else to do
+        }
+    }
+    
+    /**
+     * Background part of a large upload: index the temp file for previews,
+     * parse it, then analyze (or take both from the cache if this file was
+     * uploaded before). The file is kept for previews unless it was
+     * dropped while parsing.
+     */
+    private void parseUpload(UploadJob job, Path tempFile, String key, CompletableFuture<RowIndex> index) {
+        buildRowIndex(tempFile, index);
+        try (InputStream in = new ProgressInputStream(Files.newInputStream(tempFile), job)) {
+            DatasetCache.Entry cached = datasetCache.get(key);
+            if (cached != null) {
+                job.setBytesParsed(job.getTotalBytes());
+                job.setAnalysisResult(useCached(cached, job.getFileName()));
+                job.setStatus(UploadJob.DONE);
+                return;
+            }
+            ColumnarTable table = ColumnarTable.readCSV(in);
+            Dataset dataset = table.toDataset(job.getFileName());
+            job.setStatus(UploadJob.ANALYZING);
+            job.setAnalysisResult(analyzeAndCache(key, dataset, table));
+            job.setStatus(UploadJob.DONE);
+        } catch (Exception | OutOfMemoryError e) {
+            job.setError(e.getMessage() != null ? e.getMessage() : e.toString());
+            job.setStatus(UploadJob.FAILED);
+        } finally {
+            synchronized (uploadFiles) {
+                if (!uploadFiles.containsKey(job.getDatasetId())) {
+                    deleteUploadFile(tempFile);
                 }
-                
-                dataset.addInstance(instance);
             }
         }
+    }
+    
+    /**
+     * Counts the bytes the parser has consumed into an upload job
+     */
+    private static class ProgressInputStream extends FilterInputStream {
+        private final UploadJob job;
+        private long count;
         
-        reader.close();
-        return dataset;
+        ProgressInputStream(InputStream in, UploadJob job) {
+            super(in);
+            this.job = job;
+        }
+        
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                job.setBytesParsed(++count);
+            }
+            return b;
+        }
+        
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) {
+                count += n;
+                job.setBytesParsed(count);
+            }
+            return n;
+        }
     }
     
     /**
@@ -261,14 +683,6 @@ public class MLService {
         return dataset;
     }
     
-    private Object tryParseNumber(String value) {
-        try {
-            return Double.parseDouble(value);
-        } catch (NumberFormatException e) {
-            return value;
-        }
-    }
-    
     private Dataset[] splitDataset(Dataset dataset, double trainRatio) {
         // Implementation similar to existing Evaluator class
         int totalInstances = dataset.getNumInstances();
@@ -0,0 +1,80 @@
+package com.ayota.io;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Min/max sidecars prune shards only while they still describe them
+ */
+class ShardedCSVReaderTest {
+
+    @TempDir
+    Path dir;
+
+    private Path writeShard(String name, String content) throws Exception {
+        Path shard = dir.resolve(name);
+        Files.write(shard, content.getBytes(StandardCharsets.UTF_8));
+        return shard;
+    }
+
+    @Test
+    void freshStatsPruneShards() throws Exception {
+        Path first = writeShard("part-1.csv", "id,amount\n1,10.5\n2,20.5\n");
+        Path second = writeShard("part-2.csv", "id,amount\n3,30.5\n4,40.5\n");
+        ShardedCSVReader.writeStats(first.toString());
+        ShardedCSVReader.writeStats(second.toString());
+
+        ShardedCSVReader reader = new ShardedCSVReader(2);
+        ColumnarTable table = reader.read(dir.toString(), null,
+                                          List.of(ShardedCSVReader.Range.atLeast("id", 3)));
+        assertEquals(2, table.getNumRows());
+        assertEquals(1, reader.getShardsPruned());
+    }
+
+    @Test
+    void rewrittenShardIsNotPrunedByStaleStats() throws Exception {
+        Path first = writeShard("part-1.csv", "id,amount\n1,10.5\n2,20.5\n");
+        Path second = writeShard("part-2.csv", "id,amount\n3,30.5\n4,40.5\n");
+        ShardedCSVReader.writeStats(first.toString());
+        ShardedCSVReader.writeStats(second.toString());
+
+        // Append rows outside the recorded bounds; the sidecar still says 1..2
+        Files.write(first, "100,99.5\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+        Files.setLastModifiedTime(first, FileTime.fromMillis(Files.getLastModifiedTime(first).toMillis() + 2000));
+
+        assertTrue(ShardedCSVReader.readStats(first).isEmpty());
+        assertFalse(ShardedCSVReader.readStats(second).isEmpty());
+
+        ShardedCSVReader reader = new ShardedCSVReader(2);
+        ColumnarTable table = reader.read(dir.toString(), null,
+                                          List.of(ShardedCSVReader.Range.atLeast("id", 50)));
+        assertEquals(1, reader.getShardsPruned());
+        assertEquals(3, table.getNumRows());
+        assertEquals(100.0, table.getColumn(0).getNumber(2));
+    }
+
+    @Test
+    void sameSizeRewriteIsDetectedByModifiedTime() throws Exception {
+        Path shard = writeShard("part-1.csv", "id,amount\n1,10.5\n2,20.5\n");
+        ShardedCSVReader.writeStats(shard.toString());
+        long written = Files.getLastModifiedTime(shard).toMillis();
+
+        writeShard("part-1.csv", "id,amount\n8,10.5\n9,20.5\n");
+        Files.setLastModifiedTime(shard, FileTime.fromMillis(written + 2000));
+
+        ShardedCSVReader reader = new ShardedCSVReader(1);
+        ColumnarTable table = reader.read(dir.toString(), null,
+                                          List.of(ShardedCSVReader.Range.atLeast("id", 5)));
+        assertEquals(2, table.getNumRows());
+        assertEquals(0, reader.getShardsPruned());
+    }
+}
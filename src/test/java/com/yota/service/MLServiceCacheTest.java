@@ -0,0 +1,60 @@
+package com.ayota.service;
+
+import com.ayota.model.AnalysisResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A repeat upload is loaded from the dataset cache: the file is only
+ * read once, to hash it, and never parsed again
+ */
+class MLServiceCacheTest {
+
+    private static final String CSV = "age,salary,hired\n25,45000,no\n30,65000,yes\n35,80000,yes\n22,40000,no\n";
+
+    @TempDir
+    Path cacheDir;
+
+    /**
+     * Counts how often the upload's content is opened
+     */
+    private static class CountingFile extends MockMultipartFile {
+        int opens;
+
+        CountingFile(String name) {
+            super("file", name, "text/csv", CSV.getBytes(StandardCharsets.UTF_8));
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException {
+            opens++;
+            return super.getInputStream();
+        }
+    }
+
+    @Test
+    void repeatUploadIsNotParsedAgain() throws Exception {
+        MLService service = new MLService();
+        ReflectionTestUtils.setField(service, "datasetCache", new DatasetCache(cacheDir.toString(), 1L << 20));
+
+        CountingFile first = new CountingFile("first.csv");
+        AnalysisResult parsed = service.processUploadedFile(first);
+        assertEquals(2, first.opens, "a new file is hashed, then parsed");
+
+        CountingFile again = new CountingFile("again.csv");
+        AnalysisResult cached = service.processUploadedFile(again);
+        assertEquals(1, again.opens, "a repeat upload is only hashed");
+        assertEquals(parsed.getTotalRows(), cached.getTotalRows());
+        assertEquals("again.csv", cached.getDatasetName());
+        assertEquals(4, service.getCurrentDataset().getNumInstances());
+    }
+}